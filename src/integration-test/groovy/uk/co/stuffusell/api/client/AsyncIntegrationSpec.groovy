@@ -0,0 +1,47 @@
+package uk.co.stuffusell.api.client
+
+import uk.co.stuffusell.api.common.CustomerDto
+import uk.co.stuffusell.api.common.DateListDto
+import uk.co.stuffusell.api.common.LoginResponse
+
+class AsyncIntegrationSpec extends BaseIntegrationSpec {
+
+    protected static AsyncSusClient asyncClient
+
+    def setupSpec() {
+        asyncClient = AsyncSusClient.make(new Configuration()
+                .withBlockTillRateLimitReset(false)
+                .withEndpoint(System.getProperty("susEndpoint") ?: System.getenv("susEndpoint") ?: "http://localhost:8080")
+                .withAccessToken(System.getProperty("susAccessToken") ?: System.getenv("susAccessToken")))
+    }
+
+    def "I can request categories and shipping dates concurrently"() {
+        when:
+        def categories = asyncClient.categories()
+        def dates = asyncClient.availableShippingDates
+
+        then:
+        categories.get().contains('Electronics')
+        ((DateListDto) dates.get()).dates.size() > 0
+    }
+
+    def "I can fetch the user for the token"() {
+        given:
+        LoginResponse login = asyncClient.login(registerNewUser(), 'secret123').get()
+
+        when:
+        CustomerDto me = asyncClient.current(login.authToken).get()
+
+        then:
+        me.fullName == 'John Doe'
+    }
+
+    def "An invalid token completes the future with an unauthorised exception"() {
+        when:
+        asyncClient.current('invalid-token').join()
+
+        then:
+        java.util.concurrent.CompletionException e = thrown()
+        e.cause instanceof UnauthorisedException
+    }
+}
@@ -0,0 +1,106 @@
+package uk.co.stuffusell.api.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import uk.co.stuffusell.api.client.util.ObjectMapperFactory;
+import uk.co.stuffusell.api.common.CustomerUpdateRequest;
+import uk.co.stuffusell.api.common.PaymentType;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Response bodies and request payloads shaped like the server's, for the benchmarks
+ */
+public final class Fixtures {
+    private static final ObjectMapper MAPPER = ObjectMapperFactory.make();
+
+    private Fixtures() {
+    }
+
+    public static byte[] orders(int count) {
+        List<Map<String, Object>> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> order = new LinkedHashMap<>();
+            order.put("orderId", String.format("%05d-%03d", 10000 + i, 1));
+            order.put("status", "ORDER_RECEIVED");
+            order.put("receivedDate", "2021-05-0" + (1 + i % 9) + "T10:15:30.000Z");
+            List<Map<String, Object>> items = new ArrayList<>();
+            for (int j = 0; j < 3; j++) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("customerDescription", "My Item " + j + " RRP \u00a3123");
+                item.put("customerQuantity", 1 + j);
+                item.put("customerEstimate", 40.0 + j);
+                items.add(item);
+            }
+            order.put("items", items);
+            orders.add(order);
+        }
+        return toJson(orders);
+    }
+
+    public static byte[] stockPage(int count) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("sku", String.format("%05d-001-%03d", 10000 + i, i % 1000));
+            item.put("title", "Vintage Leather Satchel Bag Brown " + i);
+            item.put("status", i % 3 == 0 ? "SOLD" : "LISTED");
+            item.put("category", "Clothing, Shoes & Accessories");
+            item.put("listedDate", "2021-04-12T09:00:00.000Z");
+            item.put("price", 25.99 + i);
+            item.put("quantity", 1);
+            items.add(item);
+        }
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", items);
+        page.put("page", 0);
+        page.put("pageSize", count);
+        page.put("total", count * 10L);
+        return toJson(page);
+    }
+
+    public static byte[] ledger(int count) {
+        List<Map<String, Object>> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("date", "2021-03-" + String.format("%02d", 1 + i % 28) + "T00:00:00.000Z");
+            entry.put("description", "Sale of item " + i);
+            entry.put("reference", String.format("%05d-001-%03d", 10000 + i, i % 1000));
+            entry.put("amount", 12.5 + i);
+            entry.put("commission", -3.75);
+            entries.add(entry);
+        }
+        Map<String, Object> ledger = new LinkedHashMap<>();
+        ledger.put("entries", entries);
+        ledger.put("balance", 1234.56);
+        return toJson(ledger);
+    }
+
+    public static CustomerUpdateRequest customerUpdate() {
+        return new CustomerUpdateRequest()
+                .withEmail("rory.underwood@test.com")
+                .withPhone("07879440890")
+                .withAddress1("Bedford Blues")
+                .withAddress2("Goldington Road")
+                .withCity("Bedford")
+                .withPostcode("MK40 3NF")
+                .withCountry("GBR")
+                .withForename("Rory")
+                .withSurname("Underwood")
+                .withPayeeName("Tony Underwood")
+                .withHasMarketPreference(false)
+                .withDoNotDisturb(true)
+                .withPaymentType(PaymentType.BACS);
+    }
+
+    private static byte[] toJson(Object value) {
+        try {
+            return MAPPER.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
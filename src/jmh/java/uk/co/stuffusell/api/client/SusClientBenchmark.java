@@ -0,0 +1,129 @@
+package uk.co.stuffusell.api.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import uk.co.stuffusell.api.client.util.ObjectMapperFactory;
+import uk.co.stuffusell.api.common.CustomerOrderDto;
+import uk.co.stuffusell.api.common.PageDto;
+import uk.co.stuffusell.api.common.StockItemDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole calls through {@link SusClient}, from building the URI to reading the response, against an in-process
+ * server that answers immediately so the client's own overhead dominates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SusClientBenchmark {
+    // Stock pages are the largest responses the client reads
+    private static final int STOCK_PAGE_SIZE = 1000;
+
+    @Param({"10", "100"})
+    private int size;
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private SusClient client;
+    private CloseableHttpClient plainClient;
+    private ObjectMapper objectMapper;
+    private JavaType stockPageType;
+    private String stockPageUri;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] categories = "[\"Books\",\"Clothing\",\"Electronics\",\"Toys\"]".getBytes(StandardCharsets.UTF_8);
+        byte[] orders = Fixtures.orders(size);
+        byte[] stockPage = Fixtures.stockPage(STOCK_PAGE_SIZE);
+
+        // Without this the stub server's replies wait on delayed ACKs and swamp what is being measured
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        serverExecutor = Executors.newFixedThreadPool(4);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/customer/categories", exchange -> respond(exchange, categories));
+        server.createContext("/api/customer/orders", exchange -> respond(exchange, orders));
+        server.createContext("/api/stock/list", exchange -> respond(exchange, stockPage));
+        server.start();
+
+        String endpoint = "http://localhost:" + server.getAddress().getPort();
+        client = SusClient.make(new Configuration()
+                .withEndpoint(endpoint)
+                .withAccessToken("benchmark"));
+        plainClient = HttpClients.createDefault();
+        objectMapper = ObjectMapperFactory.make();
+        stockPageType = objectMapper.constructType(new TypeReference<PageDto<StockItemDto>>() {
+        });
+        stockPageUri = endpoint + "/api/stock/list?page=0&pageSize=" + STOCK_PAGE_SIZE;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        plainClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<String> categories() {
+        return client.categories();
+    }
+
+    @Benchmark
+    public List<CustomerOrderDto> orders() {
+        return client.orders("auth-token");
+    }
+
+    /**
+     * A large stock page read by the client, parsed from the entity stream through the replay buffer
+     */
+    @Benchmark
+    public PageDto<StockItemDto> stockPage() {
+        return client.getStock("auth-token", 0, STOCK_PAGE_SIZE);
+    }
+
+    /**
+     * The same page read as the client read responses before they were parsed from the stream: the entity is
+     * copied into a String, which is then parsed. The baseline for {@link #stockPage()}.
+     */
+    @Benchmark
+    public PageDto<StockItemDto> stockPageViaString() throws IOException {
+        try (CloseableHttpResponse response = plainClient.execute(new HttpGet(stockPageUri))) {
+            return objectMapper.readValue(EntityUtils.toString(response.getEntity()), stockPageType);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
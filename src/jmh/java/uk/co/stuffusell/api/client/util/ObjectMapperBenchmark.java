@@ -0,0 +1,98 @@
+package uk.co.stuffusell.api.client.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.co.stuffusell.api.client.Fixtures;
+import uk.co.stuffusell.api.client.client.JsonCodec;
+import uk.co.stuffusell.api.common.CustomerOrderDto;
+import uk.co.stuffusell.api.common.LedgerDto;
+import uk.co.stuffusell.api.common.PageDto;
+import uk.co.stuffusell.api.common.StockItemDto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the larger responses with the client's object mapper
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ObjectMapperBenchmark {
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private JavaType ordersType;
+    private JavaType stockPageType;
+    private ObjectReader ordersReader;
+    private byte[] orders;
+    private byte[] stockPage;
+    private byte[] ledger;
+
+    @Setup
+    public void setUp() {
+        objectMapper = ObjectMapperFactory.make();
+        ordersType = objectMapper.constructType(new TypeReference<List<CustomerOrderDto>>() {
+        });
+        stockPageType = objectMapper.constructType(new TypeReference<PageDto<StockItemDto>>() {
+        });
+        ordersReader = new JsonCodec(objectMapper).reader(ordersType);
+        orders = Fixtures.orders(size);
+        stockPage = Fixtures.stockPage(size);
+        ledger = Fixtures.ledger(size);
+    }
+
+    @Benchmark
+    public List<CustomerOrderDto> readOrders() throws IOException {
+        return read(orders, ordersType);
+    }
+
+    /**
+     * Reading with the reader the client keeps for the response type
+     */
+    @Benchmark
+    public List<CustomerOrderDto> readOrdersWithReader() throws IOException {
+        try (JsonParser parser = ordersReader.createParser(new ByteArrayInputStream(orders))) {
+            return ordersReader.readValue(parser);
+        }
+    }
+
+    /**
+     * Reading via an intermediate String, as responses were read before they were parsed from the stream
+     */
+    @Benchmark
+    public List<CustomerOrderDto> readOrdersViaString() throws IOException {
+        return objectMapper.readValue(new String(orders, StandardCharsets.UTF_8), ordersType);
+    }
+
+    @Benchmark
+    public PageDto<StockItemDto> readStockPage() throws IOException {
+        return read(stockPage, stockPageType);
+    }
+
+    @Benchmark
+    public LedgerDto readLedger() throws IOException {
+        return read(ledger, objectMapper.constructType(LedgerDto.class));
+    }
+
+    private <T> T read(byte[] body, JavaType type) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteArrayInputStream(body))) {
+            return objectMapper.readValue(parser, type);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package uk.co.stuffusell.api.client.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link QueryEscaper} against the pair of regular expressions it replaced, for plain text and for text full of
+ * query syntax
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QueryEscaperBenchmark {
+    private static final String ESCAPABLE_CHARS = "([+-=!()\\{\\}\\[\\]^\\\\\"~*?:\\/]|&&|\\|\\|)";
+    private static final String INVALID_CHARS = "([\\<\\>])";
+
+    @Param({
+            "vintage leather satchel bag",
+            "title:(vintage && \"leather bag\") || price:[10 TO 50] <b>sale</b>"})
+    private String query;
+
+    @Benchmark
+    public String escape() {
+        return QueryEscaper.escape(query);
+    }
+
+    @Benchmark
+    public String escapeRegex() {
+        return query.replaceAll(INVALID_CHARS, "").replaceAll(ESCAPABLE_CHARS, "\\\\$1");
+    }
+}
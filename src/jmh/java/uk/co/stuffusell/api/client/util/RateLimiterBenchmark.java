@@ -0,0 +1,46 @@
+package uk.co.stuffusell.api.client.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of taking a permit when many threads share the limiter. The rate is set high enough that no caller
+ * ever has to wait, so this measures contention on the limiter itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimiterBenchmark {
+    private RateLimiter rateLimiter;
+
+    @Setup
+    public void setUp() {
+        rateLimiter = new RateLimiter(1_000_000_000, 1_000_000);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long reserveUncontended() {
+        return rateLimiter.reserve();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long reserveContended() {
+        return rateLimiter.reserve();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long reserveHighlyContended() {
+        return rateLimiter.reserve();
+    }
+}
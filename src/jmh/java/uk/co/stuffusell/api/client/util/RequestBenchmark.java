@@ -0,0 +1,57 @@
+package uk.co.stuffusell.api.client.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.co.stuffusell.api.client.Fixtures;
+import uk.co.stuffusell.api.common.CustomerUpdateRequest;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a request: the JSON payload and the query string
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestBenchmark {
+    private ObjectMapper objectMapper;
+    private RequestParameterMapper parameterMapper;
+    private CustomerUpdateRequest customerUpdate;
+    private Map<String, String> parameters;
+
+    @Setup
+    public void setUp() {
+        objectMapper = ObjectMapperFactory.make();
+        parameterMapper = new RequestParameterMapper();
+        customerUpdate = Fixtures.customerUpdate();
+        parameters = ImmutableMap.of(
+                "page", "3",
+                "pageSize", "100",
+                "username", "john.doe+sus@test.com",
+                "query", "leather bag & satchel");
+    }
+
+    @Benchmark
+    public byte[] writePayload() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(customerUpdate);
+    }
+
+    @Benchmark
+    public String writeQueryString() {
+        return parameterMapper.write(parameters);
+    }
+
+    @Benchmark
+    public String writeObjectQueryString() {
+        return parameterMapper.write(customerUpdate);
+    }
+}
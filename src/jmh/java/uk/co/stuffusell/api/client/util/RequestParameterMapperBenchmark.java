@@ -0,0 +1,137 @@
+package uk.co.stuffusell.api.client.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.co.stuffusell.api.client.Fixtures;
+import uk.co.stuffusell.api.common.CustomerUpdateRequest;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RequestParameterMapper} against the reflective implementation it replaced
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RequestParameterMapperBenchmark {
+    private RequestParameterMapper mapper;
+    private ReflectiveMapper reflectiveMapper;
+    private CustomerUpdateRequest request;
+    private URL url;
+
+    @Setup
+    public void setUp() throws MalformedURLException {
+        mapper = new RequestParameterMapper();
+        reflectiveMapper = new ReflectiveMapper();
+        request = Fixtures.customerUpdate();
+        url = new URL("https://seller.stuffusell.co.uk/api/customer/update"
+                + "?email=rory.underwood%40test.com&phone=07879440890&city=Bedford&postcode=MK40%203NF&forename=Rory");
+    }
+
+    @Benchmark
+    public Map<String, String> writeToMap() {
+        return mapper.writeToMap(request);
+    }
+
+    @Benchmark
+    public Map<String, String> writeToMapReflective() {
+        return reflectiveMapper.writeToMap(request);
+    }
+
+    @Benchmark
+    public CustomerUpdateRequest read() {
+        return mapper.read(url, CustomerUpdateRequest.class);
+    }
+
+    @Benchmark
+    public CustomerUpdateRequest readViaJson() throws IOException {
+        return reflectiveMapper.read(url, CustomerUpdateRequest.class);
+    }
+
+    /**
+     * The mapper as it was: fields looked up, made accessible and renamed on every call, and queries read by
+     * writing them out as JSON and parsing that
+     */
+    private static final class ReflectiveMapper {
+        private static final PropertyNamingStrategy.SnakeCaseStrategy STRATEGY =
+                new PropertyNamingStrategy.SnakeCaseStrategy();
+
+        private final ObjectMapper objectMapper = ObjectMapperFactory.make();
+
+        private Map<String, String> writeToMap(Object object) {
+            try {
+                Map<String, String> values = new LinkedHashMap<>();
+                for (Field field : getDeclaredFields(object.getClass())) {
+                    field.setAccessible(true);
+                    Object value = field.get(object);
+                    if (value == null || Modifier.isTransient(field.getModifiers())) {
+                        continue;
+                    }
+                    if (value instanceof Collection) {
+                        Collection<?> collection = (Collection<?>) value;
+                        if (!collection.isEmpty()) {
+                            values.put(STRATEGY.translate(field.getName()), join(collection));
+                        }
+                    } else {
+                        values.put(STRATEGY.translate(field.getName()), String.valueOf(value));
+                    }
+                }
+                return values;
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private <T> T read(URL url, Class<T> type) throws IOException {
+            Map<String, Object> params = new LinkedHashMap<>();
+            for (String pair : url.getQuery().split("&")) {
+                int idx = pair.indexOf('=');
+                params.put(
+                        URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+            }
+            return objectMapper.readValue(objectMapper.writeValueAsString(params), type);
+        }
+
+        private static String join(Collection<?> collection) {
+            StringBuilder sb = new StringBuilder();
+            for (Object item : collection) {
+                if (sb.length() > 0) {
+                    sb.append(",");
+                }
+                sb.append(item);
+            }
+            return sb.toString();
+        }
+
+        private static List<Field> getDeclaredFields(Class<?> type) {
+            List<Field> fields = new ArrayList<>();
+            Class<?> clazz = type;
+            while (!clazz.equals(Object.class)) {
+                fields.addAll(Arrays.asList(clazz.getDeclaredFields()));
+                clazz = clazz.getSuperclass();
+            }
+            return fields;
+        }
+    }
+}
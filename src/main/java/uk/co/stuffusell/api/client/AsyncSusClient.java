@@ -0,0 +1,410 @@
+package uk.co.stuffusell.api.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.google.common.collect.ImmutableMap;
+import uk.co.stuffusell.api.client.client.AsyncHttpClient;
+import uk.co.stuffusell.api.client.client.Deadline;
+import uk.co.stuffusell.api.client.client.JsonCodec;
+import uk.co.stuffusell.api.client.client.RequestContext;
+import uk.co.stuffusell.api.common.BookCourierRequest;
+import uk.co.stuffusell.api.common.CustomerDto;
+import uk.co.stuffusell.api.common.CustomerOrderDto;
+import uk.co.stuffusell.api.common.CustomerOrderUpdateRequest;
+import uk.co.stuffusell.api.common.CustomerUpdateRequest;
+import uk.co.stuffusell.api.common.DateListDto;
+import uk.co.stuffusell.api.common.InvoiceDto;
+import uk.co.stuffusell.api.common.LedgerDto;
+import uk.co.stuffusell.api.common.ListingReportDto;
+import uk.co.stuffusell.api.common.LoginRequest;
+import uk.co.stuffusell.api.common.LoginResponse;
+import uk.co.stuffusell.api.common.PackagingRequestDto;
+import uk.co.stuffusell.api.common.PackagingType;
+import uk.co.stuffusell.api.common.PageDto;
+import uk.co.stuffusell.api.common.PasswordResetRequest;
+import uk.co.stuffusell.api.common.PasswordResetRequestRequest;
+import uk.co.stuffusell.api.common.PricingChangedResponse;
+import uk.co.stuffusell.api.common.PricingDto;
+import uk.co.stuffusell.api.common.RegistrationRequest;
+import uk.co.stuffusell.api.common.RegistrationResponse;
+import uk.co.stuffusell.api.common.SalesTickerResponse;
+import uk.co.stuffusell.api.common.StockItemDto;
+import uk.co.stuffusell.api.common.StockReportSummaryDto;
+import uk.co.stuffusell.api.common.SuccessResponse;
+import uk.co.stuffusell.api.common.UserNameAvailableResponse;
+import uk.co.stuffusell.api.common.consignment.ConsignmentDto;
+import uk.co.stuffusell.api.common.consignment.ConsignmentsDto;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking SUS SDK entry point. Mirrors {@link SusClient} but every call returns immediately with a future that
+ * completes with the response, or exceptionally with a {@link SusException}, once the server has replied.
+ * <p>
+ * The remote ip address and user agent set on the calling thread's {@link RequestContext} are captured, and the
+ * context cleared, when the call is made, unless the client is a view made with
+ * {@link #withRequestContext(RequestContext)}.
+ */
+public final class AsyncSusClient {
+    private static final TypeReference<List<String>> STRINGS =
+            new TypeReference<List<String>>() {
+            };
+    private static final TypeReference<List<CustomerOrderDto>> ORDERS =
+            new TypeReference<List<CustomerOrderDto>>() {
+            };
+    private static final TypeReference<List<PackagingRequestDto>> PACKAGING_REQUESTS =
+            new TypeReference<List<PackagingRequestDto>>() {
+            };
+    private static final TypeReference<List<ListingReportDto>> LISTING_REPORTS =
+            new TypeReference<List<ListingReportDto>>() {
+            };
+    private static final TypeReference<PageDto<StockItemDto>> STOCK_PAGE =
+            new TypeReference<PageDto<StockItemDto>>() {
+            };
+    private static final TypeReference<PageDto<InvoiceDto>> INVOICE_PAGE =
+            new TypeReference<PageDto<InvoiceDto>>() {
+            };
+
+    private final AsyncHttpClient client;
+    private final RequestContext requestContext;
+
+    private AsyncSusClient(Configuration configuration) {
+        JsonCodec codec = JsonCodec.make(configuration);
+        if (configuration.isEagerJsonBinding()) {
+            codec.prepare(AsyncSusClient.class);
+        }
+        this.client = new AsyncHttpClient(configuration, codec);
+        this.requestContext = null;
+    }
+
+    private AsyncSusClient(AsyncHttpClient client, RequestContext requestContext) {
+        this.client = client;
+        this.requestContext = requestContext;
+    }
+
+    /**
+     * Get an asynchronous SUS instance for your given api key.
+     *
+     * @param accessToken your client id
+     * @return a SUS instance
+     */
+    public static AsyncSusClient make(String accessToken) {
+        return new AsyncSusClient(new Configuration()
+                .withAccessToken(accessToken));
+    }
+
+    /**
+     * Get an asynchronous SUS instance for your given configuration.
+     *
+     * @param configuration your client id
+     * @return a SUS instance
+     */
+    public static AsyncSusClient make(Configuration configuration) {
+        return new AsyncSusClient(configuration);
+    }
+
+    /**
+     * Get a view of this client whose calls must complete within the given time, measured from now. Calls not
+     * complete by then fail with a {@link DeadlineExceededException}. The view shares this client's connections and
+     * limits.
+     *
+     * @param timeout the time allowed
+     * @return a SUS instance bound to the deadline
+     */
+    public AsyncSusClient withDeadline(Duration timeout) {
+        return new AsyncSusClient(client.withDeadline(Deadline.after(timeout)), requestContext);
+    }
+
+    /**
+     * Get a view of this client whose calls are made for the end user in the given context, instead of the one set
+     * on the calling thread. The view shares this client's connections and limits.
+     *
+     * @param requestContext the end user's ip address and user agent, its auth token is ignored
+     * @return a SUS instance bound to the context
+     */
+    public AsyncSusClient withRequestContext(RequestContext requestContext) {
+        return new AsyncSusClient(client, requestContext);
+    }
+
+    /**
+     * Get the state of each circuit used so far, for health checks and dashboards.
+     *
+     * @return the states by circuit name, empty if the circuit breaker is disabled
+     */
+    public Map<String, CircuitState> getCircuitStates() {
+        return client.getCircuitStates();
+    }
+
+    public CompletableFuture<UserNameAvailableResponse> isUsenameAvailable(String username) {
+        return client.get(
+                "/api/customer/username-available",
+                ImmutableMap.of("username", username),
+                UserNameAvailableResponse.class,
+                context());
+    }
+
+    public CompletableFuture<RegistrationResponse> register(RegistrationRequest registrationRequest) {
+        return client.post(
+                "/api/customer/register",
+                registrationRequest,
+                RegistrationResponse.class,
+                context());
+    }
+
+    public CompletableFuture<SuccessResponse> passwordResetRequest(PasswordResetRequestRequest request) {
+        return client.post(
+                "/api/customer/password-reset-request",
+                request,
+                SuccessResponse.class,
+                context());
+    }
+
+    public CompletableFuture<LoginResponse> passwordReset(PasswordResetRequest request) {
+        return client.post(
+                "/api/customer/password-reset",
+                request,
+                LoginResponse.class,
+                context());
+    }
+
+    public CompletableFuture<SalesTickerResponse> salesTicker() {
+        return client.get(
+                "/api/customer/sales-ticker",
+                Collections.emptyMap(),
+                SalesTickerResponse.class,
+                context());
+    }
+
+    public CompletableFuture<List<String>> categories() {
+        return client.get(
+                "/api/customer/categories",
+                Collections.emptyMap(),
+                STRINGS,
+                context());
+    }
+
+    public CompletableFuture<DateListDto> getAvailableShippingDates() {
+        return client.get(
+                "/api/customer/shipping-dates",
+                Collections.emptyMap(),
+                DateListDto.class,
+                context());
+    }
+
+    public CompletableFuture<LoginResponse> login(String username, String password) {
+        return client.post(
+                "/api/customer/login",
+                new LoginRequest(username, password),
+                LoginResponse.class,
+                context());
+    }
+
+    public CompletableFuture<Void> logout(String authToken) {
+        return client.get(
+                "/api/customer/logout",
+                Collections.emptyMap(),
+                SuccessResponse.class,
+                context(authToken))
+                .thenAccept(ignore -> {
+                });
+    }
+
+    public CompletableFuture<CustomerDto> current(String authToken) {
+        return client.get(
+                "/api/customer/current",
+                Collections.emptyMap(),
+                CustomerDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<PricingDto> pricing(String authToken) {
+        return client.get(
+                "/api/customer/pricing",
+                Collections.emptyMap(),
+                PricingDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<LoginResponse> update(String authToken, CustomerUpdateRequest request) {
+        return client.post(
+                "/api/customer/update",
+                request,
+                LoginResponse.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<PricingChangedResponse> pricingChanged(String authToken) {
+        return client.post(
+                "/api/customer/pricing-changed",
+                Collections.emptyMap(),
+                PricingChangedResponse.class,
+                true,
+                context(authToken));
+    }
+
+    public CompletableFuture<CustomerOrderDto> newOrder(String authToken, boolean tcsAccepted, String ipAddress) {
+        return client.post(
+                "/api/customer/new-order",
+                ImmutableMap.of("ipAddress", tcsAccepted ? ipAddress : ""),
+                CustomerOrderDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<List<CustomerOrderDto>> orders(String authToken) {
+        return client.get(
+                "/api/customer/orders",
+                Collections.emptyMap(),
+                ORDERS,
+                context(authToken));
+    }
+
+    public CompletableFuture<CustomerOrderDto> getOrder(String authToken, String sku) {
+        return client.get(
+                "/api/customer/order/" + sku,
+                Collections.emptyMap(),
+                CustomerOrderDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<SuccessResponse> updateOrder(
+            String authToken, String sku, CustomerOrderUpdateRequest request) {
+        return client.post(
+                "/api/customer/order/" + sku + "/update",
+                request,
+                SuccessResponse.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<List<String>> getCollectPlusLabelNumbers(String authToken, String sku) {
+        return client.get(
+                "/api/customer/order/" + sku + "/collect-plus-label-numbers",
+                Collections.emptyMap(),
+                STRINGS,
+                context(authToken));
+    }
+
+    public CompletableFuture<SuccessResponse> bookCourier(String authToken, String sku, BookCourierRequest request) {
+        return client.post(
+                "/api/customer/order/" + sku + "/book-courier",
+                request,
+                SuccessResponse.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<List<PackagingRequestDto>> getPackagingRequests(String authToken, String sku) {
+        return client.get(
+                "/api/customer/order/" + sku + "/packaging-request",
+                Collections.emptyMap(),
+                PACKAGING_REQUESTS,
+                context(authToken));
+    }
+
+    public CompletableFuture<SuccessResponse> updatePackagingRequests(
+            String authToken, String sku, Map<PackagingType, Integer> request) {
+        return client.post(
+                "/api/customer/order/" + sku + "/packaging-request",
+                request,
+                SuccessResponse.class,
+                true,
+                context(authToken));
+    }
+
+    public CompletableFuture<SuccessResponse> requestPayment(String authToken) {
+        return client.post(
+                "/api/customer/customer-payment-request",
+                Collections.emptyMap(),
+                SuccessResponse.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<List<ListingReportDto>> getListingHistory(String authToken, String sku) {
+        return client.get(
+                "/api/customer/order/" + sku + "/listing-history",
+                Collections.emptyMap(),
+                LISTING_REPORTS,
+                context(authToken));
+    }
+
+    public CompletableFuture<StockReportSummaryDto> getStockReportSummary(String authToken) {
+        return client.get(
+                "/api/stock/summary",
+                Collections.emptyMap(),
+                StockReportSummaryDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<ListingReportDto> getStockData(String authToken, String sku) {
+        return client.get(
+                "/api/sku/" + sku,
+                Collections.emptyMap(),
+                ListingReportDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<PageDto<StockItemDto>> getStock(String authToken, int page, int pageSize) {
+        return client.get(
+                "/api/stock/list",
+                ImmutableMap.of("page", String.valueOf(page), "pageSize", String.valueOf(pageSize)),
+                STOCK_PAGE,
+                context(authToken));
+    }
+
+    public CompletableFuture<LedgerDto> getAccountLedger(String authToken) {
+        return client.get(
+                "/api/customer/ledger",
+                Collections.emptyMap(),
+                LedgerDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<PageDto<InvoiceDto>> getInvoices(String authToken, int page, int pageSize) {
+        return client.get(
+                "/api/customer/invoices",
+                ImmutableMap.of("page", String.valueOf(page), "pageSize", String.valueOf(pageSize)),
+                INVOICE_PAGE,
+                context(authToken));
+    }
+
+    public CompletableFuture<LedgerDto> getInvoice(String authToken, String invoiceNumber) {
+        return client.get(
+                "/api/customer/invoice/" + invoiceNumber,
+                Collections.emptyMap(),
+                LedgerDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<LedgerDto> getUninvoiced(String authToken) {
+        return client.get(
+                "/api/customer/ledger/uninvoiced",
+                Collections.emptyMap(),
+                LedgerDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<ConsignmentsDto> getConsignments(String authToken) {
+        return client.get(
+                "/api/consignment/overview",
+                Collections.emptyMap(),
+                ConsignmentsDto.class,
+                context(authToken));
+    }
+
+    public CompletableFuture<ConsignmentDto> getConsignment(String authToken, String consignmentId) {
+        return client.get(
+                "/api/consignment/" + consignmentId,
+                Collections.emptyMap(),
+                ConsignmentDto.class,
+                context(authToken));
+    }
+
+    private RequestContext context() {
+        return context(null);
+    }
+
+    private RequestContext context(String authToken) {
+        return requestContext == null ? RequestContext.take(authToken) : requestContext.forCall(authToken);
+    }
+}
@@ -0,0 +1,17 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Notified as a bulk call works through its keys, e.g. to report progress on a long run
+ */
+public interface BulkProgressListener {
+
+    /**
+     * Called after each key's call completes. Calls run in parallel, so this may be called from several threads at
+     * once and the counts may arrive out of order.
+     *
+     * @param completed the number of keys done, including failures
+     * @param failed    the number of keys that failed
+     * @param total     the number of keys
+     */
+    void onProgress(int completed, int failed, int total);
+}
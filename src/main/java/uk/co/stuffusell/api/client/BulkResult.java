@@ -0,0 +1,47 @@
+package uk.co.stuffusell.api.client;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The outcome of a bulk call, per key. Every key is either in the results or in the failures, in the order the keys
+ * were given.
+ *
+ * @param <T> the result type
+ */
+public class BulkResult<T> {
+    private final Map<String, T> results;
+    private final Map<String, SusException> failures;
+
+    public BulkResult(Map<String, T> results, Map<String, SusException> failures) {
+        this.results = results;
+        this.failures = failures;
+    }
+
+    /**
+     * Get the result for each key whose call succeeded
+     *
+     * @return the results by key
+     */
+    public Map<String, T> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    /**
+     * Get the failure for each key whose call failed
+     *
+     * @return the failures by key, empty if every call succeeded
+     */
+    public Map<String, SusException> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * Did every call succeed
+     *
+     * @return true if there are no failures
+     */
+    public boolean isComplete() {
+        return failures.isEmpty();
+    }
+}
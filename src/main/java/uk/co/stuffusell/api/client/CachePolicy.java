@@ -0,0 +1,71 @@
+package uk.co.stuffusell.api.client;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Controls the cache of reference data responses. Each {@link CachedEndpoint} is cached for its own time to live
+ * and holds at most {@code maximumSize} responses, the least recently used being evicted first. Responses specific
+ * to a customer are cached against their auth token and dropped when a call made with that token changes their
+ * account.
+ * <p>
+ * A cached response is shared by every caller until it expires. Lists such as {@code categories()} are returned
+ * unmodifiable, but response objects such as {@code PricingDto} are returned as they are and must not be modified
+ * by the caller: a change would be seen by every later caller.
+ */
+public class CachePolicy {
+    private static final long DEFAULT_MAXIMUM_SIZE = 1000;
+
+    private final Map<CachedEndpoint, Long> ttlMillis = new EnumMap<>(CachedEndpoint.class);
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    public CachePolicy() {
+        for (CachedEndpoint endpoint : CachedEndpoint.values()) {
+            ttlMillis.put(endpoint, endpoint.getDefaultTtlMillis());
+        }
+    }
+
+    /**
+     * Get the time in milliseconds a response from the endpoint is cached for, 0 if it is not cached
+     *
+     * @param endpoint the endpoint
+     * @return the time to live in milliseconds
+     */
+    public long getTtlMillis(CachedEndpoint endpoint) {
+        return ttlMillis.get(endpoint);
+    }
+
+    /**
+     * Set the time in milliseconds a response from the endpoint is cached for. Defaults to
+     * {@link CachedEndpoint#getDefaultTtlMillis()}.
+     *
+     * @param endpoint  the endpoint
+     * @param ttlMillis the time to live in milliseconds, 0 not to cache the endpoint
+     * @return this instance
+     */
+    public CachePolicy withTtlMillis(CachedEndpoint endpoint, long ttlMillis) {
+        this.ttlMillis.put(endpoint, ttlMillis);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of responses cached for each endpoint. Defaults to 1000.
+     *
+     * @return the maximum size
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Set the maximum number of responses cached for each endpoint. Only endpoints cached per customer hold more
+     * than one response. Defaults to 1000.
+     *
+     * @param maximumSize the maximum size
+     * @return this instance
+     */
+    public CachePolicy withMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        return this;
+    }
+}
@@ -0,0 +1,54 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * A snapshot of the response cache counters since the client was created
+ */
+public class CacheStatistics {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    public CacheStatistics(long hitCount, long missCount, long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+    }
+
+    /**
+     * Get the number of calls answered from the cache
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Get the number of calls that went to the server. Calls that waited on a concurrent fetch of the same response
+     * count as misses but do not make a request of their own.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the number of responses dropped to keep the cache within its maximum size or time to live
+     *
+     * @return the eviction count
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the proportion of calls answered from the cache
+     *
+     * @return the hit rate, 1 if no calls have been made
+     */
+    public double getHitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+}
@@ -0,0 +1,34 @@
+package uk.co.stuffusell.api.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reference endpoints whose responses can be cached, with the time each is cached for by default
+ */
+public enum CachedEndpoint {
+    SALES_TICKER(TimeUnit.MINUTES.toMillis(1), false),
+    CATEGORIES(TimeUnit.HOURS.toMillis(1), false),
+    SHIPPING_DATES(TimeUnit.MINUTES.toMillis(15), false),
+    PRICING(TimeUnit.MINUTES.toMillis(5), true);
+
+    private final long defaultTtlMillis;
+    private final boolean perCustomer;
+
+    CachedEndpoint(long defaultTtlMillis, boolean perCustomer) {
+        this.defaultTtlMillis = defaultTtlMillis;
+        this.perCustomer = perCustomer;
+    }
+
+    public long getDefaultTtlMillis() {
+        return defaultTtlMillis;
+    }
+
+    /**
+     * Is the response specific to the logged in customer, so cached against their auth token
+     *
+     * @return true if the response is per customer
+     */
+    public boolean isPerCustomer() {
+        return perCustomer;
+    }
+}
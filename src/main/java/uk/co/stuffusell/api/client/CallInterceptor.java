@@ -0,0 +1,43 @@
+package uk.co.stuffusell.api.client;
+
+import org.apache.http.client.methods.HttpUriRequest;
+
+import java.lang.reflect.Type;
+
+/**
+ * Wraps a whole call, including any retries. Call interceptors are nested in the order they were registered, the
+ * first registered is the outermost. An interceptor can act before and after the rest of the chain, replace the
+ * result or the failure, or short-circuit the call by returning a result without proceeding, e.g. to serve it from
+ * its own cache.
+ * <pre>
+ * (request, responseType, chain) -&gt; {
+ *     Object cached = cache.get(request.getURI());
+ *     return cached != null ? cached : chain.proceed();
+ * }
+ * </pre>
+ */
+public interface CallInterceptor {
+
+    /**
+     * Make the call
+     *
+     * @param request      the request, with the headers added by the request interceptors
+     * @param responseType the type the response is read as
+     * @param chain        runs the rest of the chain and then the call itself
+     * @return the response, which must be an instance of the response type
+     */
+    Object intercept(HttpUriRequest request, Type responseType, Chain chain);
+
+    /**
+     * The rest of a call
+     */
+    interface Chain {
+
+        /**
+         * Run the next interceptor, or make the call if this is the last
+         *
+         * @return the response
+         */
+        Object proceed();
+    }
+}
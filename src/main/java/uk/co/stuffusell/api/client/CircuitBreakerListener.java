@@ -0,0 +1,16 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Notified when a circuit breaker changes state, e.g. to raise an alert when a circuit opens
+ */
+public interface CircuitBreakerListener {
+
+    /**
+     * Called after a circuit changes state
+     *
+     * @param circuit the circuit name, the endpoint optionally followed by the API path family
+     * @param from    the previous state
+     * @param to      the new state
+     */
+    void onStateChange(String circuit, CircuitState from, CircuitState to);
+}
@@ -0,0 +1,22 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Thrown without sending the request when the circuit breaker for the request's endpoint is open
+ */
+public class CircuitBreakerOpenException extends SusException {
+    private final String circuit;
+
+    public CircuitBreakerOpenException(String circuit) {
+        super("Circuit breaker open for " + circuit);
+        this.circuit = circuit;
+    }
+
+    /**
+     * Get the name of the open circuit
+     *
+     * @return the circuit name
+     */
+    public String getCircuit() {
+        return circuit;
+    }
+}
@@ -0,0 +1,193 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Controls the circuit breaker that sheds load while the SUS endpoint is failing. Calls are counted in windows of
+ * {@code windowSize} calls; once at least {@code minimumCalls} have been made in a window and the proportion that
+ * failed reaches {@code failureRateThreshold}, the circuit opens and calls fail fast with a
+ * {@link CircuitBreakerOpenException}. After {@code openDurationMillis} the circuit half-opens and lets
+ * {@code halfOpenProbes} calls through: if they all succeed it closes, if any fails it opens again.
+ * <p>
+ * The windows tumble rather than slide: once {@code windowSize} calls have been counted the counts start again
+ * from zero, so only the calls since the start of the current window are considered and the failure rate is not
+ * acted on again until {@code minimumCalls} have been made in the new window.
+ * <p>
+ * Connection errors, 5xx responses and calls slower than {@code slowCallThresholdMillis} count as failures.
+ */
+public class CircuitBreakerPolicy {
+    private static final int DEFAULT_FAILURE_RATE_THRESHOLD = 50;
+    private static final int DEFAULT_MINIMUM_CALLS = 20;
+    private static final int DEFAULT_WINDOW_SIZE = 100;
+    private static final int DEFAULT_SLOW_CALL_THRESHOLD_MILLIS = -1;
+    private static final int DEFAULT_OPEN_DURATION_MILLIS = 30000;
+    private static final int DEFAULT_HALF_OPEN_PROBES = 3;
+
+    private int failureRateThreshold = DEFAULT_FAILURE_RATE_THRESHOLD;
+    private int minimumCalls = DEFAULT_MINIMUM_CALLS;
+    private int windowSize = DEFAULT_WINDOW_SIZE;
+    private int slowCallThresholdMillis = DEFAULT_SLOW_CALL_THRESHOLD_MILLIS;
+    private int openDurationMillis = DEFAULT_OPEN_DURATION_MILLIS;
+    private int halfOpenProbes = DEFAULT_HALF_OPEN_PROBES;
+    private boolean perPathFamily;
+    private CircuitBreakerListener listener;
+
+    /**
+     * Get the percentage of failed calls that opens the circuit. Defaults to 50.
+     *
+     * @return the failure rate percentage
+     */
+    public int getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    /**
+     * Set the percentage of failed calls that opens the circuit. Defaults to 50.
+     *
+     * @param failureRateThreshold the failure rate percentage
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withFailureRateThreshold(int failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+        return this;
+    }
+
+    /**
+     * Get the calls that must be made in a window before the failure rate is acted on. Defaults to 20.
+     *
+     * @return the minimum calls
+     */
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /**
+     * Set the calls that must be made in a window before the failure rate is acted on. Defaults to 20.
+     *
+     * @param minimumCalls the minimum calls
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+        return this;
+    }
+
+    /**
+     * Get the number of calls after which the failure count starts again. Defaults to 100.
+     *
+     * @return the window size
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Set the number of calls after which the failure count starts again. Defaults to 100.
+     *
+     * @param windowSize the window size
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withWindowSize(int windowSize) {
+        this.windowSize = windowSize;
+        return this;
+    }
+
+    /**
+     * Get the duration in milliseconds above which a successful call counts as a failure. Defaults to -1, disabled.
+     *
+     * @return the slow call threshold
+     */
+    public int getSlowCallThresholdMillis() {
+        return slowCallThresholdMillis;
+    }
+
+    /**
+     * Set the duration in milliseconds above which a successful call counts as a failure. Defaults to -1, disabled.
+     *
+     * @param slowCallThresholdMillis the slow call threshold
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withSlowCallThresholdMillis(int slowCallThresholdMillis) {
+        this.slowCallThresholdMillis = slowCallThresholdMillis;
+        return this;
+    }
+
+    /**
+     * Get how long in milliseconds the circuit stays open before probing. Defaults to 30000.
+     *
+     * @return the open duration
+     */
+    public int getOpenDurationMillis() {
+        return openDurationMillis;
+    }
+
+    /**
+     * Set how long in milliseconds the circuit stays open before probing. Defaults to 30000.
+     *
+     * @param openDurationMillis the open duration
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withOpenDurationMillis(int openDurationMillis) {
+        this.openDurationMillis = openDurationMillis;
+        return this;
+    }
+
+    /**
+     * Get the number of probe calls let through while half-open. Defaults to 3.
+     *
+     * @return the probe calls
+     */
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+
+    /**
+     * Set the number of probe calls let through while half-open. Defaults to 3.
+     *
+     * @param halfOpenProbes the probe calls
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withHalfOpenProbes(int halfOpenProbes) {
+        this.halfOpenProbes = halfOpenProbes;
+        return this;
+    }
+
+    /**
+     * Is there a separate circuit for each API path family
+     *
+     * @return true if circuits are per path family
+     */
+    public boolean isPerPathFamily() {
+        return perPathFamily;
+    }
+
+    /**
+     * Set whether each API path family (/api/customer, /api/stock, /api/consignment, ...) has its own circuit so a
+     * failing area of the API does not take the others down with it. Defaults to false, one circuit per endpoint.
+     *
+     * @param perPathFamily true for a circuit per path family
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withPerPathFamily(boolean perPathFamily) {
+        this.perPathFamily = perPathFamily;
+        return this;
+    }
+
+    /**
+     * Get the listener notified of state changes
+     *
+     * @return the listener, may be null
+     */
+    public CircuitBreakerListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Set a listener to be notified when a circuit changes state
+     *
+     * @param listener the listener
+     * @return this instance
+     */
+    public CircuitBreakerPolicy withListener(CircuitBreakerListener listener) {
+        this.listener = listener;
+        return this;
+    }
+}
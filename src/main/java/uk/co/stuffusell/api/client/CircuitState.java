@@ -0,0 +1,19 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * The states of a circuit breaker
+ */
+public enum CircuitState {
+    /**
+     * Requests flow normally and failures are counted
+     */
+    CLOSED,
+    /**
+     * Requests fail fast without being sent
+     */
+    OPEN,
+    /**
+     * A limited number of probe requests are sent to test whether the server has recovered
+     */
+    HALF_OPEN
+}
@@ -0,0 +1,64 @@
+package uk.co.stuffusell.api.client;
+
+import java.util.function.Supplier;
+
+/**
+ * Receives measurements of the calls a client makes, to publish them to a metrics registry. Paths are given as
+ * templates, e.g. {@code /api/customer/order/{sku}} rather than the actual SKU, so they can be used as tags without
+ * creating a series per order.
+ * <p>
+ * Methods are called on the thread making the request, so implementations must be fast and thread safe. Every
+ * method does nothing by default, override those you need.
+ *
+ * @see MicrometerMetrics
+ */
+public interface ClientMetrics {
+
+    /**
+     * Called once when the client is made, so gauges can be registered over its connection pool
+     *
+     * @param statistics reads the current pool statistics
+     */
+    default void bindPool(Supplier<PoolStatistics> statistics) {
+    }
+
+    /**
+     * Called after each attempt at a request, including attempts that are retried
+     *
+     * @param method        the HTTP method
+     * @param path          the path template
+     * @param statusCode    the response status code, 0 if no response was received
+     * @param durationNanos the time from sending the request to reading the whole response
+     * @param requestBytes  the size of the request body as sent
+     * @param responseBytes the size of the response body as read
+     */
+    default void onRequest(
+            String method, String path, int statusCode, long durationNanos, long requestBytes, long responseBytes) {
+    }
+
+    /**
+     * Called before a request is sent again, after a failure or because the server asked the client to slow down
+     *
+     * @param method the HTTP method
+     * @param path   the path template
+     */
+    default void onRetry(String method, String path) {
+    }
+
+    /**
+     * Called when a request has waited for the client side rate limit
+     *
+     * @param waitNanos the time waited
+     */
+    default void onRateLimitWait(long waitNanos) {
+    }
+
+    /**
+     * Called when a GET is answered by an identical request already in flight, instead of being sent
+     *
+     * @param method the HTTP method
+     * @param path   the path template
+     */
+    default void onCoalesced(String method, String path) {
+    }
+}
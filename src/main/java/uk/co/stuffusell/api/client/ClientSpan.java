@@ -0,0 +1,36 @@
+package uk.co.stuffusell.api.client;
+
+import java.util.function.BiConsumer;
+
+/**
+ * The span for one call, see {@link ClientTracer}
+ */
+public interface ClientSpan {
+
+    /**
+     * Add the headers that carry the trace context to the server, e.g. the W3C {@code traceparent} and
+     * {@code tracestate} headers. Called once, before the first attempt.
+     *
+     * @param headers adds a header to the request
+     */
+    default void inject(BiConsumer<String, String> headers) {
+    }
+
+    /**
+     * Called with the time taken by each phase of each attempt. Phases a transport cannot observe are not reported.
+     *
+     * @param phase         the phase
+     * @param durationNanos the time taken
+     */
+    default void onPhase(TracePhase phase, long durationNanos) {
+    }
+
+    /**
+     * Called once when the call completes
+     *
+     * @param statusCode the status code of the last response, 0 if no response was received
+     * @param attempts   the number of attempts made, more than 1 if the request was retried
+     * @param error      the failure, null if the call succeeded
+     */
+    void end(int statusCode, int attempts, Throwable error);
+}
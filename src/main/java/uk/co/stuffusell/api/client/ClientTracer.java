@@ -0,0 +1,22 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Opens a span for each call a client makes, so calls show up in distributed traces. A call is one span however
+ * many times it is attempted.
+ * <p>
+ * The span is started on the thread making the call, so a tracer can take its parent from the current context.
+ *
+ * @see OpenTelemetryTracer
+ */
+public interface ClientTracer {
+
+    /**
+     * Start the span for a call
+     *
+     * @param endpoint the endpoint the call is made to
+     * @param method   the HTTP method
+     * @param path     the path template, e.g. {@code /api/customer/order/{sku}}
+     * @return the span
+     */
+    ClientSpan startSpan(String endpoint, String method, String path);
+}
@@ -1,21 +1,67 @@
 package uk.co.stuffusell.api.client;
 
+import com.fasterxml.jackson.databind.Module;
+
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executor;
 
 public class Configuration {
     private static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
     private static final int DEFAULT_REQUESTS_PER_SECOND = 5;
     private static final int DEFAULT_REQUEST_BURST_SIZE = 20;
+    private static final int DEFAULT_MAX_REQUESTS_PER_SECOND = 50;
+    private static final int DEFAULT_MAX_THROTTLE_RETRIES = 3;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int DEFAULT_PAGE_PREFETCH = 2;
+    private static final int DEFAULT_BULK_CONCURRENCY = 4;
+    private static final int DEFAULT_WARM_UP_CONNECTIONS = 4;
+    private static final int DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS = 2_000;
 
     private final String sdkUserAgent;
     private String userAgent;
     private String endpoint = "https://seller.stuffusell.co.uk";
     private String accessToken;
     private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+    private int maxConnectionsTotal;
+    private int connectionTimeToLiveMillis = -1;
+    private int keepAliveMillis = -1;
+    private int validateAfterInactivityMillis = DEFAULT_VALIDATE_AFTER_INACTIVITY_MILLIS;
+    private int idleConnectionTimeoutMillis = -1;
     private boolean blockTillRateLimitReset;
     private int requestsPerSecond = DEFAULT_REQUESTS_PER_SECOND;
     private int requestBurstSize = DEFAULT_REQUEST_BURST_SIZE;
+    private int rateLimitTimeoutMillis = -1;
+    private int connectTimeoutMillis = -1;
+    private int socketTimeoutMillis = -1;
+    private int connectionRequestTimeoutMillis = -1;
+    private boolean adaptiveRateLimit;
+    private int maxRequestsPerSecond = DEFAULT_MAX_REQUESTS_PER_SECOND;
+    private int maxThrottleRetries = DEFAULT_MAX_THROTTLE_RETRIES;
+    private RetryPolicy retryPolicy = RetryPolicy.none();
+    private CircuitBreakerPolicy circuitBreakerPolicy;
+    private FairSchedulingPolicy fairSchedulingPolicy;
+    private CachePolicy cachePolicy;
+    private int conditionalCacheSize;
+    private boolean requestCoalescing;
+    private boolean responseCompression = true;
+    private int requestCompressionThreshold = -1;
+    private final List<Module> modules = new ArrayList<>();
+    private boolean eagerJsonBinding;
+    private ClientMetrics metrics;
+    private ClientTracer tracer;
+    private final List<RequestInterceptor> requestInterceptors = new ArrayList<>();
+    private final List<ResponseInterceptor> responseInterceptors = new ArrayList<>();
+    private final List<CallInterceptor> callInterceptors = new ArrayList<>();
+    private int warmUpConnections = DEFAULT_WARM_UP_CONNECTIONS;
+    private boolean warmUpOnStart;
+    private Executor executor;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private int pagePrefetch = DEFAULT_PAGE_PREFETCH;
+    private int bulkConcurrency = DEFAULT_BULK_CONCURRENCY;
 
     public Configuration() {
         sdkUserAgent = "sus-api-client-java/" + getVersion();
@@ -78,6 +124,117 @@ public class Configuration {
         return this;
     }
 
+    /**
+     * Get the max connections across all routes, 0 if it is the same as the max connections per route
+     *
+     * @return the max connections in total
+     */
+    public int getMaxConnectionsTotal() {
+        return maxConnectionsTotal;
+    }
+
+    /**
+     * Set the maximum number of connections across all routes. Only worth setting above the max connections per
+     * route if the endpoint is reached through more than one route, e.g. redirects to another host. Defaults to 0,
+     * the same as the max connections per route.
+     *
+     * @param maxConnectionsTotal the max connections in total
+     * @return this instance
+     */
+    public Configuration withMaxConnectionsTotal(int maxConnectionsTotal) {
+        this.maxConnectionsTotal = maxConnectionsTotal;
+        return this;
+    }
+
+    /**
+     * Get the time to live of a pooled connection in milliseconds, -1 if connections live indefinitely
+     *
+     * @return the connection time to live
+     */
+    public int getConnectionTimeToLiveMillis() {
+        return connectionTimeToLiveMillis;
+    }
+
+    /**
+     * Set the time to live of a pooled connection in milliseconds, after which it is closed however recently it was
+     * used. Useful to spread load again after the servers behind the endpoint change. Defaults to -1, no limit.
+     *
+     * @param connectionTimeToLiveMillis the connection time to live
+     * @return this instance
+     */
+    public Configuration withConnectionTimeToLiveMillis(int connectionTimeToLiveMillis) {
+        this.connectionTimeToLiveMillis = connectionTimeToLiveMillis;
+        return this;
+    }
+
+    /**
+     * Get how long an idle connection is kept alive when the server does not say, -1 if indefinitely
+     *
+     * @return the keep-alive in milliseconds
+     */
+    public int getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * Set how long in milliseconds an idle connection is kept for reuse when the response carries no
+     * {@code Keep-Alive: timeout} header. Set it below the server's idle timeout so the client never reuses a
+     * connection the server has already closed. A timeout given by the server is always honoured. Defaults to -1,
+     * keep indefinitely.
+     *
+     * @param keepAliveMillis the keep-alive in milliseconds
+     * @return this instance
+     */
+    public Configuration withKeepAliveMillis(int keepAliveMillis) {
+        this.keepAliveMillis = keepAliveMillis;
+        return this;
+    }
+
+    /**
+     * Get the idle time in milliseconds after which a pooled connection is checked before it is reused
+     *
+     * @return the idle time before validation
+     */
+    public int getValidateAfterInactivityMillis() {
+        return validateAfterInactivityMillis;
+    }
+
+    /**
+     * Set the idle time in milliseconds after which a pooled connection is checked to be still open before it is
+     * reused. The check costs a read with a short timeout, so lower values trade latency for fewer failures on
+     * connections the server has closed. Set to -1 never to check. Defaults to 2000.
+     *
+     * @param validateAfterInactivityMillis the idle time before validation
+     * @return this instance
+     */
+    public Configuration withValidateAfterInactivityMillis(int validateAfterInactivityMillis) {
+        this.validateAfterInactivityMillis = validateAfterInactivityMillis;
+        return this;
+    }
+
+    /**
+     * Get the idle time in milliseconds after which the pool closes a connection, -1 if idle connections are kept
+     *
+     * @return the idle connection timeout
+     */
+    public int getIdleConnectionTimeoutMillis() {
+        return idleConnectionTimeoutMillis;
+    }
+
+    /**
+     * Set the idle time in milliseconds after which a pooled connection is closed. A background thread closes
+     * idle connections, and connections past their keep-alive or time to live, so they are not found dead when
+     * next leased. The thread runs until the client is closed. Set to -1 to keep idle connections and not run the
+     * thread. Defaults to -1.
+     *
+     * @param idleConnectionTimeoutMillis the idle connection timeout
+     * @return this instance
+     */
+    public Configuration withIdleConnectionTimeoutMillis(int idleConnectionTimeoutMillis) {
+        this.idleConnectionTimeoutMillis = idleConnectionTimeoutMillis;
+        return this;
+    }
+
     /**
      * Get the user agent string being to send in the request headers
      *
@@ -164,6 +321,610 @@ public class Configuration {
         return this;
     }
 
+    /**
+     * Get the maximum time in milliseconds to wait for the rate limit, -1 to wait indefinitely
+     *
+     * @return the maximum wait in milliseconds
+     */
+    public int getRateLimitTimeoutMillis() {
+        return rateLimitTimeoutMillis;
+    }
+
+    /**
+     * Set the maximum time in milliseconds a request will wait for the rate limit when blocking till the rate limit
+     * resets. A request that could not be sent within this time fails immediately with a {@link SusException}
+     * rather than waiting. Defaults to -1, wait indefinitely.
+     *
+     * @param rateLimitTimeoutMillis the maximum wait in milliseconds
+     * @return this instance
+     */
+    public Configuration withRateLimitTimeoutMillis(int rateLimitTimeoutMillis) {
+        this.rateLimitTimeoutMillis = rateLimitTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Get the maximum time in milliseconds to establish a connection, -1 to wait indefinitely
+     *
+     * @return the connect timeout in milliseconds
+     */
+    public int getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    /**
+     * Set the maximum time in milliseconds to establish a connection to the server. Defaults to -1.
+     *
+     * @param connectTimeoutMillis the connect timeout in milliseconds, -1 to wait indefinitely
+     * @return this instance
+     */
+    public Configuration withConnectTimeoutMillis(int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Get the maximum time in milliseconds to wait for data from the server, -1 to wait indefinitely
+     *
+     * @return the socket timeout in milliseconds
+     */
+    public int getSocketTimeoutMillis() {
+        return socketTimeoutMillis;
+    }
+
+    /**
+     * Set the maximum time in milliseconds to wait for data once a request has been sent. This bounds the gap
+     * between packets rather than the whole response, use a deadline to bound the whole call. Defaults to -1, so
+     * long downloads such as reports are never cut off.
+     *
+     * @param socketTimeoutMillis the socket timeout in milliseconds, -1 to wait indefinitely
+     * @return this instance
+     */
+    public Configuration withSocketTimeoutMillis(int socketTimeoutMillis) {
+        this.socketTimeoutMillis = socketTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Get the maximum time in milliseconds to wait for a pooled connection, -1 to wait indefinitely
+     *
+     * @return the connection request timeout in milliseconds
+     */
+    public int getConnectionRequestTimeoutMillis() {
+        return connectionRequestTimeoutMillis;
+    }
+
+    /**
+     * Set the maximum time in milliseconds to wait for a connection from the pool when all
+     * {@link #getMaxConnectionsPerRoute()} connections are in use. Defaults to -1.
+     *
+     * @param connectionRequestTimeoutMillis the connection request timeout in milliseconds, -1 to wait indefinitely
+     * @return this instance
+     */
+    public Configuration withConnectionRequestTimeoutMillis(int connectionRequestTimeoutMillis) {
+        this.connectionRequestTimeoutMillis = connectionRequestTimeoutMillis;
+        return this;
+    }
+
+    /**
+     * Is the rate limit adapted to the rate the server allows
+     *
+     * @return true if adaptive
+     */
+    public boolean isAdaptiveRateLimit() {
+        return adaptiveRateLimit;
+    }
+
+    /**
+     * Set whether the client adapts to the server's rate limit. When enabled, throttled (429) requests are delayed
+     * by the server's Retry-After and retried, and RateLimit-Remaining/RateLimit-Reset headers are honoured. When
+     * blocking till the rate limit resets, the permitted rate also starts at the configured requests per second
+     * and then rises towards the maximum requests per second until the server starts throttling. Defaults to
+     * false
+     *
+     * @param adaptiveRateLimit true to adapt, false otherwise
+     * @return this instance
+     */
+    public Configuration withAdaptiveRateLimit(boolean adaptiveRateLimit) {
+        this.adaptiveRateLimit = adaptiveRateLimit;
+        return this;
+    }
+
+    /**
+     * Get the ceiling for the adaptive rate limit. Defaults to 50.
+     *
+     * @return requests per second
+     */
+    public int getMaxRequestsPerSecond() {
+        return maxRequestsPerSecond;
+    }
+
+    /**
+     * Set the ceiling the adaptive rate limit will rise to. Defaults to 50.
+     *
+     * @param maxRequestsPerSecond requests per second
+     * @return this instance
+     */
+    public Configuration withMaxRequestsPerSecond(int maxRequestsPerSecond) {
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        return this;
+    }
+
+    /**
+     * Get the number of times a throttled request is retried when adapting to the rate limit. Defaults to 3.
+     *
+     * @return the maximum retries
+     */
+    public int getMaxThrottleRetries() {
+        return maxThrottleRetries;
+    }
+
+    /**
+     * Set the number of times a throttled request is retried when adapting to the rate limit before the 429 is
+     * reported as a {@link SusServerException}. Defaults to 3.
+     *
+     * @param maxThrottleRetries the maximum retries
+     * @return this instance
+     */
+    public Configuration withMaxThrottleRetries(int maxThrottleRetries) {
+        this.maxThrottleRetries = maxThrottleRetries;
+        return this;
+    }
+
+    /**
+     * Get the policy for retrying failed requests
+     *
+     * @return the retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Set the policy for retrying requests that fail with a connection error or a transient server error. Defaults
+     * to no retries.
+     *
+     * @param retryPolicy the retry policy
+     * @return this instance
+     */
+    public Configuration withRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy == null ? RetryPolicy.none() : retryPolicy;
+        return this;
+    }
+
+    /**
+     * Get the circuit breaker policy
+     *
+     * @return the circuit breaker policy, null if disabled
+     */
+    public CircuitBreakerPolicy getCircuitBreakerPolicy() {
+        return circuitBreakerPolicy;
+    }
+
+    /**
+     * Set the circuit breaker policy. While a circuit is open calls fail fast with a
+     * {@link CircuitBreakerOpenException} instead of waiting on a failing server. Defaults to null, disabled.
+     *
+     * @param circuitBreakerPolicy the circuit breaker policy
+     * @return this instance
+     */
+    public Configuration withCircuitBreakerPolicy(CircuitBreakerPolicy circuitBreakerPolicy) {
+        this.circuitBreakerPolicy = circuitBreakerPolicy;
+        return this;
+    }
+
+    /**
+     * Get the fair scheduling policy
+     *
+     * @return the fair scheduling policy, null if disabled
+     */
+    public FairSchedulingPolicy getFairSchedulingPolicy() {
+        return fairSchedulingPolicy;
+    }
+
+    /**
+     * Set the fair scheduling policy, for a client shared by many customers. Every request, not only those made
+     * when blocking till the rate limit resets, then waits its turn for the rate limit in a queue per customer auth
+     * token and {@link RequestPriority}, and the queues share the rate by weighted fair queuing. Waits are bounded by
+     * the rate limit timeout and any deadline. Applies to {@link SusClient}. Defaults to null, disabled.
+     *
+     * @param fairSchedulingPolicy the fair scheduling policy
+     * @return this instance
+     */
+    public Configuration withFairSchedulingPolicy(FairSchedulingPolicy fairSchedulingPolicy) {
+        this.fairSchedulingPolicy = fairSchedulingPolicy;
+        return this;
+    }
+
+    /**
+     * Get the response cache policy
+     *
+     * @return the cache policy, null if disabled
+     */
+    public CachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * Set the response cache policy. Reference data such as categories, shipping dates and pricing is then served
+     * from memory until it expires. Defaults to null, disabled.
+     *
+     * @param cachePolicy the cache policy
+     * @return this instance
+     */
+    public Configuration withCachePolicy(CachePolicy cachePolicy) {
+        this.cachePolicy = cachePolicy;
+        return this;
+    }
+
+    /**
+     * Get the number of GET responses kept for revalidation, 0 if conditional requests are disabled
+     *
+     * @return the conditional cache size
+     */
+    public int getConditionalCacheSize() {
+        return conditionalCacheSize;
+    }
+
+    /**
+     * Set the number of GET responses kept, with their ETag and Last-Modified validators, for revalidation. A
+     * repeated GET sends If-None-Match and If-Modified-Since and, if the server replies 304 Not Modified, returns
+     * the object read from the earlier response without downloading or parsing it again. That object is shared
+     * between callers so should not be modified. Defaults to 0, disabled.
+     *
+     * @param conditionalCacheSize the conditional cache size
+     * @return this instance
+     */
+    public Configuration withConditionalCacheSize(int conditionalCacheSize) {
+        this.conditionalCacheSize = conditionalCacheSize;
+        return this;
+    }
+
+    /**
+     * Whether identical GETs in flight at the same time share one request
+     *
+     * @return true if requests are coalesced
+     */
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * Share one request between identical GETs in flight at the same time: same path, parameters, auth token and
+     * response type. The first caller makes the request and the others wait for it, so they take no rate limit
+     * token or connection of their own, and get its response or its failure. Nothing is kept once the request
+     * completes. The response object is shared between the callers so should not be modified. Applies to
+     * {@link SusClient}. Defaults to false.
+     *
+     * @param requestCoalescing true to coalesce requests
+     * @return this instance
+     */
+    public Configuration withRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+        return this;
+    }
+
+    /**
+     * Are compressed responses requested
+     *
+     * @return true if responses may be compressed
+     */
+    public boolean isResponseCompression() {
+        return responseCompression;
+    }
+
+    /**
+     * Set whether the client asks for compressed responses. Compressed responses are decompressed transparently.
+     * Defaults to true.
+     *
+     * @param responseCompression true to request compressed responses, false otherwise
+     * @return this instance
+     */
+    public Configuration withResponseCompression(boolean responseCompression) {
+        this.responseCompression = responseCompression;
+        return this;
+    }
+
+    /**
+     * Get the request body size in bytes from which bodies are gzip compressed, -1 if they are never compressed
+     *
+     * @return the compression threshold in bytes
+     */
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /**
+     * Set the request body size in bytes from which bodies are sent gzip compressed. Only enable this if the server
+     * accepts compressed requests. Defaults to -1, never compress.
+     *
+     * @param requestCompressionThreshold the compression threshold in bytes, -1 never to compress
+     * @return this instance
+     */
+    public Configuration withRequestCompressionThreshold(int requestCompressionThreshold) {
+        this.requestCompressionThreshold = requestCompressionThreshold;
+        return this;
+    }
+
+    /**
+     * Get the additional Jackson modules registered with the client's object mapper
+     *
+     * @return the modules
+     */
+    public List<Module> getModules() {
+        return Collections.unmodifiableList(modules);
+    }
+
+    /**
+     * Register an additional Jackson module with the client's object mapper. Use this to plug in a module that
+     * speeds up binding, such as Blackbird or Afterburner, if it is on the class path.
+     *
+     * @param module the module
+     * @return this instance
+     */
+    public Configuration withModule(Module module) {
+        this.modules.add(module);
+        return this;
+    }
+
+    /**
+     * Whether the readers and writers for every request and response type are built when the client is made
+     *
+     * @return true if JSON binding is prepared eagerly
+     */
+    public boolean isEagerJsonBinding() {
+        return eagerJsonBinding;
+    }
+
+    /**
+     * Build the readers and writers for every request and response type when the client is made, so the first
+     * call of each kind does not pay for introspecting its types. Makes the client slower to create. Defaults to
+     * false, build each on first use.
+     *
+     * @param eagerJsonBinding true to prepare JSON binding eagerly
+     * @return this instance
+     */
+    public Configuration withEagerJsonBinding(boolean eagerJsonBinding) {
+        this.eagerJsonBinding = eagerJsonBinding;
+        return this;
+    }
+
+    /**
+     * Get the receiver of the client's metrics, null if none
+     *
+     * @return the metrics
+     */
+    public ClientMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Set the receiver of the client's metrics: per endpoint latency, body sizes and status codes, retries, rate
+     * limit waits and connection pool gauges. Use {@link MicrometerMetrics} to publish them to Micrometer. Defaults
+     * to null, nothing is measured.
+     *
+     * @param metrics the metrics
+     * @return this instance
+     */
+    public Configuration withMetrics(ClientMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Get the tracer that opens a span for each call, null if none
+     *
+     * @return the tracer
+     */
+    public ClientTracer getTracer() {
+        return tracer;
+    }
+
+    /**
+     * Set the tracer that opens a span for each call, propagates the trace context to the server and records where
+     * the time went. Use {@link OpenTelemetryTracer} to trace with OpenTelemetry. Defaults to null, calls are not
+     * traced.
+     *
+     * @param tracer the tracer
+     * @return this instance
+     */
+    public Configuration withTracer(ClientTracer tracer) {
+        this.tracer = tracer;
+        return this;
+    }
+
+    /**
+     * Get the request interceptors, in the order they run
+     *
+     * @return the request interceptors
+     */
+    public List<RequestInterceptor> getRequestInterceptors() {
+        return Collections.unmodifiableList(requestInterceptors);
+    }
+
+    /**
+     * Add a request interceptor, run after the client has added its own headers and after the request interceptors
+     * already added. Applies to {@link SusClient}.
+     *
+     * @param requestInterceptor the interceptor
+     * @return this instance
+     */
+    public Configuration withRequestInterceptor(RequestInterceptor requestInterceptor) {
+        this.requestInterceptors.add(requestInterceptor);
+        return this;
+    }
+
+    /**
+     * Get the response interceptors, in the order they run
+     *
+     * @return the response interceptors
+     */
+    public List<ResponseInterceptor> getResponseInterceptors() {
+        return Collections.unmodifiableList(responseInterceptors);
+    }
+
+    /**
+     * Add a response interceptor, run after the response interceptors already added. Applies to {@link SusClient}.
+     *
+     * @param responseInterceptor the interceptor
+     * @return this instance
+     */
+    public Configuration withResponseInterceptor(ResponseInterceptor responseInterceptor) {
+        this.responseInterceptors.add(responseInterceptor);
+        return this;
+    }
+
+    /**
+     * Get the call interceptors, outermost first
+     *
+     * @return the call interceptors
+     */
+    public List<CallInterceptor> getCallInterceptors() {
+        return Collections.unmodifiableList(callInterceptors);
+    }
+
+    /**
+     * Add a call interceptor, nested inside the call interceptors already added. Applies to {@link SusClient}.
+     *
+     * @param callInterceptor the interceptor
+     * @return this instance
+     */
+    public Configuration withCallInterceptor(CallInterceptor callInterceptor) {
+        this.callInterceptors.add(callInterceptor);
+        return this;
+    }
+
+    /**
+     * Get the number of connections opened by a warm-up
+     *
+     * @return the number of connections
+     */
+    public int getWarmUpConnections() {
+        return warmUpConnections;
+    }
+
+    /**
+     * Set the number of keep-alive connections a warm-up opens and leaves in the pool, capped at the maximum
+     * connections per route. Defaults to 4.
+     *
+     * @param warmUpConnections the number of connections
+     * @return this instance
+     */
+    public Configuration withWarmUpConnections(int warmUpConnections) {
+        this.warmUpConnections = warmUpConnections;
+        return this;
+    }
+
+    /**
+     * Whether the client warms up in the background when it is made
+     *
+     * @return true if the client warms up on start
+     */
+    public boolean isWarmUpOnStart() {
+        return warmUpOnStart;
+    }
+
+    /**
+     * Warm the client up in the background when it is made, as {@link SusClient#warmUp()} does, so the first calls
+     * after a deploy do not each pay for a connect and TLS handshake. Defaults to false.
+     *
+     * @param warmUpOnStart true to warm up on start
+     * @return this instance
+     */
+    public Configuration withWarmUpOnStart(boolean warmUpOnStart) {
+        this.warmUpOnStart = warmUpOnStart;
+        return this;
+    }
+
+    /**
+     * Get the executor used to run asynchronous work, null if the client manages its own
+     *
+     * @return the executor
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Set the executor used for background work: completing asynchronous requests and prefetching pages for
+     * streamed results. The asynchronous transport multiplexes requests over HTTP/2 so a small pool is enough to
+     * keep many requests in flight. On a runtime with virtual threads a virtual thread per task executor suits the
+     * blocking client too, whose calls keep no per-thread state and wait without holding a monitor. The client
+     * does not shut a configured executor down. Defaults to daemon pools managed by the client, which
+     * {@link SusClient} starts when first needed and stops when it is closed.
+     *
+     * @param executor the executor
+     * @return this instance
+     */
+    public Configuration withExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Get the page size used when streaming paged results. Defaults to 100.
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Set the page size used when streaming paged results. Defaults to 100.
+     *
+     * @param pageSize the page size
+     * @return this instance
+     */
+    public Configuration withPageSize(int pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * Get the number of pages fetched ahead of the consumer when streaming paged results. Defaults to 2.
+     *
+     * @return the number of pages to prefetch
+     */
+    public int getPagePrefetch() {
+        return pagePrefetch;
+    }
+
+    /**
+     * Set the number of pages fetched in the background ahead of the consumer when streaming paged results. Only
+     * the current page and the prefetched pages are held in memory. Set to 0 to fetch each page on demand.
+     * Defaults to 2.
+     *
+     * @param pagePrefetch the number of pages to prefetch
+     * @return this instance
+     */
+    public Configuration withPagePrefetch(int pagePrefetch) {
+        this.pagePrefetch = pagePrefetch;
+        return this;
+    }
+
+    /**
+     * Get the number of calls a bulk call keeps in flight at once
+     *
+     * @return the concurrency
+     */
+    public int getBulkConcurrency() {
+        return bulkConcurrency;
+    }
+
+    /**
+     * Set the number of calls a bulk call, such as {@link SusClient#getOrders(String, java.util.Collection,
+     * BulkProgressListener)}, keeps in flight at once. Capped at the maximum connections per route. Each call still
+     * goes through the rate limit. Defaults to 4.
+     *
+     * @param bulkConcurrency the concurrency
+     * @return this instance
+     */
+    public Configuration withBulkConcurrency(int bulkConcurrency) {
+        this.bulkConcurrency = bulkConcurrency;
+        return this;
+    }
+
     private String getVersion() {
         try {
             Properties versionProperties = new Properties();
@@ -0,0 +1,74 @@
+package uk.co.stuffusell.api.client;
+
+import uk.co.stuffusell.api.common.CustomerDto;
+import uk.co.stuffusell.api.common.CustomerOrderDto;
+import uk.co.stuffusell.api.common.LedgerDto;
+import uk.co.stuffusell.api.common.PricingDto;
+import uk.co.stuffusell.api.common.StockReportSummaryDto;
+import uk.co.stuffusell.api.common.consignment.ConsignmentsDto;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Everything a seller dashboard shows, fetched in one go by {@link SusClient#dashboard(String, java.time.Duration)}.
+ * Each part that could not be fetched is null, with its failure in {@link #getErrors()}.
+ */
+public class Dashboard {
+    private final Map<DashboardPart, Object> parts;
+    private final Map<DashboardPart, SusException> errors;
+
+    public Dashboard(Map<DashboardPart, Object> parts, Map<DashboardPart, SusException> errors) {
+        this.parts = parts.isEmpty() ? Collections.emptyMap() : new EnumMap<>(parts);
+        this.errors = errors.isEmpty() ? Collections.emptyMap() : new EnumMap<>(errors);
+    }
+
+    public CustomerDto getCustomer() {
+        return (CustomerDto) parts.get(DashboardPart.CUSTOMER);
+    }
+
+    public PricingDto getPricing() {
+        return (PricingDto) parts.get(DashboardPart.PRICING);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<CustomerOrderDto> getOrders() {
+        return (List<CustomerOrderDto>) parts.get(DashboardPart.ORDERS);
+    }
+
+    public StockReportSummaryDto getStockReportSummary() {
+        return (StockReportSummaryDto) parts.get(DashboardPart.STOCK_REPORT_SUMMARY);
+    }
+
+    public LedgerDto getAccountLedger() {
+        return (LedgerDto) parts.get(DashboardPart.ACCOUNT_LEDGER);
+    }
+
+    public LedgerDto getUninvoiced() {
+        return (LedgerDto) parts.get(DashboardPart.UNINVOICED);
+    }
+
+    public ConsignmentsDto getConsignments() {
+        return (ConsignmentsDto) parts.get(DashboardPart.CONSIGNMENTS);
+    }
+
+    /**
+     * Get the failure of each part that could not be fetched
+     *
+     * @return the failures by part, empty if every part was fetched
+     */
+    public Map<DashboardPart, SusException> getErrors() {
+        return Collections.unmodifiableMap(errors);
+    }
+
+    /**
+     * Was every part fetched
+     *
+     * @return true if there are no errors
+     */
+    public boolean isComplete() {
+        return errors.isEmpty();
+    }
+}
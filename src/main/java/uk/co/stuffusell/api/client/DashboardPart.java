@@ -0,0 +1,14 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * The calls that make up a seller {@link Dashboard}
+ */
+public enum DashboardPart {
+    CUSTOMER,
+    PRICING,
+    ORDERS,
+    STOCK_REPORT_SUMMARY,
+    ACCOUNT_LEDGER,
+    UNINVOICED,
+    CONSIGNMENTS
+}
@@ -0,0 +1,16 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Thrown when a call does not complete before its deadline. The request, if it was sent, is aborted.
+ */
+public class DeadlineExceededException extends SusException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+
+    public DeadlineExceededException(String message, Throwable cause) {
+        super(message);
+        initCause(cause);
+    }
+}
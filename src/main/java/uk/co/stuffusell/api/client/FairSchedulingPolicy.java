@@ -0,0 +1,73 @@
+package uk.co.stuffusell.api.client;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Shares the client side rate limit fairly between the customers using one client. Calls wait in a queue per
+ * customer auth token and priority class, and are let through at the permitted rate by weighted fair queuing: each
+ * queue gets a share of the rate in proportion to its weight, whatever the number of calls waiting in it, so one
+ * customer's export cannot starve everyone else. A queue's unused share goes to the others.
+ * <p>
+ * Each customer may have at most {@code maxQueuedPerCustomer} calls waiting, further calls fail at once with a
+ * {@link QueueFullException}.
+ */
+public class FairSchedulingPolicy {
+    private static final int DEFAULT_INTERACTIVE_WEIGHT = 8;
+    private static final int DEFAULT_BATCH_WEIGHT = 1;
+    private static final int DEFAULT_MAX_QUEUED_PER_CUSTOMER = 100;
+
+    private final Map<RequestPriority, Integer> weights = new EnumMap<>(RequestPriority.class);
+    private int maxQueuedPerCustomer = DEFAULT_MAX_QUEUED_PER_CUSTOMER;
+
+    public FairSchedulingPolicy() {
+        weights.put(RequestPriority.INTERACTIVE, DEFAULT_INTERACTIVE_WEIGHT);
+        weights.put(RequestPriority.BATCH, DEFAULT_BATCH_WEIGHT);
+    }
+
+    /**
+     * Get the weight of a priority class
+     *
+     * @param priority the priority class
+     * @return the weight
+     */
+    public int getWeight(RequestPriority priority) {
+        return weights.get(priority);
+    }
+
+    /**
+     * Set the weight of a priority class. A queue of a class with twice the weight of another gets twice the share
+     * of the rate limit. Defaults to 8 for interactive calls and 1 for batch calls.
+     *
+     * @param priority the priority class
+     * @param weight   the weight, at least 1
+     * @return this instance
+     */
+    public FairSchedulingPolicy withWeight(RequestPriority priority, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("The weight must be at least 1");
+        }
+        this.weights.put(priority, weight);
+        return this;
+    }
+
+    /**
+     * Get the maximum number of calls a customer may have waiting
+     *
+     * @return the maximum queued calls
+     */
+    public int getMaxQueuedPerCustomer() {
+        return maxQueuedPerCustomer;
+    }
+
+    /**
+     * Set the maximum number of calls a customer may have waiting for the rate limit. Defaults to 100.
+     *
+     * @param maxQueuedPerCustomer the maximum queued calls
+     * @return this instance
+     */
+    public FairSchedulingPolicy withMaxQueuedPerCustomer(int maxQueuedPerCustomer) {
+        this.maxQueuedPerCustomer = maxQueuedPerCustomer;
+        return this;
+    }
+}
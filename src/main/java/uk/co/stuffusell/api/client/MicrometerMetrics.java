@@ -0,0 +1,134 @@
+package uk.co.stuffusell.api.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.http.HttpStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes client metrics to a Micrometer registry. Micrometer is an optional dependency, add
+ * {@code io.micrometer:micrometer-core} to use this class.
+ * <ul>
+ * <li>{@code sus.client.requests}: timer with a percentile histogram, tagged by method, uri, status and outcome</li>
+ * <li>{@code sus.client.request.size} and {@code sus.client.response.size}: body sizes in bytes</li>
+ * <li>{@code sus.client.retries}: counter tagged by method and uri</li>
+ * <li>{@code sus.client.coalesced}: counter of requests answered by an identical request in flight, tagged by
+ * method and uri</li>
+ * <li>{@code sus.client.rate.limit.wait}: timer of the waits for the client side rate limit</li>
+ * <li>{@code sus.client.pool.leased}, {@code .pending}, {@code .available} and {@code .max}: connection pool
+ * gauges, tagged by pool</li>
+ * </ul>
+ * An instance may be shared by several clients. Their request meters are then combined, but each client's
+ * connection pool is reported separately, tagged {@code pool} with 1 for the first client made, 2 for the
+ * second and so on.
+ * <pre>
+ * SusClient.make(new Configuration().withMetrics(new MicrometerMetrics(registry)))
+ * </pre>
+ */
+public class MicrometerMetrics implements ClientMetrics {
+    private static final String PREFIX = "sus.client.";
+
+    private final MeterRegistry registry;
+    private final Timer rateLimitWait;
+    private final AtomicInteger pools = new AtomicInteger();
+
+    public MicrometerMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.rateLimitWait = Timer.builder(PREFIX + "rate.limit.wait")
+                .description("Time spent waiting for the client side rate limit")
+                .register(registry);
+    }
+
+    @Override
+    public void bindPool(Supplier<PoolStatistics> statistics) {
+        String pool = Integer.toString(pools.incrementAndGet());
+        gauge("leased", "Connections in use", pool, statistics, PoolStatistics::getLeased);
+        gauge("pending", "Requests waiting for a connection", pool, statistics, PoolStatistics::getPending);
+        gauge("available", "Idle connections kept for reuse", pool, statistics, PoolStatistics::getAvailable);
+        gauge("max", "Maximum connections", pool, statistics, PoolStatistics::getMax);
+    }
+
+    @Override
+    public void onRequest(
+            String method, String path, int statusCode, long durationNanos, long requestBytes, long responseBytes) {
+        Timer.builder(PREFIX + "requests")
+                .description("SUS API requests")
+                .tag("method", method)
+                .tag("uri", path)
+                .tag("status", statusCode == 0 ? "IO_ERROR" : Integer.toString(statusCode))
+                .tag("outcome", outcome(statusCode))
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder(PREFIX + "request.size")
+                .baseUnit("bytes")
+                .tag("method", method)
+                .tag("uri", path)
+                .register(registry)
+                .record(requestBytes);
+        DistributionSummary.builder(PREFIX + "response.size")
+                .baseUnit("bytes")
+                .tag("method", method)
+                .tag("uri", path)
+                .register(registry)
+                .record(responseBytes);
+    }
+
+    @Override
+    public void onRetry(String method, String path) {
+        Counter.builder(PREFIX + "retries")
+                .description("SUS API requests sent again")
+                .tag("method", method)
+                .tag("uri", path)
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void onCoalesced(String method, String path) {
+        Counter.builder(PREFIX + "coalesced")
+                .description("SUS API requests answered by an identical request in flight")
+                .tag("method", method)
+                .tag("uri", path)
+                .register(registry)
+                .increment();
+    }
+
+    @Override
+    public void onRateLimitWait(long waitNanos) {
+        rateLimitWait.record(waitNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void gauge(
+            String name,
+            String description,
+            String pool,
+            Supplier<PoolStatistics> statistics,
+            ToDoubleFunction<PoolStatistics> value) {
+        Gauge.builder(PREFIX + "pool." + name, statistics, s -> value.applyAsDouble(s.get()))
+                .description(description)
+                .tag("pool", pool)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    private static String outcome(int statusCode) {
+        if (statusCode == 0) {
+            return "UNKNOWN";
+        } else if (statusCode < HttpStatus.SC_MULTIPLE_CHOICES) {
+            return "SUCCESS";
+        } else if (statusCode < HttpStatus.SC_BAD_REQUEST) {
+            return "REDIRECTION";
+        } else if (statusCode < HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+            return "CLIENT_ERROR";
+        }
+        return "SERVER_ERROR";
+    }
+}
@@ -0,0 +1,93 @@
+package uk.co.stuffusell.api.client;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Traces client calls with OpenTelemetry. Each call is a client span, a child of the span current when the call is
+ * made, and the trace context is sent to the server with the configured propagator, W3C {@code traceparent} and
+ * {@code tracestate} by default. The time spent in each {@link TracePhase}, summed over the attempts, is added to
+ * the span as a {@code sus.timing.<phase>_ms} attribute. OpenTelemetry is an optional dependency, add
+ * {@code io.opentelemetry:opentelemetry-api} to use this class.
+ * <pre>
+ * SusClient.make(new Configuration().withTracer(new OpenTelemetryTracer(GlobalOpenTelemetry.get())))
+ * </pre>
+ */
+public class OpenTelemetryTracer implements ClientTracer {
+    private static final String INSTRUMENTATION_NAME = "uk.co.stuffusell.sus-api-client";
+    private static final String[] TIMING_ATTRIBUTES = timingAttributes();
+
+    private final Tracer tracer;
+    private final TextMapPropagator propagator;
+
+    public OpenTelemetryTracer(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+        this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+    }
+
+    @Override
+    public ClientSpan startSpan(String endpoint, String method, String path) {
+        Span span = tracer.spanBuilder(method + ' ' + path)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute("http.method", method)
+                .setAttribute("sus.endpoint", endpoint)
+                .setAttribute("sus.path", path)
+                .startSpan();
+        return new OpenTelemetrySpan(span);
+    }
+
+    private static String[] timingAttributes() {
+        TracePhase[] phases = TracePhase.values();
+        String[] attributes = new String[phases.length];
+        for (TracePhase phase : phases) {
+            attributes[phase.ordinal()] = "sus.timing." + phase.name().toLowerCase(Locale.ROOT) + "_ms";
+        }
+        return attributes;
+    }
+
+    private final class OpenTelemetrySpan implements ClientSpan {
+        private final Span span;
+        private final long[] timings = new long[TIMING_ATTRIBUTES.length];
+
+        private OpenTelemetrySpan(Span span) {
+            this.span = span;
+        }
+
+        @Override
+        public void inject(BiConsumer<String, String> headers) {
+            propagator.inject(Context.current().with(span), headers, BiConsumer::accept);
+        }
+
+        @Override
+        public void onPhase(TracePhase phase, long durationNanos) {
+            timings[phase.ordinal()] += durationNanos;
+        }
+
+        @Override
+        public void end(int statusCode, int attempts, Throwable error) {
+            for (int i = 0; i < timings.length; i++) {
+                if (timings[i] > 0) {
+                    span.setAttribute(TIMING_ATTRIBUTES[i], timings[i] / (double) TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            }
+            if (statusCode > 0) {
+                span.setAttribute("http.status_code", statusCode);
+            }
+            span.setAttribute("sus.attempts", attempts);
+            if (error != null) {
+                span.recordException(error);
+                span.setStatus(StatusCode.ERROR);
+            }
+            span.end();
+        }
+    }
+}
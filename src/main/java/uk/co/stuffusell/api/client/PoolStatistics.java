@@ -0,0 +1,55 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * A snapshot of the connection pool
+ */
+public class PoolStatistics {
+    private final int leased;
+    private final int pending;
+    private final int available;
+    private final int max;
+
+    public PoolStatistics(int leased, int pending, int available, int max) {
+        this.leased = leased;
+        this.pending = pending;
+        this.available = available;
+        this.max = max;
+    }
+
+    /**
+     * Get the number of connections in use by a request
+     *
+     * @return the leased count
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * Get the number of requests waiting for a connection. A non-zero count means the pool is too small for the
+     * load, or the rate limit is letting through more requests than the pool can carry.
+     *
+     * @return the pending count
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * Get the number of idle connections kept for reuse
+     *
+     * @return the available count
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * Get the maximum number of connections the pool opens
+     *
+     * @return the maximum
+     */
+    public int getMax() {
+        return max;
+    }
+}
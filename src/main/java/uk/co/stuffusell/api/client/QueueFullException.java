@@ -0,0 +1,12 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Thrown without sending the request when the customer already has the maximum number of calls waiting for the
+ * rate limit, see {@link FairSchedulingPolicy}
+ */
+public class QueueFullException extends SusException {
+
+    public QueueFullException(String message) {
+        super(message);
+    }
+}
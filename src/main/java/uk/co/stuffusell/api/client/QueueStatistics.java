@@ -0,0 +1,84 @@
+package uk.co.stuffusell.api.client;
+
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * A snapshot of a customer's fair scheduling queue. Customers are identified by a fingerprint of their auth token,
+ * see {@link #customerKey(String)}, so the statistics can be logged or used as metric tags without exposing tokens.
+ */
+public class QueueStatistics {
+    private static final int KEY_LENGTH = 16;
+
+    private final int queued;
+    private final long dispatched;
+    private final Duration totalWait;
+    private final Duration maxWait;
+
+    public QueueStatistics(int queued, long dispatched, Duration totalWait, Duration maxWait) {
+        this.queued = queued;
+        this.dispatched = dispatched;
+        this.totalWait = totalWait;
+        this.maxWait = maxWait;
+    }
+
+    /**
+     * Get the key a customer's statistics are reported under: the first 64 bits of the SHA-256 of their auth token,
+     * in hex. The token cannot be recovered from the key.
+     *
+     * @param authToken the customer's auth token, may be null
+     * @return the key, "" for calls made without an auth token
+     */
+    public static String customerKey(String authToken) {
+        return authToken == null
+                ? ""
+                : Hashing.sha256().hashString(authToken, StandardCharsets.UTF_8).toString().substring(0, KEY_LENGTH);
+    }
+
+    /**
+     * Get the number of calls waiting
+     *
+     * @return the queue depth
+     */
+    public int getQueued() {
+        return queued;
+    }
+
+    /**
+     * Get the number of calls let through
+     *
+     * @return the dispatched count
+     */
+    public long getDispatched() {
+        return dispatched;
+    }
+
+    /**
+     * Get the time the calls let through spent waiting, in total
+     *
+     * @return the total wait
+     */
+    public Duration getTotalWait() {
+        return totalWait;
+    }
+
+    /**
+     * Get the mean time a call let through spent waiting
+     *
+     * @return the mean wait, zero if no call has been let through
+     */
+    public Duration getMeanWait() {
+        return dispatched == 0 ? Duration.ZERO : totalWait.dividedBy(dispatched);
+    }
+
+    /**
+     * Get the longest time a call let through spent waiting
+     *
+     * @return the maximum wait
+     */
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+}
@@ -0,0 +1,19 @@
+package uk.co.stuffusell.api.client;
+
+import org.apache.http.client.methods.HttpUriRequest;
+import uk.co.stuffusell.api.client.client.RequestContext;
+
+/**
+ * Changes a request before it is sent, e.g. to add a header. Request interceptors run once per call, in the order
+ * they were registered, after the client's own headers have been added and before any {@link CallInterceptor}.
+ */
+public interface RequestInterceptor {
+
+    /**
+     * Called before the first attempt of a call
+     *
+     * @param request the request, may be changed
+     * @param context the customer and end user the call is made for
+     */
+    void onRequest(HttpUriRequest request, RequestContext context);
+}
@@ -0,0 +1,15 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * The priority class of a call, used by fair scheduling to share the rate limit, see {@link FairSchedulingPolicy}
+ */
+public enum RequestPriority {
+    /**
+     * A call someone is waiting on, e.g. to render a page. The default.
+     */
+    INTERACTIVE,
+    /**
+     * A call made by background work, e.g. an export. Bulk calls and streamed results are made as batch calls.
+     */
+    BATCH
+}
@@ -0,0 +1,20 @@
+package uk.co.stuffusell.api.client;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+
+/**
+ * Sees each response before the client handles it, e.g. to log it or read a header. Response interceptors run in
+ * the order they were registered, for every response received, so a retried call is seen once per attempt.
+ */
+public interface ResponseInterceptor {
+
+    /**
+     * Called when the status line and headers of a response have been received. The body has not been read, an
+     * interceptor that reads it must replace the entity with a repeatable one.
+     *
+     * @param request  the request
+     * @param response the response
+     */
+    void onResponse(HttpUriRequest request, HttpResponse response);
+}
@@ -0,0 +1,28 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * Notified when the client retries a request, e.g. to count retries in metrics
+ */
+public interface RetryListener {
+
+    /**
+     * Called before a failed request is retried
+     *
+     * @param method        the HTTP method
+     * @param path          the request path
+     * @param retry         the retry number, starting at 1
+     * @param backoffMillis the time in milliseconds the client will wait before retrying
+     * @param cause         the failure being retried
+     */
+    void onRetry(String method, String path, int retry, long backoffMillis, Exception cause);
+
+    /**
+     * Called when a retryable failure is not retried because the global retry budget is exhausted
+     *
+     * @param method the HTTP method
+     * @param path   the request path
+     * @param cause  the failure that will be reported
+     */
+    default void onRetryBudgetExhausted(String method, String path, Exception cause) {
+    }
+}
@@ -0,0 +1,206 @@
+package uk.co.stuffusell.api.client;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Controls how the client retries requests that fail with a connection error or a transient server error.
+ * Only idempotent requests are retried: GET and DELETE requests, and the POST requests the client sends with an
+ * idempotency key. Retries wait an exponentially increasing, fully jittered backoff and then take a rate limit
+ * permit like any other request.
+ * <p>
+ * To stop retries amplifying an outage, retries are also drawn from a budget shared by all calls made through the
+ * client. Every request adds a fraction of a retry to the budget and every retry takes a whole one.
+ */
+public class RetryPolicy {
+    private static final int DEFAULT_MAX_RETRIES = 3;
+    private static final int DEFAULT_INITIAL_BACKOFF_MILLIS = 100;
+    private static final int DEFAULT_MAX_BACKOFF_MILLIS = 5000;
+    private static final double DEFAULT_BACKOFF_MULTIPLIER = 2;
+    private static final double DEFAULT_RETRY_BUDGET_RATIO = 0.2;
+    private static final int DEFAULT_MIN_RETRY_BUDGET = 10;
+
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private int initialBackoffMillis = DEFAULT_INITIAL_BACKOFF_MILLIS;
+    private int maxBackoffMillis = DEFAULT_MAX_BACKOFF_MILLIS;
+    private double backoffMultiplier = DEFAULT_BACKOFF_MULTIPLIER;
+    private double retryBudgetRatio = DEFAULT_RETRY_BUDGET_RATIO;
+    private int minRetryBudget = DEFAULT_MIN_RETRY_BUDGET;
+    private final Set<Integer> retryableStatusCodes = new TreeSet<>(Arrays.asList(502, 503, 504));
+    private RetryListener retryListener;
+
+    /**
+     * Get a policy that never retries
+     *
+     * @return the policy
+     */
+    public static RetryPolicy none() {
+        return new RetryPolicy().withMaxRetries(0);
+    }
+
+    /**
+     * Get the maximum number of times a single call is retried. Defaults to 3.
+     *
+     * @return the maximum retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Set the maximum number of times a single call is retried. Defaults to 3.
+     *
+     * @param maxRetries the maximum retries
+     * @return this instance
+     */
+    public RetryPolicy withMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Get the backoff ceiling in milliseconds before the first retry. Defaults to 100.
+     *
+     * @return the initial backoff
+     */
+    public int getInitialBackoffMillis() {
+        return initialBackoffMillis;
+    }
+
+    /**
+     * Set the backoff ceiling in milliseconds before the first retry. The actual wait is a random time up to this
+     * ceiling. Defaults to 100.
+     *
+     * @param initialBackoffMillis the initial backoff
+     * @return this instance
+     */
+    public RetryPolicy withInitialBackoffMillis(int initialBackoffMillis) {
+        this.initialBackoffMillis = initialBackoffMillis;
+        return this;
+    }
+
+    /**
+     * Get the largest backoff ceiling in milliseconds. Defaults to 5000.
+     *
+     * @return the maximum backoff
+     */
+    public int getMaxBackoffMillis() {
+        return maxBackoffMillis;
+    }
+
+    /**
+     * Set the largest backoff ceiling in milliseconds. Defaults to 5000.
+     *
+     * @param maxBackoffMillis the maximum backoff
+     * @return this instance
+     */
+    public RetryPolicy withMaxBackoffMillis(int maxBackoffMillis) {
+        this.maxBackoffMillis = maxBackoffMillis;
+        return this;
+    }
+
+    /**
+     * Get the factor the backoff ceiling grows by for each retry. Defaults to 2.
+     *
+     * @return the multiplier
+     */
+    public double getBackoffMultiplier() {
+        return backoffMultiplier;
+    }
+
+    /**
+     * Set the factor the backoff ceiling grows by for each retry. Defaults to 2.
+     *
+     * @param backoffMultiplier the multiplier
+     * @return this instance
+     */
+    public RetryPolicy withBackoffMultiplier(double backoffMultiplier) {
+        this.backoffMultiplier = backoffMultiplier;
+        return this;
+    }
+
+    /**
+     * Get the retries added to the global budget for every request. Defaults to 0.2.
+     *
+     * @return the ratio of retries to requests
+     */
+    public double getRetryBudgetRatio() {
+        return retryBudgetRatio;
+    }
+
+    /**
+     * Set the retries added to the global budget for every request, i.e. the proportion of extra load retries may
+     * add. Defaults to 0.2, retries add at most 20% on top of the calls made.
+     *
+     * @param retryBudgetRatio the ratio of retries to requests
+     * @return this instance
+     */
+    public RetryPolicy withRetryBudgetRatio(double retryBudgetRatio) {
+        this.retryBudgetRatio = retryBudgetRatio;
+        return this;
+    }
+
+    /**
+     * Get the retries the global budget starts with. Defaults to 10.
+     *
+     * @return the initial budget
+     */
+    public int getMinRetryBudget() {
+        return minRetryBudget;
+    }
+
+    /**
+     * Set the retries the global budget starts with, so a client that has made few calls can still retry. This is
+     * not a floor: once these retries are spent, further retries are only funded by new requests, so a sustained
+     * outage drains the budget to nothing. Defaults to 10.
+     *
+     * @param minRetryBudget the initial budget
+     * @return this instance
+     */
+    public RetryPolicy withMinRetryBudget(int minRetryBudget) {
+        this.minRetryBudget = minRetryBudget;
+        return this;
+    }
+
+    /**
+     * Get the HTTP status codes that are retried. Defaults to 502, 503 and 504.
+     *
+     * @return the status codes
+     */
+    public Set<Integer> getRetryableStatusCodes() {
+        return retryableStatusCodes;
+    }
+
+    /**
+     * Set the HTTP status codes that are retried. Defaults to 502, 503 and 504.
+     *
+     * @param statusCodes the status codes
+     * @return this instance
+     */
+    public RetryPolicy withRetryableStatusCodes(Integer... statusCodes) {
+        retryableStatusCodes.clear();
+        retryableStatusCodes.addAll(Arrays.asList(statusCodes));
+        return this;
+    }
+
+    /**
+     * Get the listener notified of retries
+     *
+     * @return the listener, may be null
+     */
+    public RetryListener getRetryListener() {
+        return retryListener;
+    }
+
+    /**
+     * Set a listener to be notified of retries, e.g. to count them in metrics
+     *
+     * @param retryListener the listener
+     * @return this instance
+     */
+    public RetryPolicy withRetryListener(RetryListener retryListener) {
+        this.retryListener = retryListener;
+        return this;
+    }
+}
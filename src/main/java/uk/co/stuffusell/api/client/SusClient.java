@@ -2,8 +2,14 @@ package uk.co.stuffusell.api.client;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import uk.co.stuffusell.api.client.client.BulkRunner;
+import uk.co.stuffusell.api.client.client.Deadline;
 import uk.co.stuffusell.api.client.client.HttpClient;
+import uk.co.stuffusell.api.client.client.JsonCodec;
+import uk.co.stuffusell.api.client.client.PageSpliterator;
 import uk.co.stuffusell.api.client.client.RequestContext;
+import uk.co.stuffusell.api.client.client.ResponseCache;
 import uk.co.stuffusell.api.common.BookCourierRequest;
 import uk.co.stuffusell.api.common.CustomerDto;
 import uk.co.stuffusell.api.common.CustomerOrderDto;
@@ -32,18 +38,92 @@ import uk.co.stuffusell.api.common.UserNameAvailableResponse;
 import uk.co.stuffusell.api.common.consignment.ConsignmentDto;
 import uk.co.stuffusell.api.common.consignment.ConsignmentsDto;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * SUS SDK entry point
+ * <p>
+ * Each call carries its own {@link RequestContext}. The remote ip address and user agent set on the calling thread's
+ * context are captured, and the context cleared, when the call is made, unless the client is a view made with
+ * {@link #withRequestContext(RequestContext)}.
+ * <p>
+ * A client holds pooled connections, and threads when it reaps idle connections, so make one for the lifetime of the
+ * application and {@link #close()} it on shutdown.
  */
-public final class SusClient {
+public final class SusClient implements AutoCloseable {
+    private static final int FIRST_PAGE = 0;
+    private static final TypeReference<List<String>> STRINGS =
+            new TypeReference<List<String>>() {
+            };
+    private static final TypeReference<List<CustomerOrderDto>> ORDERS =
+            new TypeReference<List<CustomerOrderDto>>() {
+            };
+    private static final TypeReference<List<PackagingRequestDto>> PACKAGING_REQUESTS =
+            new TypeReference<List<PackagingRequestDto>>() {
+            };
+    private static final TypeReference<List<ListingReportDto>> LISTING_REPORTS =
+            new TypeReference<List<ListingReportDto>>() {
+            };
+    private static final TypeReference<PageDto<StockItemDto>> STOCK_PAGE =
+            new TypeReference<PageDto<StockItemDto>>() {
+            };
+    private static final TypeReference<PageDto<InvoiceDto>> INVOICE_PAGE =
+            new TypeReference<PageDto<InvoiceDto>>() {
+            };
+
     private final HttpClient client;
+    private final JsonCodec codec;
+    private final Configuration configuration;
+    private final Executor executor;
+    private final ResponseCache responseCache;
+    private final CompletableFuture<WarmUpReport> startupWarmUp;
+    private final RequestContext requestContext;
+    private final RequestPriority priority;
 
     private SusClient(Configuration configuration) {
-        this.client = new HttpClient(configuration);
+        this.codec = JsonCodec.make(configuration);
+        if (configuration.isEagerJsonBinding()) {
+            codec.prepare(SusClient.class);
+        }
+        this.client = new HttpClient(configuration, codec);
+        this.configuration = configuration;
+        this.executor = configuration.getExecutor() == null ? new BackgroundExecutor() : configuration.getExecutor();
+        this.responseCache = configuration.getCachePolicy() == null
+                ? null
+                : new ResponseCache(configuration.getCachePolicy());
+        this.startupWarmUp = configuration.isWarmUpOnStart()
+                ? CompletableFuture.supplyAsync(this::warmUp, executor)
+                : null;
+        this.requestContext = null;
+        this.priority = null;
+    }
+
+    private SusClient(SusClient parent, HttpClient client, RequestContext requestContext, RequestPriority priority) {
+        this.client = client;
+        this.codec = parent.codec;
+        this.configuration = parent.configuration;
+        this.executor = parent.executor;
+        this.responseCache = parent.responseCache;
+        this.startupWarmUp = parent.startupWarmUp;
+        this.requestContext = requestContext;
+        this.priority = priority;
     }
 
     /**
@@ -67,358 +147,680 @@ public final class SusClient {
         return new SusClient(configuration);
     }
 
+    /**
+     * Get a view of this client whose calls must complete within the given time, measured from now. Use a fresh
+     * view for each unit of work, e.g. {@code client.withDeadline(Duration.ofSeconds(2)).getOrder(authToken, sku)}.
+     * <p>
+     * Whatever time is left is applied to the wait for a pooled connection, the connect and each read. A call still
+     * in flight when the deadline passes is aborted, and calls made after it fail immediately, with a
+     * {@link DeadlineExceededException}. The view shares this client's connections and limits.
+     *
+     * @param timeout the time allowed
+     * @return a SUS instance bound to the deadline
+     */
+    public SusClient withDeadline(Duration timeout) {
+        return new SusClient(this, client.withDeadline(Deadline.after(timeout)), requestContext, priority);
+    }
+
+    /**
+     * Get a view of this client whose calls are made for the end user in the given context, instead of the one set
+     * on the calling thread. Use a view per incoming request, e.g.
+     * {@code client.withRequestContext(new RequestContext(ipAddress, userAgent)).current(authToken)}, so nothing
+     * is kept in a thread-local between calls. The view shares this client's connections and limits.
+     *
+     * @param requestContext the end user's ip address and user agent, its auth token is ignored
+     * @return a SUS instance bound to the context
+     */
+    public SusClient withRequestContext(RequestContext requestContext) {
+        return new SusClient(this, client, requestContext, priority);
+    }
+
+    /**
+     * Get a view of this client whose calls wait for the rate limit in the given priority class when fair
+     * scheduling is enabled. Calls are interactive by default, except bulk calls and streams, which are batch. The
+     * view shares this client's connections and limits.
+     *
+     * @param priority the priority class
+     * @return a SUS instance bound to the priority
+     * @see Configuration#withFairSchedulingPolicy(FairSchedulingPolicy)
+     */
+    public SusClient withPriority(RequestPriority priority) {
+        return new SusClient(this, client, requestContext, priority);
+    }
+
+    /**
+     * Get the state of each circuit used so far, for health checks and dashboards.
+     *
+     * @return the states by circuit name, empty if the circuit breaker is disabled
+     */
+    public Map<String, CircuitState> getCircuitStates() {
+        return client.getCircuitStates();
+    }
+
+    /**
+     * Get a snapshot of each customer's fair scheduling queue: the calls waiting and how long calls have waited.
+     * The keys are fingerprints of the auth tokens, so can be logged or used as metric tags.
+     *
+     * @return the statistics by {@link QueueStatistics#customerKey(String) customer key}, "" for calls made without
+     * an auth token, empty if fair scheduling is disabled
+     */
+    public Map<String, QueueStatistics> getQueueStatistics() {
+        return client.getQueueStatistics();
+    }
+
+    /**
+     * Get the client ready for traffic: open the configured number of keep-alive connections to the endpoint, which
+     * also caches a TLS session for later connections to resume, and build the readers and writers for every
+     * request and response type. Call it once after making the client, before it takes traffic. Connections that
+     * cannot be opened are counted in the report rather than failing the call.
+     *
+     * @return how many connections were opened and how long it took
+     * @see Configuration#withWarmUpConnections(int)
+     */
+    public WarmUpReport warmUp() {
+        long start = System.nanoTime();
+        codec.prepare(SusClient.class);
+        int wanted = Math.max(0, Math.min(
+                configuration.getWarmUpConnections(),
+                configuration.getMaxConnectionsPerRoute()));
+        int open = client.warmUp(wanted);
+        return new WarmUpReport(open, wanted - open, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Get the warm-up started when the client was made
+     *
+     * @return the warm-up, null if warm-up on start is disabled
+     * @see Configuration#withWarmUpOnStart(boolean)
+     */
+    public CompletableFuture<WarmUpReport> getStartupWarmUp() {
+        return startupWarmUp;
+    }
+
+    /**
+     * Get the connection pool counters, for health checks and dashboards
+     *
+     * @return the pool statistics
+     */
+    public PoolStatistics getPoolStatistics() {
+        return client.getPoolStatistics();
+    }
+
+    /**
+     * Get the response cache counters
+     *
+     * @return the cache statistics, null if the cache is disabled
+     */
+    public CacheStatistics getCacheStatistics() {
+        return responseCache == null ? null : responseCache.getStatistics();
+    }
+
+    /**
+     * Drop every cached response, so the next call for each fetches it from the server
+     */
+    public void invalidateCache() {
+        if (responseCache != null) {
+            responseCache.invalidateAll();
+        }
+    }
+
+    /**
+     * Close the pooled connections and stop the client's background threads, unless they run on an executor set on
+     * the configuration, which is left for its owner to shut down. Views made with
+     * {@link #withDeadline(Duration)}, {@link #withRequestContext(RequestContext)} and
+     * {@link #withPriority(RequestPriority)} share them, so closing any of them closes them all.
+     */
+    @Override
+    public void close() {
+        client.close();
+        if (executor instanceof BackgroundExecutor) {
+            ((BackgroundExecutor) executor).shutdown();
+        }
+    }
+
     public UserNameAvailableResponse isUsenameAvailable(String username) {
         return client.get(
                 "/api/customer/username-available",
                 ImmutableMap.of("username", username),
-                UserNameAvailableResponse.class);
+                UserNameAvailableResponse.class,
+                context());
     }
 
     public RegistrationResponse register(RegistrationRequest registrationRequest) {
         return client.post(
                 "/api/customer/register",
                 registrationRequest,
-                RegistrationResponse.class);
+                RegistrationResponse.class,
+                context());
     }
 
     public SuccessResponse passwordResetRequest(PasswordResetRequestRequest request) {
         return client.post(
                 "/api/customer/password-reset-request",
                 request,
-                SuccessResponse.class);
+                SuccessResponse.class,
+                context());
     }
 
     public LoginResponse passwordReset(PasswordResetRequest request) {
         return client.post(
                 "/api/customer/password-reset",
                 request,
-                LoginResponse.class);
+                LoginResponse.class,
+                context());
     }
 
     public SalesTickerResponse salesTicker() {
-        return client.get(
+        RequestContext context = context();
+        return cached(CachedEndpoint.SALES_TICKER, null, () -> client.get(
                 "/api/customer/sales-ticker",
                 Collections.emptyMap(),
-                SalesTickerResponse.class);
+                SalesTickerResponse.class,
+                context));
     }
 
     public List<String> categories() {
-        return client.get(
+        RequestContext context = context();
+        return cached(CachedEndpoint.CATEGORIES, null, () -> client.get(
                 "/api/customer/categories",
                 Collections.emptyMap(),
-                new TypeReference<List<String>>() {
-                });
+                STRINGS,
+                context));
     }
 
     public DateListDto getAvailableShippingDates() {
-        return client.get(
+        RequestContext context = context();
+        return cached(CachedEndpoint.SHIPPING_DATES, null, () -> client.get(
                 "/api/customer/shipping-dates",
                 Collections.emptyMap(),
-                DateListDto.class);
+                DateListDto.class,
+                context));
     }
 
     public LoginResponse login(String username, String password) {
-        try {
-            return client.post(
-                    "/api/customer/login",
-                    new LoginRequest(username, password),
-                    LoginResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.post(
+                "/api/customer/login",
+                new LoginRequest(username, password),
+                LoginResponse.class,
+                context());
     }
 
     public void logout(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            client.get(
-                    "/api/customer/logout",
-                    Collections.emptyMap(),
-                    SuccessResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        client.get(
+                "/api/customer/logout",
+                Collections.emptyMap(),
+                SuccessResponse.class,
+                context(authToken));
+        invalidate(authToken);
     }
 
     public CustomerDto current(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/current",
-                    Collections.emptyMap(),
-                    CustomerDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/current",
+                Collections.emptyMap(),
+                CustomerDto.class,
+                context(authToken));
     }
 
     public PricingDto pricing(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/pricing",
-                    Collections.emptyMap(),
-                    PricingDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        RequestContext context = context(authToken);
+        return cached(CachedEndpoint.PRICING, authToken, () -> client.get(
+                "/api/customer/pricing",
+                Collections.emptyMap(),
+                PricingDto.class,
+                context));
     }
 
     public LoginResponse update(String authToken, CustomerUpdateRequest request) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.post(
-                    "/api/customer/update",
-                    request,
-                    LoginResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        LoginResponse response = client.post(
+                "/api/customer/update",
+                request,
+                LoginResponse.class,
+                context(authToken));
+        invalidate(authToken);
+        return response;
     }
 
     public PricingChangedResponse pricingChanged(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.post(
-                    "/api/customer/pricing-changed",
-                    Collections.emptyMap(),
-                    PricingChangedResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        PricingChangedResponse response = client.post(
+                "/api/customer/pricing-changed",
+                Collections.emptyMap(),
+                PricingChangedResponse.class,
+                true,
+                context(authToken));
+        invalidate(authToken);
+        return response;
     }
 
     public CustomerOrderDto newOrder(String authToken, boolean tcsAccepted, String ipAddress) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.post(
-                    "/api/customer/new-order",
-                    ImmutableMap.of("ipAddress", tcsAccepted ? ipAddress : ""),
-                    CustomerOrderDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.post(
+                "/api/customer/new-order",
+                ImmutableMap.of("ipAddress", tcsAccepted ? ipAddress : ""),
+                CustomerOrderDto.class,
+                context(authToken));
     }
 
     public List<CustomerOrderDto> orders(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/orders",
-                    Collections.emptyMap(),
-                    new TypeReference<List<CustomerOrderDto>>() {
-                    });
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/orders",
+                Collections.emptyMap(),
+                ORDERS,
+                context(authToken));
     }
 
     public CustomerOrderDto getOrder(String authToken, String sku) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/order/" + sku,
-                    Collections.emptyMap(),
-                    CustomerOrderDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/order/" + sku,
+                Collections.emptyMap(),
+                CustomerOrderDto.class,
+                context(authToken));
     }
 
     public SuccessResponse updateOrder(String authToken, String sku, CustomerOrderUpdateRequest request) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.post(
-                    "/api/customer/order/" + sku + "/update",
-                    request,
-                    SuccessResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        SuccessResponse response = client.post(
+                "/api/customer/order/" + sku + "/update",
+                request,
+                SuccessResponse.class,
+                context(authToken));
+        invalidate(authToken);
+        return response;
     }
 
     public List<String> getCollectPlusLabelNumbers(String authToken, String sku) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/order/" + sku + "/collect-plus-label-numbers",
-                    Collections.emptyMap(),
-                    new TypeReference<List<String>>() {
-                    });
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/order/" + sku + "/collect-plus-label-numbers",
+                Collections.emptyMap(),
+                STRINGS,
+                context(authToken));
     }
 
     public SuccessResponse bookCourier(String authToken, String sku, BookCourierRequest request) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.post(
-                    "/api/customer/order/" + sku + "/book-courier",
-                    request,
-                    SuccessResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.post(
+                "/api/customer/order/" + sku + "/book-courier",
+                request,
+                SuccessResponse.class,
+                context(authToken));
     }
 
     public List<PackagingRequestDto> getPackagingRequests(String authToken, String sku) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/order/" + sku + "/packaging-request",
-                    Collections.emptyMap(),
-                    new TypeReference<List<PackagingRequestDto>>() {
-                    });
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/order/" + sku + "/packaging-request",
+                Collections.emptyMap(),
+                PACKAGING_REQUESTS,
+                context(authToken));
+    }
+
+    /**
+     * Get many orders. The calls are made in parallel, see {@link Configuration#withBulkConcurrency(int)}, and an
+     * order that cannot be fetched is reported in the result without stopping the rest.
+     *
+     * @param authToken the customer auth token
+     * @param skus      the order SKUs
+     * @param progress  notified as each order is fetched, may be null
+     * @return the order or failure for each SKU
+     * @throws UnauthorisedException if the auth token is not valid, which stops the run
+     */
+    public BulkResult<CustomerOrderDto> getOrders(
+            String authToken, Collection<String> skus, BulkProgressListener progress) {
+        SusClient scope = bulkScope();
+        return bulk(skus, sku -> scope.getOrder(authToken, sku), progress);
+    }
+
+    /**
+     * Update many orders, in parallel like {@link #getOrders(String, Collection, BulkProgressListener)}
+     *
+     * @param authToken the customer auth token
+     * @param requests  the update for each order SKU
+     * @param progress  notified as each order is updated, may be null
+     * @return the response or failure for each SKU
+     * @throws UnauthorisedException if the auth token is not valid, which stops the run
+     */
+    public BulkResult<SuccessResponse> updateOrders(
+            String authToken, Map<String, CustomerOrderUpdateRequest> requests, BulkProgressListener progress) {
+        SusClient scope = bulkScope();
+        return bulk(requests.keySet(), sku -> scope.updateOrder(authToken, sku, requests.get(sku)), progress);
+    }
+
+    /**
+     * Get the Collect+ label numbers of many orders, in parallel like
+     * {@link #getOrders(String, Collection, BulkProgressListener)}
+     *
+     * @param authToken the customer auth token
+     * @param skus      the order SKUs
+     * @param progress  notified as each order's labels are fetched, may be null
+     * @return the label numbers or failure for each SKU
+     * @throws UnauthorisedException if the auth token is not valid, which stops the run
+     */
+    public BulkResult<List<String>> getCollectPlusLabelNumbers(
+            String authToken, Collection<String> skus, BulkProgressListener progress) {
+        SusClient scope = bulkScope();
+        return bulk(skus, sku -> scope.getCollectPlusLabelNumbers(authToken, sku), progress);
+    }
+
+    /**
+     * Book couriers for many orders, in parallel like {@link #getOrders(String, Collection, BulkProgressListener)}
+     *
+     * @param authToken the customer auth token
+     * @param requests  the booking for each order SKU
+     * @param progress  notified as each courier is booked, may be null
+     * @return the response or failure for each SKU
+     * @throws UnauthorisedException if the auth token is not valid, which stops the run
+     */
+    public BulkResult<SuccessResponse> bookCouriers(
+            String authToken, Map<String, BookCourierRequest> requests, BulkProgressListener progress) {
+        SusClient scope = bulkScope();
+        return bulk(requests.keySet(), sku -> scope.bookCourier(authToken, sku, requests.get(sku)), progress);
+    }
+
+    /**
+     * Get the packaging requests of many orders, in parallel like
+     * {@link #getOrders(String, Collection, BulkProgressListener)}
+     *
+     * @param authToken the customer auth token
+     * @param skus      the order SKUs
+     * @param progress  notified as each order's packaging requests are fetched, may be null
+     * @return the packaging requests or failure for each SKU
+     * @throws UnauthorisedException if the auth token is not valid, which stops the run
+     */
+    public BulkResult<List<PackagingRequestDto>> getPackagingRequests(
+            String authToken, Collection<String> skus, BulkProgressListener progress) {
+        SusClient scope = bulkScope();
+        return bulk(skus, sku -> scope.getPackagingRequests(authToken, sku), progress);
     }
 
     public SuccessResponse updatePackagingRequests(String authToken, String sku, Map<PackagingType, Integer> request) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.post(
-                    "/api/customer/order/" + sku + "/packaging-request",
-                    request,
-                    SuccessResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.post(
+                "/api/customer/order/" + sku + "/packaging-request",
+                request,
+                SuccessResponse.class,
+                true,
+                context(authToken));
     }
 
     public SuccessResponse requestPayment(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.post(
-                    "/api/customer/customer-payment-request",
-                    Collections.emptyMap(),
-                    SuccessResponse.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.post(
+                "/api/customer/customer-payment-request",
+                Collections.emptyMap(),
+                SuccessResponse.class,
+                context(authToken));
     }
 
     public List<ListingReportDto> getListingHistory(String authToken, String sku) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/order/" + sku + "/listing-history",
-                    Collections.emptyMap(),
-                    new TypeReference<List<ListingReportDto>>() {
-                    });
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/order/" + sku + "/listing-history",
+                Collections.emptyMap(),
+                LISTING_REPORTS,
+                context(authToken));
     }
 
     public StockReportSummaryDto getStockReportSummary(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/stock/summary",
-                    Collections.emptyMap(),
-                    StockReportSummaryDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/stock/summary",
+                Collections.emptyMap(),
+                StockReportSummaryDto.class,
+                context(authToken));
     }
 
     public ListingReportDto getStockData(String authToken, String sku) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/sku/" + sku,
-                    Collections.emptyMap(),
-                    ListingReportDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/sku/" + sku,
+                Collections.emptyMap(),
+                ListingReportDto.class,
+                context(authToken));
     }
 
     public PageDto<StockItemDto> getStock(String authToken, int page, int pageSize) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/stock/list",
-                    ImmutableMap.of("page", String.valueOf(page), "pageSize", String.valueOf(pageSize)),
-                    new TypeReference<PageDto<StockItemDto>>() {
-                    });
-        } finally {
-            RequestContext.clear();
-        }
+        return getStock(context(authToken), page, pageSize);
+    }
+
+    private PageDto<StockItemDto> getStock(RequestContext context, int page, int pageSize) {
+        return client.get(
+                "/api/stock/list",
+                ImmutableMap.of("page", String.valueOf(page), "pageSize", String.valueOf(pageSize)),
+                STOCK_PAGE,
+                context);
+    }
+
+    /**
+     * Stream every stock item for the customer. Pages of the configured page size are fetched lazily as the stream
+     * is consumed, with the configured number of pages prefetched in the background. Close the stream if it is
+     * not consumed to the end to cancel outstanding prefetches.
+     *
+     * @param authToken the customer auth token
+     * @return the stock items
+     */
+    public Stream<StockItemDto> streamStock(String authToken) {
+        RequestContext context = batchContext(authToken);
+        return stream(page -> page(getStock(context, page, configuration.getPageSize())));
     }
 
     public LedgerDto getAccountLedger(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/ledger",
-                    Collections.emptyMap(),
-                    LedgerDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/ledger",
+                Collections.emptyMap(),
+                LedgerDto.class,
+                context(authToken));
     }
 
     public PageDto<InvoiceDto> getInvoices(String authToken, int page, int pageSize) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/invoices",
-                    ImmutableMap.of("page", String.valueOf(page), "pageSize", String.valueOf(pageSize)),
-                    new TypeReference<PageDto<InvoiceDto>>() {
-                    });
-        } finally {
-            RequestContext.clear();
-        }
+        return getInvoices(context(authToken), page, pageSize);
+    }
+
+    private PageDto<InvoiceDto> getInvoices(RequestContext context, int page, int pageSize) {
+        return client.get(
+                "/api/customer/invoices",
+                ImmutableMap.of("page", String.valueOf(page), "pageSize", String.valueOf(pageSize)),
+                INVOICE_PAGE,
+                context);
+    }
+
+    /**
+     * Stream every invoice for the customer. Pages of the configured page size are fetched lazily as the stream
+     * is consumed, with the configured number of pages prefetched in the background. Close the stream if it is
+     * not consumed to the end to cancel outstanding prefetches.
+     *
+     * @param authToken the customer auth token
+     * @return the invoices
+     */
+    public Stream<InvoiceDto> streamInvoices(String authToken) {
+        RequestContext context = batchContext(authToken);
+        return stream(page -> page(getInvoices(context, page, configuration.getPageSize())));
     }
 
     public LedgerDto getInvoice(String authToken, String invoiceNumber) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/invoice/" + invoiceNumber,
-                    Collections.emptyMap(),
-                    LedgerDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/invoice/" + invoiceNumber,
+                Collections.emptyMap(),
+                LedgerDto.class,
+                context(authToken));
     }
 
     public LedgerDto getUninvoiced(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/customer/ledger/uninvoiced",
-                    Collections.emptyMap(),
-                    LedgerDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/customer/ledger/uninvoiced",
+                Collections.emptyMap(),
+                LedgerDto.class,
+                context(authToken));
     }
 
     public ConsignmentsDto getConsignments(String authToken) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/consignment/overview",
-                    Collections.emptyMap(),
-                    ConsignmentsDto.class);
-        } finally {
-            RequestContext.clear();
-        }
+        return client.get(
+                "/api/consignment/overview",
+                Collections.emptyMap(),
+                ConsignmentsDto.class,
+                context(authToken));
     }
 
     public ConsignmentDto getConsignment(String authToken, String consignmentId) {
-        RequestContext.get().setAuthToken(authToken);
-        try {
-            return client.get(
-                    "/api/consignment/" + consignmentId,
-                    Collections.emptyMap(),
-                    ConsignmentDto.class);
-        } finally {
-            RequestContext.clear();
+        return client.get(
+                "/api/consignment/" + consignmentId,
+                Collections.emptyMap(),
+                ConsignmentDto.class,
+                context(authToken));
+    }
+
+    /**
+     * Fetch everything a seller dashboard shows: the customer, pricing, orders, stock report summary, account
+     * ledger, uninvoiced ledger and consignments. The calls are made in parallel on the configured executor, so the
+     * dashboard takes about as long as the slowest of them rather than all of them in turn.
+     * <p>
+     * All the calls share one deadline. A part that fails or runs out of time is left out and its failure recorded
+     * in {@link Dashboard#getErrors()}. If the customer is not authorised there is nothing worth showing, so the
+     * first auth failure cancels the calls still in flight and is thrown.
+     *
+     * @param authToken the customer auth token
+     * @param timeout   the time allowed for the whole dashboard
+     * @return the dashboard
+     * @throws UnauthorisedException if the auth token is not valid
+     * @throws ForbiddenException    if the customer may not see the dashboard
+     */
+    public Dashboard dashboard(String authToken, Duration timeout) {
+        Deadline deadline = Deadline.after(timeout);
+        SusClient scope = new SusClient(this, client.withDeadline(deadline), context(), priority);
+        Map<DashboardPart, CompletableFuture<?>> calls = new EnumMap<>(DashboardPart.class);
+        calls.put(DashboardPart.CUSTOMER, part(deadline, () -> scope.current(authToken)));
+        calls.put(DashboardPart.PRICING, part(deadline, () -> scope.pricing(authToken)));
+        calls.put(DashboardPart.ORDERS, part(deadline, () -> scope.orders(authToken)));
+        calls.put(DashboardPart.STOCK_REPORT_SUMMARY, part(deadline, () -> scope.getStockReportSummary(authToken)));
+        calls.put(DashboardPart.ACCOUNT_LEDGER, part(deadline, () -> scope.getAccountLedger(authToken)));
+        calls.put(DashboardPart.UNINVOICED, part(deadline, () -> scope.getUninvoiced(authToken)));
+        calls.put(DashboardPart.CONSIGNMENTS, part(deadline, () -> scope.getConsignments(authToken)));
+
+        Map<DashboardPart, Object> parts = new EnumMap<>(DashboardPart.class);
+        Map<DashboardPart, SusException> errors = new EnumMap<>(DashboardPart.class);
+        SusException authFailure = null;
+        for (Map.Entry<DashboardPart, CompletableFuture<?>> call : calls.entrySet()) {
+            try {
+                parts.put(call.getKey(), call.getValue().join());
+            } catch (CompletionException e) {
+                SusException error = e.getCause() instanceof SusException
+                        ? (SusException) e.getCause()
+                        : new SusException(e.getCause());
+                if (authFailure == null && isAuthFailure(error)) {
+                    authFailure = error;
+                }
+                errors.put(call.getKey(), error);
+            }
+        }
+        if (authFailure != null) {
+            throw authFailure;
+        }
+        return new Dashboard(parts, errors);
+    }
+
+    private <T> CompletableFuture<T> part(Deadline deadline, Supplier<T> call) {
+        CompletableFuture<T> part = CompletableFuture.supplyAsync(call, executor);
+        part.whenComplete((value, error) -> {
+            if (error != null && isAuthFailure(error.getCause())) {
+                deadline.cancel();
+            }
+        });
+        return part;
+    }
+
+    private SusClient bulkScope() {
+        // The calls run on the executor, so take the caller's context now rather than on each worker thread
+        return new SusClient(this, client, batchContext(null), priority);
+    }
+
+    private <T> BulkResult<T> bulk(
+            Collection<String> skus, Function<String, T> call, BulkProgressListener progress) {
+        int concurrency = Math.min(configuration.getBulkConcurrency(), configuration.getMaxConnectionsPerRoute());
+        return new BulkRunner(executor, concurrency).run(skus, call, progress);
+    }
+
+    private static boolean isAuthFailure(Throwable error) {
+        return error instanceof UnauthorisedException || error instanceof ForbiddenException;
+    }
+
+    private RequestContext context() {
+        return context(null);
+    }
+
+    private RequestContext context(String authToken) {
+        RequestContext context = requestContext == null
+                ? RequestContext.take(authToken)
+                : requestContext.forCall(authToken);
+        if (priority != null) {
+            context.setPriority(priority);
+        }
+        return context;
+    }
+
+    private RequestContext batchContext(String authToken) {
+        RequestContext context = context(authToken);
+        if (priority == null) {
+            context.setPriority(RequestPriority.BATCH);
+        }
+        return context;
+    }
+
+    private <T> T cached(CachedEndpoint endpoint, String authToken, Supplier<T> loader) {
+        return responseCache == null ? loader.get() : responseCache.get(endpoint, authToken, loader);
+    }
+
+    private void invalidate(String authToken) {
+        if (responseCache != null) {
+            responseCache.invalidate(authToken);
+        }
+    }
+
+    private <T> Stream<T> stream(IntFunction<PageSpliterator.Page<T>> pageFetcher) {
+        PageSpliterator<T> spliterator = new PageSpliterator<>(
+                pageFetcher,
+                FIRST_PAGE,
+                configuration.getPagePrefetch(),
+                executor);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+    }
+
+    private static <T> PageSpliterator.Page<T> page(PageDto<T> page) {
+        return page == null
+                ? new PageSpliterator.Page<>(null, 0)
+                : new PageSpliterator.Page<>(page.getItems(), page.getTotal());
+    }
+
+    /**
+     * The executor used when none is configured. Its threads are only started for the first background task, so a
+     * client that never streams, runs bulk calls or fetches dashboards starts none, and stop when the client is
+     * closed.
+     */
+    private static final class BackgroundExecutor implements Executor {
+        private final ReentrantLock lock = new ReentrantLock();
+        private ExecutorService threads;
+        private boolean shutdown;
+
+        @Override
+        public void execute(Runnable task) {
+            threads().execute(task);
+        }
+
+        void shutdown() {
+            lock.lock();
+            try {
+                shutdown = true;
+                if (threads != null) {
+                    threads.shutdown();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ExecutorService threads() {
+            lock.lock();
+            try {
+                if (shutdown) {
+                    throw new RejectedExecutionException("The client is closed");
+                }
+                if (threads == null) {
+                    threads = Executors.newCachedThreadPool(
+                            new ThreadFactoryBuilder().setNameFormat("sus-background-%d").setDaemon(true).build());
+                }
+                return threads;
+            } finally {
+                lock.unlock();
+            }
         }
     }
 }
@@ -0,0 +1,31 @@
+package uk.co.stuffusell.api.client;
+
+/**
+ * The parts of an attempt at a request that are timed when the call is traced
+ */
+public enum TracePhase {
+    /**
+     * Waiting for the client side rate limit
+     */
+    RATE_LIMIT_WAIT,
+    /**
+     * Waiting for a connection from the pool, blocking transport only
+     */
+    POOL_LEASE,
+    /**
+     * Opening a new connection, including the TLS handshake, blocking transport only
+     */
+    CONNECT,
+    /**
+     * From sending the request to receiving the response headers
+     */
+    TIME_TO_FIRST_BYTE,
+    /**
+     * Reading the response body
+     */
+    BODY_READ,
+    /**
+     * Binding the response body to the response type
+     */
+    DESERIALIZE
+}
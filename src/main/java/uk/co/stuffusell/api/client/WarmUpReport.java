@@ -0,0 +1,45 @@
+package uk.co.stuffusell.api.client;
+
+import java.time.Duration;
+
+/**
+ * The outcome of warming up a client
+ */
+public class WarmUpReport {
+    private final int connections;
+    private final int failures;
+    private final Duration duration;
+
+    public WarmUpReport(int connections, int failures, Duration duration) {
+        this.connections = connections;
+        this.failures = failures;
+        this.duration = duration;
+    }
+
+    /**
+     * Get the number of connections opened and left in the pool
+     *
+     * @return the connection count
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Get the number of connections that could not be opened
+     *
+     * @return the failure count
+     */
+    public int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Get how long the warm-up took
+     *
+     * @return the duration
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,478 @@
+package uk.co.stuffusell.api.client.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.http.HttpStatus;
+import uk.co.stuffusell.api.client.CircuitState;
+import uk.co.stuffusell.api.client.ClientMetrics;
+import uk.co.stuffusell.api.client.ClientTracer;
+import uk.co.stuffusell.api.client.Configuration;
+import uk.co.stuffusell.api.client.DeadlineExceededException;
+import uk.co.stuffusell.api.client.SusException;
+import uk.co.stuffusell.api.client.util.Gzip;
+import uk.co.stuffusell.api.client.util.PathTemplates;
+import uk.co.stuffusell.api.client.util.RateLimiter;
+import uk.co.stuffusell.api.client.util.RequestParameterMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link HttpClient} built on the JDK HTTP client. Requests are multiplexed over
+ * HTTP/2 where the server supports it, so no thread is held while a request is in flight.
+ */
+public class AsyncHttpClient {
+    private static final String HEADER_ACCESS_TOKEN = "X-Access-Token";
+    private static final String HEADER_REMOTE_IP = "X-Remote-IP";
+    private static final String HEADER_REMOTE_UA = "X-Remote-UA";
+    private static final String HEADER_AUTH = "Authorization";
+    private static final String HEADER_USER_AGENT = "User-Agent";
+    private static final String HEADER_CONTENT_TYPE = "Content-Type";
+    private static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+
+    private final RequestParameterMapper parameterMapper;
+    private final JsonCodec codec;
+    private final ErrorMapper errorMapper;
+    private final Configuration configuration;
+    private final Executor executor;
+    private final java.net.http.HttpClient httpClient;
+    private final RateLimiter rateLimiter;
+    private final RateLimitFeedback rateLimitFeedback;
+    private final Retrier retrier;
+    private final CircuitBreakers circuitBreakers;
+    private final ClientMetrics metrics;
+    private final ClientTracer tracer;
+    private final Deadline deadline;
+
+    public AsyncHttpClient(Configuration configuration) {
+        this(configuration, JsonCodec.make(configuration));
+    }
+
+    public AsyncHttpClient(Configuration configuration, JsonCodec codec) {
+        this.parameterMapper = new RequestParameterMapper(codec.getObjectMapper());
+        this.codec = codec;
+        this.errorMapper = new ErrorMapper(codec);
+        this.configuration = configuration;
+        this.retrier = new Retrier(configuration.getRetryPolicy());
+        this.circuitBreakers = configuration.getCircuitBreakerPolicy() == null
+                ? null
+                : new CircuitBreakers(configuration.getEndpoint(), configuration.getCircuitBreakerPolicy());
+        this.executor = configuration.getExecutor() == null ? makeExecutor() : configuration.getExecutor();
+        java.net.http.HttpClient.Builder builder = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_2)
+                .executor(executor);
+        if (configuration.getConnectTimeoutMillis() > 0) {
+            builder.connectTimeout(Duration.ofMillis(configuration.getConnectTimeoutMillis()));
+        }
+        this.httpClient = builder.build();
+        this.rateLimiter = new RateLimiter(configuration.getRequestsPerSecond(), configuration.getRequestBurstSize());
+        this.rateLimitFeedback = configuration.isAdaptiveRateLimit()
+                ? new RateLimitFeedback(rateLimiter, configuration)
+                : null;
+        this.metrics = configuration.getMetrics();
+        this.tracer = configuration.getTracer();
+        this.deadline = null;
+    }
+
+    private AsyncHttpClient(AsyncHttpClient parent, Deadline deadline) {
+        this.parameterMapper = parent.parameterMapper;
+        this.codec = parent.codec;
+        this.errorMapper = parent.errorMapper;
+        this.configuration = parent.configuration;
+        this.executor = parent.executor;
+        this.httpClient = parent.httpClient;
+        this.rateLimiter = parent.rateLimiter;
+        this.rateLimitFeedback = parent.rateLimitFeedback;
+        this.retrier = parent.retrier;
+        this.circuitBreakers = parent.circuitBreakers;
+        this.metrics = parent.metrics;
+        this.tracer = parent.tracer;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Get a view of this client that shares its connections and limits but fails any call that is not complete by
+     * the deadline. Each attempt's response timeout is bounded by the time left.
+     *
+     * @param deadline the deadline
+     * @return the view
+     */
+    public AsyncHttpClient withDeadline(Deadline deadline) {
+        return new AsyncHttpClient(this, deadline);
+    }
+
+    /**
+     * Get the state of each circuit used so far
+     *
+     * @return the states by circuit name, empty if the circuit breaker is disabled
+     */
+    public Map<String, CircuitState> getCircuitStates() {
+        return circuitBreakers == null ? Collections.emptyMap() : circuitBreakers.getStates();
+    }
+
+    public <T> CompletableFuture<T> get(
+            String path, Map<String, String> parameters, Class<T> responseType, RequestContext context) {
+        return execute(newRequest(path, parameters).GET(), codec.reader(responseType), context);
+    }
+
+    public <T> CompletableFuture<T> get(
+            String path, Map<String, String> parameters, TypeReference<T> responseType, RequestContext context) {
+        return execute(newRequest(path, parameters).GET(), codec.reader(responseType.getType()), context);
+    }
+
+    public <T> CompletableFuture<T> post(String path, Object data, Class<T> responseType, RequestContext context) {
+        return post(path, data, responseType, false, context);
+    }
+
+    /**
+     * Post a request. An idempotent request is sent with an idempotency key, so the server can recognise a
+     * repeat, and may be retried.
+     *
+     * @param path         the request path
+     * @param data         the payload
+     * @param responseType the response type
+     * @param idempotent   true if the request is safe to retry
+     * @param context      the request context
+     * @param <T>          the response type
+     * @return the response
+     */
+    public <T> CompletableFuture<T> post(
+            String path, Object data, Class<T> responseType, boolean idempotent, RequestContext context) {
+        byte[] content = toJson(data);
+        int threshold = configuration.getRequestCompressionThreshold();
+        boolean compress = threshold >= 0 && content.length >= threshold;
+        HttpRequest.Builder request = newRequest(path, null)
+                .header(HEADER_CONTENT_TYPE, "application/json; charset=utf-8")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(compress ? Gzip.compress(content) : content));
+        if (compress) {
+            request.header(HEADER_CONTENT_ENCODING, Gzip.ENCODING);
+        }
+        if (idempotent) {
+            request.header(HEADER_IDEMPOTENCY_KEY, UUID.randomUUID().toString());
+        }
+        return execute(request, codec.reader(responseType), context);
+    }
+
+    public <T> CompletableFuture<T> delete(
+            String path, Map<String, String> parameters, Class<T> responseType, RequestContext context) {
+        return execute(newRequest(path, parameters).DELETE(), codec.reader(responseType), context);
+    }
+
+    private <T> CompletableFuture<T> execute(
+            HttpRequest.Builder request, ObjectReader responseReader, RequestContext context) {
+        addHeaders(request, context);
+        retrier.onRequest();
+        HttpRequest built = request.build();
+        if (tracer == null) {
+            return execute(built, responseReader, null);
+        }
+
+        CallTrace trace = new CallTrace(tracer.startSpan(
+                configuration.getEndpoint(), built.method(), PathTemplates.normalize(built.uri().getPath())));
+        trace.getSpan().inject(request::header);
+        return this.<T>execute(request.build(), responseReader, trace)
+                .whenComplete((value, error) -> trace.end(
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error));
+    }
+
+    private <T> CompletableFuture<T> execute(HttpRequest request, ObjectReader responseReader, CallTrace trace) {
+        CompletableFuture<T> result = send(request, 0, 0, trace)
+                .thenApplyAsync(response -> transform(response, responseReader, trace), executor);
+        if (deadline == null) {
+            return result;
+        }
+        return result
+                .orTimeout(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS)
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                            ? error.getCause()
+                            : error;
+                    if (cause instanceof TimeoutException
+                            || cause instanceof SusException
+                            && cause.getCause() instanceof IOException
+                            && deadline.isExpired()) {
+                        throw new DeadlineExceededException("Deadline exceeded", cause);
+                    }
+                    throw new CompletionException(cause);
+                });
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> send(
+            HttpRequest request, int throttleRetries, int retries, CallTrace trace) {
+        return reserveRateLimit(throttleRetries + retries > 0, trace)
+                .thenCompose(ignore -> attempt(request, trace)
+                        .handle((response, error) -> retry(request, throttleRetries, retries, response, error, trace))
+                        .thenCompose(Function.identity()));
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> attempt(HttpRequest request, CallTrace trace) {
+        CircuitBreaker circuitBreaker = circuitBreakers == null
+                ? null
+                : circuitBreakers.forPath(request.uri().getPath());
+        if (circuitBreaker == null && metrics == null && trace == null) {
+            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+        }
+
+        if (circuitBreaker != null) {
+            circuitBreaker.acquirePermission();
+        }
+        HttpResponse.BodyHandler<byte[]> bodyHandler = HttpResponse.BodyHandlers.ofByteArray();
+        if (trace != null) {
+            trace.startAttempt();
+            bodyHandler = responseInfo -> {
+                trace.onHeadersReceived();
+                return HttpResponse.BodyHandlers.ofByteArray().apply(responseInfo);
+            };
+        }
+        long start = System.nanoTime();
+        return httpClient.sendAsync(request, bodyHandler)
+                .whenComplete((response, error) -> {
+                    long duration = System.nanoTime() - start;
+                    if (trace != null) {
+                        trace.onBodyReceived();
+                        trace.endAttempt(error == null ? response.statusCode() : 0);
+                    }
+                    if (circuitBreaker != null) {
+                        circuitBreaker.onResult(
+                                error != null || response.statusCode() >= HttpStatus.SC_INTERNAL_SERVER_ERROR,
+                                duration);
+                    }
+                    if (metrics != null) {
+                        metrics.onRequest(
+                                request.method(),
+                                PathTemplates.normalize(request.uri().getPath()),
+                                error == null ? response.statusCode() : 0,
+                                duration,
+                                getContentLength(request),
+                                error == null && response.body() != null ? response.body().length : 0);
+                    }
+                });
+    }
+
+    private CompletableFuture<HttpResponse<byte[]>> retry(
+            HttpRequest request,
+            int throttleRetries,
+            int retries,
+            HttpResponse<byte[]> response,
+            Throwable error,
+            CallTrace trace) {
+        SusException failure;
+        if (error == null) {
+            if (rateLimitFeedback != null
+                    && rateLimitFeedback.onResponse(
+                            response.statusCode(), name -> response.headers().firstValue(name).orElse(null)) >= 0
+                    && throttleRetries < configuration.getMaxThrottleRetries()) {
+                onRetry(request);
+                return send(request, throttleRetries + 1, retries, trace);
+            }
+            if (!retrier.isRetryable(response.statusCode())) {
+                return CompletableFuture.completedFuture(response);
+            }
+            failure = toError(response);
+        } else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error;
+            failure = cause instanceof SusException ? (SusException) cause : new SusException(cause);
+        }
+
+        long backoff = isIdempotent(request)
+                ? retrier.nextBackoffMillis(request.method(), request.uri().getPath(), retries + 1, failure)
+                : -1;
+        if (backoff < 0 || deadline != null && TimeUnit.MILLISECONDS.toNanos(backoff) >= deadline.remainingNanos()) {
+            return CompletableFuture.failedFuture(failure);
+        }
+        onRetry(request);
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS, executor))
+                .thenCompose(ignore -> send(request, throttleRetries, retries + 1, trace));
+    }
+
+    private static long getContentLength(HttpRequest request) {
+        return Math.max(0, request.bodyPublisher().map(HttpRequest.BodyPublisher::contentLength).orElse(0L));
+    }
+
+    private void onRetry(HttpRequest request) {
+        if (metrics != null) {
+            metrics.onRetry(request.method(), PathTemplates.normalize(request.uri().getPath()));
+        }
+    }
+
+    private static boolean isIdempotent(HttpRequest request) {
+        return !"POST".equals(request.method()) || request.headers().firstValue(HEADER_IDEMPOTENCY_KEY).isPresent();
+    }
+
+    private CompletableFuture<Void> reserveRateLimit(boolean retry, CallTrace trace) {
+        if (!retry && !configuration.isBlockTillRateLimitReset()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int timeout = deadline == null
+                ? configuration.getRateLimitTimeoutMillis()
+                : deadline.bound(configuration.getRateLimitTimeoutMillis());
+        long waitNanos = timeout < 0
+                ? rateLimiter.reserve()
+                : rateLimiter.tryReserve(timeout, TimeUnit.MILLISECONDS);
+        if (waitNanos < 0) {
+            return CompletableFuture.failedFuture(new SusException("Timed out waiting for the rate limit"));
+        }
+        if (metrics != null) {
+            metrics.onRateLimitWait(waitNanos);
+        }
+        if (trace != null) {
+            trace.onRateLimitWait(waitNanos);
+        }
+        if (waitNanos == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS, executor));
+    }
+
+    private void addHeaders(HttpRequest.Builder request, RequestContext context) {
+        String authToken = context.getAuthToken();
+        if (authToken != null && !authToken.isEmpty()) {
+            request.header(HEADER_AUTH, authToken);
+        }
+        String ipAddress = context.getIpAddress();
+        if (ipAddress != null && !ipAddress.isEmpty()) {
+            request.header(HEADER_REMOTE_IP, ipAddress);
+        }
+        String userAgent = context.getUserAgent();
+        if (userAgent != null && !userAgent.isEmpty()) {
+            request.header(HEADER_REMOTE_UA, userAgent);
+        }
+        request.header(HEADER_ACCESS_TOKEN, configuration.getAccessToken());
+        request.header(HEADER_USER_AGENT, configuration.getUserAgent());
+        request.header("Accepts", "application/json");
+        if (configuration.isResponseCompression()) {
+            // Unlike the blocking client the JDK client does not negotiate compression itself
+            request.header(HEADER_ACCEPT_ENCODING, Gzip.ENCODING);
+        }
+    }
+
+    private SusException toError(HttpResponse<byte[]> response) {
+        byte[] body;
+        try {
+            body = body(response);
+        } catch (IOException e) {
+            body = null;
+        }
+        return errorMapper.fromResponse(
+                response.statusCode(),
+                null,
+                response.headers().firstValue(HEADER_CONTENT_TYPE).orElse(null),
+                body == null ? null : new String(body, StandardCharsets.UTF_8));
+    }
+
+    private <T> T transform(HttpResponse<byte[]> response, ObjectReader responseReader, CallTrace trace) {
+        if (response.statusCode() >= HttpStatus.SC_BAD_REQUEST) {
+            throw toError(response);
+        }
+        if (!canHaveBody(response.statusCode())) {
+            // As the blocking client, which gets no entity for these
+            return null;
+        }
+        byte[] body;
+        try {
+            body = body(response);
+        } catch (IOException e) {
+            throw new SusException(e);
+        }
+        if (body == null) {
+            // An empty body is unreadable as any type, so it fails the same way it does on the blocking client
+            body = new byte[0];
+        }
+
+        long start = System.nanoTime();
+        try {
+            return responseReader.readValue(body);
+        } catch (IOException e) {
+            throw errorMapper.fromUnreadableContent(new String(body, StandardCharsets.UTF_8), e);
+        } finally {
+            if (trace != null) {
+                trace.onDeserialize(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private static boolean canHaveBody(int statusCode) {
+        return statusCode != HttpStatus.SC_NO_CONTENT
+                && statusCode != HttpStatus.SC_RESET_CONTENT
+                && statusCode != HttpStatus.SC_NOT_MODIFIED;
+    }
+
+    private static byte[] body(HttpResponse<byte[]> response) throws IOException {
+        byte[] body = response.body();
+        boolean compressed = response.headers().firstValue(HEADER_CONTENT_ENCODING)
+                .map(Gzip.ENCODING::equalsIgnoreCase)
+                .orElse(false);
+        if (body == null || body.length == 0 || !compressed) {
+            return body;
+        }
+        try (InputStream content = Gzip.decompress(body)) {
+            return content.readAllBytes();
+        }
+    }
+
+    private byte[] toJson(Object payload) {
+        try {
+            return codec.writer(payload.getClass()).writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new SusException(e);
+        }
+    }
+
+    private HttpRequest.Builder newRequest(String path, Map<String, String> params) {
+        // Unlike the blocking client the JDK client does not normalise the path, so avoid sending a double slash
+        StringBuilder uri = new StringBuilder(configuration.getEndpoint());
+        if (!path.startsWith("/")) {
+            uri.append('/');
+        }
+        uri.append(path);
+
+        if (params != null) {
+            uri.append(parameterMapper.write(params));
+        }
+
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(new URI(uri.toString()));
+            int timeout = deadline == null
+                    ? configuration.getSocketTimeoutMillis()
+                    : deadline.bound(configuration.getSocketTimeoutMillis());
+            if (timeout > 0) {
+                request.timeout(Duration.ofMillis(timeout));
+            }
+            return request;
+        } catch (URISyntaxException e) {
+            throw new SusException(e);
+        }
+    }
+
+    private static ExecutorService makeExecutor() {
+        return Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setNameFormat("sus-async-%d").setDaemon(true).build());
+    }
+}
@@ -0,0 +1,106 @@
+package uk.co.stuffusell.api.client.client;
+
+import uk.co.stuffusell.api.client.BulkProgressListener;
+import uk.co.stuffusell.api.client.BulkResult;
+import uk.co.stuffusell.api.client.ForbiddenException;
+import uk.co.stuffusell.api.client.SusException;
+import uk.co.stuffusell.api.client.UnauthorisedException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Makes one call per key with a fixed number of workers, each taking the next key as soon as its last call is done,
+ * so at most that many calls are in flight and the pooled connections are kept busy. A failed call is recorded
+ * against its key and the run carries on, except for an auth failure, which would fail every key alike: it stops
+ * the run and is thrown.
+ */
+public class BulkRunner {
+    private final Executor executor;
+    private final int concurrency;
+
+    public BulkRunner(Executor executor, int concurrency) {
+        this.executor = executor;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * Call once for each distinct key
+     *
+     * @param keys     the keys
+     * @param call     makes the call for a key
+     * @param listener notified after each call, may be null
+     * @param <T>      the result type
+     * @return the result or failure for each key
+     */
+    public <T> BulkResult<T> run(Collection<String> keys, Function<String, T> call, BulkProgressListener listener) {
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(keys));
+        Object[] results = new Object[distinct.size()];
+        SusException[] failures = new SusException[distinct.size()];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<SusException> authFailure = new AtomicReference<>();
+
+        Runnable worker = () -> {
+            for (int i = next.getAndIncrement(); i < results.length; i = next.getAndIncrement()) {
+                if (authFailure.get() != null) {
+                    return;
+                }
+                try {
+                    results[i] = call.apply(distinct.get(i));
+                } catch (RuntimeException e) {
+                    failures[i] = e instanceof SusException ? (SusException) e : new SusException(e);
+                    failed.incrementAndGet();
+                    if (e instanceof UnauthorisedException || e instanceof ForbiddenException) {
+                        authFailure.compareAndSet(null, failures[i]);
+                    }
+                }
+                int done = completed.incrementAndGet();
+                if (listener != null) {
+                    listener.onProgress(done, failed.get(), results.length);
+                }
+            }
+        };
+
+        int workers = Math.min(concurrency, results.length);
+        CompletableFuture<?>[] running = new CompletableFuture<?>[workers];
+        for (int i = 0; i < workers; i++) {
+            running[i] = CompletableFuture.runAsync(worker, executor);
+        }
+        try {
+            CompletableFuture.allOf(running).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+        if (authFailure.get() != null) {
+            throw authFailure.get();
+        }
+
+        Map<String, T> successes = new LinkedHashMap<>();
+        Map<String, SusException> errors = new LinkedHashMap<>();
+        for (int i = 0; i < results.length; i++) {
+            if (failures[i] == null) {
+                successes.put(distinct.get(i), cast(results[i]));
+            } else {
+                errors.put(distinct.get(i), failures[i]);
+            }
+        }
+        return new BulkResult<>(successes, errors);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object result) {
+        return (T) result;
+    }
+}
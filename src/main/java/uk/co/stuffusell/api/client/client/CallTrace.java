@@ -0,0 +1,141 @@
+package uk.co.stuffusell.api.client.client;
+
+import uk.co.stuffusell.api.client.ClientSpan;
+import uk.co.stuffusell.api.client.TracePhase;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The span of a traced call and the timings of its current attempt. The transports mark each point of an attempt as
+ * it passes and the phases are reported to the span when the attempt ends. Nothing is measured for calls that are
+ * not traced.
+ */
+public class CallTrace {
+    /**
+     * The request context attribute the blocking transport's connection and execution hooks find the trace under
+     */
+    public static final String ATTRIBUTE = CallTrace.class.getName();
+
+    private final ClientSpan span;
+    private int attempts;
+    private int statusCode;
+    private long attemptStarted;
+    private long connectNanos;
+    private long requestSent;
+    private long headersReceived;
+
+    public CallTrace(ClientSpan span) {
+        this.span = span;
+    }
+
+    public ClientSpan getSpan() {
+        return span;
+    }
+
+    public void onRateLimitWait(long waitNanos) {
+        span.onPhase(TracePhase.RATE_LIMIT_WAIT, waitNanos);
+    }
+
+    public void startAttempt() {
+        attempts++;
+        statusCode = 0;
+        attemptStarted = System.nanoTime();
+        connectNanos = 0;
+        requestSent = 0;
+        headersReceived = 0;
+    }
+
+    public void onConnect(long nanos) {
+        connectNanos += nanos;
+    }
+
+    /**
+     * Mark the request as sent on a leased connection. Transports that cannot see the connection do not call this,
+     * and the time to first byte is then measured from the start of the attempt.
+     */
+    public void onRequestSent() {
+        requestSent = System.nanoTime();
+    }
+
+    public void onHeadersReceived() {
+        headersReceived = System.nanoTime();
+    }
+
+    /**
+     * End the attempt, reporting the phases up to the response headers
+     *
+     * @param statusCode the response status code, 0 if there was no response
+     */
+    public void endAttempt(int statusCode) {
+        this.statusCode = statusCode;
+        if (requestSent > 0) {
+            span.onPhase(TracePhase.POOL_LEASE, Math.max(0, requestSent - attemptStarted - connectNanos));
+            if (connectNanos > 0) {
+                span.onPhase(TracePhase.CONNECT, connectNanos);
+            }
+        }
+        if (headersReceived > 0) {
+            long sent = requestSent > 0 ? requestSent : attemptStarted;
+            span.onPhase(TracePhase.TIME_TO_FIRST_BYTE, headersReceived - sent);
+        }
+    }
+
+    /**
+     * Mark the whole response body as received, for transports that read the body before it is parsed
+     */
+    public void onBodyReceived() {
+        if (headersReceived > 0) {
+            span.onPhase(TracePhase.BODY_READ, System.nanoTime() - headersReceived);
+        }
+    }
+
+    public void onBodyRead(long nanos) {
+        span.onPhase(TracePhase.BODY_READ, nanos);
+    }
+
+    public void onDeserialize(long nanos) {
+        span.onPhase(TracePhase.DESERIALIZE, nanos);
+    }
+
+    public void end(Throwable error) {
+        span.end(statusCode, attempts, error);
+    }
+
+    /**
+     * Times the reads from a response body, so a body that is parsed as it streams in can be split into the time
+     * spent waiting for bytes and the time spent binding them
+     */
+    public static final class TimedInputStream extends FilterInputStream {
+        private long readNanos;
+
+        public TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                readNanos += System.nanoTime() - start;
+            }
+        }
+
+        public long getReadNanos() {
+            return readNanos;
+        }
+    }
+}
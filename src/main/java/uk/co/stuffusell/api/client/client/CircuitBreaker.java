@@ -0,0 +1,120 @@
+package uk.co.stuffusell.api.client.client;
+
+import uk.co.stuffusell.api.client.CircuitBreakerListener;
+import uk.co.stuffusell.api.client.CircuitBreakerOpenException;
+import uk.co.stuffusell.api.client.CircuitBreakerPolicy;
+import uk.co.stuffusell.api.client.CircuitState;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single circuit, see {@link CircuitBreakerPolicy}. All state is held in atomics so recording a call never
+ * blocks; transitions are made with compare-and-set so each one is reported to the listener exactly once.
+ */
+public class CircuitBreaker {
+    private static final long FAILURES_MASK = 0xFFFFFFFFL;
+
+    private final String name;
+    private final CircuitBreakerPolicy policy;
+    private final long slowCallThresholdNanos;
+    private final long openDurationNanos;
+    private final AtomicReference<CircuitState> state = new AtomicReference<>(CircuitState.CLOSED);
+    private final AtomicLong openedAt = new AtomicLong();
+    // calls in the high 32 bits, failures in the low 32 bits, of the current tumbling window
+    private final AtomicLong window = new AtomicLong();
+    private final AtomicInteger probesIssued = new AtomicInteger();
+    private final AtomicInteger probesSucceeded = new AtomicInteger();
+
+    public CircuitBreaker(String name, CircuitBreakerPolicy policy) {
+        this.name = name;
+        this.policy = policy;
+        this.slowCallThresholdNanos = policy.getSlowCallThresholdMillis() < 0
+                ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(policy.getSlowCallThresholdMillis());
+        this.openDurationNanos = TimeUnit.MILLISECONDS.toNanos(policy.getOpenDurationMillis());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitState getState() {
+        return state.get();
+    }
+
+    /**
+     * Check a call may be made
+     *
+     * @throws CircuitBreakerOpenException if the circuit is open, or half-open with all probes in flight
+     */
+    public void acquirePermission() {
+        CircuitState current = state.get();
+        if (current == CircuitState.CLOSED) {
+            return;
+        }
+        if (current == CircuitState.OPEN) {
+            if (System.nanoTime() - openedAt.get() < openDurationNanos) {
+                throw new CircuitBreakerOpenException(name);
+            }
+            transition(CircuitState.OPEN, CircuitState.HALF_OPEN);
+        }
+        if (state.get() != CircuitState.HALF_OPEN || probesIssued.incrementAndGet() > policy.getHalfOpenProbes()) {
+            throw new CircuitBreakerOpenException(name);
+        }
+    }
+
+    /**
+     * Record the outcome of a call
+     *
+     * @param failed        true if the call failed
+     * @param durationNanos how long the call took
+     */
+    public void onResult(boolean failed, long durationNanos) {
+        boolean failure = failed || durationNanos > slowCallThresholdNanos;
+        CircuitState current = state.get();
+        if (current == CircuitState.HALF_OPEN) {
+            if (failure) {
+                transition(CircuitState.HALF_OPEN, CircuitState.OPEN);
+            } else if (probesSucceeded.incrementAndGet() >= policy.getHalfOpenProbes()) {
+                transition(CircuitState.HALF_OPEN, CircuitState.CLOSED);
+            }
+        } else if (current == CircuitState.CLOSED && record(failure)) {
+            transition(CircuitState.CLOSED, CircuitState.OPEN);
+        }
+    }
+
+    private boolean record(boolean failure) {
+        while (true) {
+            long current = window.get();
+            long calls = (current >>> 32) + 1;
+            long failures = (current & FAILURES_MASK) + (failure ? 1 : 0);
+            boolean open = failure
+                    && calls >= policy.getMinimumCalls()
+                    && failures * 100 >= calls * policy.getFailureRateThreshold();
+            long next = open || calls >= policy.getWindowSize() ? 0 : (calls << 32) | failures;
+            if (window.compareAndSet(current, next)) {
+                return open;
+            }
+        }
+    }
+
+    private void transition(CircuitState from, CircuitState to) {
+        if (!state.compareAndSet(from, to)) {
+            return;
+        }
+        if (to == CircuitState.OPEN) {
+            openedAt.set(System.nanoTime());
+        }
+        window.set(0);
+        probesIssued.set(0);
+        probesSucceeded.set(0);
+
+        CircuitBreakerListener listener = policy.getListener();
+        if (listener != null) {
+            listener.onStateChange(name, from, to);
+        }
+    }
+}
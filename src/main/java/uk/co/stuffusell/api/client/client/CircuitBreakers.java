@@ -0,0 +1,62 @@
+package uk.co.stuffusell.api.client.client;
+
+import uk.co.stuffusell.api.client.CircuitBreakerPolicy;
+import uk.co.stuffusell.api.client.CircuitState;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The circuits for an endpoint, one for the whole endpoint or one for each API path family
+ */
+public class CircuitBreakers {
+    private static final int FAMILY_SEGMENTS = 2;
+
+    private final String endpoint;
+    private final CircuitBreakerPolicy policy;
+    private final ConcurrentMap<String, CircuitBreaker> circuits = new ConcurrentHashMap<>();
+
+    public CircuitBreakers(String endpoint, CircuitBreakerPolicy policy) {
+        this.endpoint = endpoint;
+        this.policy = policy;
+    }
+
+    /**
+     * Get the circuit a request path belongs to
+     *
+     * @param path the request path
+     * @return the circuit
+     */
+    public CircuitBreaker forPath(String path) {
+        String name = policy.isPerPathFamily() ? endpoint + family(path) : endpoint;
+        CircuitBreaker circuit = circuits.get(name);
+        return circuit == null ? circuits.computeIfAbsent(name, key -> new CircuitBreaker(key, policy)) : circuit;
+    }
+
+    /**
+     * Get the state of every circuit used so far
+     *
+     * @return the states by circuit name
+     */
+    public Map<String, CircuitState> getStates() {
+        Map<String, CircuitState> states = new TreeMap<>();
+        circuits.forEach((name, circuit) -> states.put(name, circuit.getState()));
+        return states;
+    }
+
+    static String family(String path) {
+        StringBuilder family = new StringBuilder();
+        int segments = 0;
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                family.append('/').append(segment);
+                if (++segments == FAMILY_SEGMENTS) {
+                    break;
+                }
+            }
+        }
+        return family.toString();
+    }
+}
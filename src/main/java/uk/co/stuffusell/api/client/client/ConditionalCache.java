@@ -0,0 +1,74 @@
+package uk.co.stuffusell.api.client.client;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Keeps GET responses with the validators the server sent for them, so a repeat request can ask the server
+ * whether the response has changed and reuse the already read object if it has not.
+ */
+public class ConditionalCache {
+    private final Cache<String, Entry> entries;
+
+    public ConditionalCache(int maximumSize) {
+        this.entries = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * Get the cached response for a request
+     *
+     * @param key          identifies the request, including whoever made it
+     * @param responseType the type the response is read as
+     * @return the cached response, or null if there is none for the type
+     */
+    public Entry get(String key, JavaType responseType) {
+        Entry entry = entries.getIfPresent(key);
+        return entry == null || !entry.responseType.equals(responseType) ? null : entry;
+    }
+
+    /**
+     * Cache a response if the server sent validators for it, otherwise drop any earlier response for the request
+     *
+     * @param key          identifies the request, including whoever made it
+     * @param responseType the type the response was read as
+     * @param etag         the ETag header, may be null
+     * @param lastModified the Last-Modified header, may be null
+     * @param value        the response
+     */
+    public void put(String key, JavaType responseType, String etag, String lastModified, Object value) {
+        if (etag == null && lastModified == null) {
+            entries.invalidate(key);
+        } else {
+            entries.put(key, new Entry(responseType, etag, lastModified, value));
+        }
+    }
+
+    public static final class Entry {
+        private final JavaType responseType;
+        private final String etag;
+        private final String lastModified;
+        private final Object value;
+
+        private Entry(JavaType responseType, String etag, String lastModified, Object value) {
+            this.responseType = responseType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.value = value;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package uk.co.stuffusell.api.client.client;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A point in time by which a call must complete. A deadline shared by several calls can also be cancelled, which
+ * expires it at once for all of them.
+ */
+public final class Deadline {
+    // Comparisons are made on the difference between nano times, which is only valid for spans under 2^63
+    private static final Duration MAX_TIMEOUT = Duration.ofNanos(Long.MAX_VALUE / 2);
+    private static final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final long deadlineNanos;
+    private final Set<Runnable> cancelListeners = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Get a deadline the given time from now
+     *
+     * @param timeout the time allowed
+     * @return the deadline
+     */
+    public static Deadline after(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("The timeout must not be negative");
+        }
+        long timeoutNanos = timeout.compareTo(MAX_TIMEOUT) > 0 ? MAX_TIMEOUT.toNanos() : timeout.toNanos();
+        return new Deadline(System.nanoTime() + timeoutNanos);
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+
+    public long remainingNanos() {
+        return cancelled ? 0 : deadlineNanos - System.nanoTime();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Expire the deadline now, running the cancel listeners so calls in flight under it can be aborted
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable listener : cancelListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Run a listener if the deadline is cancelled, at once if it already has been. Remove the listener when the
+     * work it cancels is done.
+     *
+     * @param listener the listener
+     */
+    public void addCancelListener(Runnable listener) {
+        cancelListeners.add(listener);
+        if (cancelled && cancelListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    public void removeCancelListener(Runnable listener) {
+        cancelListeners.remove(listener);
+    }
+
+    /**
+     * Get the time remaining in whole milliseconds, rounded up so an unexpired deadline never reports zero
+     *
+     * @return the milliseconds remaining, or zero once expired
+     */
+    public int remainingMillis() {
+        long remaining = remainingNanos();
+        if (remaining <= 0) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (remaining + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI);
+    }
+
+    /**
+     * Bound a configured timeout by the time remaining
+     *
+     * @param timeoutMillis the configured timeout in milliseconds, negative for no timeout
+     * @return the smaller of the timeout and the time remaining
+     */
+    public int bound(int timeoutMillis) {
+        int remaining = Math.max(1, remainingMillis());
+        return timeoutMillis < 0 ? remaining : Math.min(timeoutMillis, remaining);
+    }
+}
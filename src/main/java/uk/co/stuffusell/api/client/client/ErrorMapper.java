@@ -0,0 +1,89 @@
+package uk.co.stuffusell.api.client.client;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.http.HttpStatus;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import uk.co.stuffusell.api.client.ForbiddenException;
+import uk.co.stuffusell.api.client.SusException;
+import uk.co.stuffusell.api.client.SusServerException;
+import uk.co.stuffusell.api.client.UnauthorisedException;
+import uk.co.stuffusell.api.common.ErrorResponse;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Translates error responses into the client exception hierarchy. Shared by the blocking and the asynchronous
+ * transports so both surface the same exception types for the same server responses.
+ */
+public class ErrorMapper {
+    private final ObjectReader errorReader;
+
+    public ErrorMapper(JsonCodec codec) {
+        this.errorReader = codec.reader(ErrorResponse.class);
+    }
+
+    /**
+     * Map an error status code and its (optional) body to an exception
+     *
+     * @param statusCode    the HTTP status code
+     * @param statusMessage the HTTP status message, or null to use the standard reason phrase
+     * @param contentType   the response content type, may be null
+     * @param content       the response body, may be null
+     * @return the exception to throw
+     */
+    public SusException fromResponse(int statusCode, String statusMessage, String contentType, String content) {
+        String message = statusMessage == null ? reasonPhrase(statusCode) : statusMessage;
+        if (contentType != null && contentType.startsWith("application/json")) {
+            try {
+                return fromStatus(statusCode, message, errorReader.readValue(content));
+            } catch (IOException | IllegalArgumentException ignore) {
+                return fromStatus(statusCode, message, new ErrorResponse(content));
+            }
+        }
+        return fromStatus(statusCode, message, null);
+    }
+
+    /**
+     * Map an error status code to an exception
+     *
+     * @param statusCode    the HTTP status code
+     * @param statusMessage the HTTP status message
+     * @param error         the error returned by the server, may be null
+     * @return the exception to throw
+     */
+    public SusException fromStatus(int statusCode, String statusMessage, ErrorResponse error) {
+        switch (statusCode) {
+            case HttpStatus.SC_UNAUTHORIZED:
+                return new UnauthorisedException(statusCode, statusMessage, error);
+            case HttpStatus.SC_FORBIDDEN:
+                return new ForbiddenException(statusCode, statusMessage, error);
+            default:
+                return new SusServerException(statusCode, statusMessage, error);
+        }
+    }
+
+    /**
+     * Map a successful response that could not be read as the expected type. The server reports some failures
+     * with a 200 and an error body, so try to recover that before falling back to the original exception.
+     *
+     * @param content the response body, may be null
+     * @param e       the exception raised reading the body
+     * @return the exception to throw
+     */
+    public SusException fromUnreadableContent(String content, IOException e) {
+        try {
+            return new SusServerException(
+                    HttpStatus.SC_OK,
+                    "OK",
+                    errorReader.readValue(content));
+        } catch (IOException | IllegalArgumentException ignore) {
+            return new SusException(e);
+        }
+    }
+
+    private static String reasonPhrase(int statusCode) {
+        String reason = EnglishReasonPhraseCatalog.INSTANCE.getReason(statusCode, Locale.ENGLISH);
+        return reason == null ? "" : reason;
+    }
+}
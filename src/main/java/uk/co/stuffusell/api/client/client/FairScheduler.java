@@ -0,0 +1,270 @@
+package uk.co.stuffusell.api.client.client;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import uk.co.stuffusell.api.client.DeadlineExceededException;
+import uk.co.stuffusell.api.client.FairSchedulingPolicy;
+import uk.co.stuffusell.api.client.QueueFullException;
+import uk.co.stuffusell.api.client.QueueStatistics;
+import uk.co.stuffusell.api.client.RequestPriority;
+import uk.co.stuffusell.api.client.SusException;
+import uk.co.stuffusell.api.client.util.RateLimiter;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands out rate limit permits fairly between customers, by self-clocked weighted fair queuing. Each customer and
+ * priority class is a flow. A waiting call is stamped with a virtual finish time, one weight's worth after the later
+ * of its flow's last finish time and the finish time of the call last let through, and calls are let through in
+ * finish time order as permits become available. A flow with many calls waiting therefore gets its weighted share
+ * and no more, while a flow that has been idle is not owed the time it did not use.
+ * <p>
+ * A call made when nothing is waiting and a permit is free goes straight through. Otherwise one permit at a time is
+ * reserved from the rate limiter, and when it becomes usable the call then first in line is let through, so a call
+ * that arrives while a permit is being waited for can still go ahead of calls queued earlier. A permit that finds no
+ * call waiting, because the calls timed out or were cancelled, or whose call is interrupted before it can use it,
+ * is passed to the next call in line or given back to the rate limiter.
+ */
+public class FairScheduler {
+    private static final long IDLE_EXPIRY_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final Comparator<Ticket> FINISH_ORDER =
+            Comparator.<Ticket>comparingDouble(ticket -> ticket.finish).thenComparingLong(ticket -> ticket.sequence);
+
+    private final RateLimiter rateLimiter;
+    private final FairSchedulingPolicy policy;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Ticket> queue = new PriorityQueue<>(FINISH_ORDER);
+    private final Map<String, Tenant> tenants = new HashMap<>();
+    private double virtualTime;
+    private long sequence;
+    private boolean dispatchPending;
+    private long lastPruned = System.nanoTime();
+
+    public FairScheduler(RateLimiter rateLimiter, FairSchedulingPolicy policy) {
+        this.rateLimiter = rateLimiter;
+        this.policy = policy;
+    }
+
+    /**
+     * Wait for the call's turn at the rate limit
+     *
+     * @param context       the call's context, its auth token names the customer
+     * @param timeoutMillis the maximum time to wait in milliseconds, negative to wait indefinitely
+     * @param deadline      the call's deadline, may be null
+     * @return the nanoseconds waited
+     * @throws QueueFullException if the customer already has the maximum number of calls waiting
+     */
+    public long acquire(RequestContext context, int timeoutMillis, Deadline deadline) {
+        long start = System.nanoTime();
+        String authToken = context.getAuthToken() == null ? "" : context.getAuthToken();
+        int flow = context.getPriority().ordinal();
+        Ticket ticket;
+        lock.lock();
+        try {
+            prune(start);
+            Tenant tenant = tenants.computeIfAbsent(authToken, ignore -> new Tenant(context.getAuthToken()));
+            tenant.lastActive = start;
+            if (queue.isEmpty() && !dispatchPending && rateLimiter.tryReserve(0, TimeUnit.NANOSECONDS) >= 0) {
+                virtualTime = tenant.finish(flow, virtualTime, context.getPriority());
+                tenant.onDispatched(0);
+                return 0;
+            }
+            if (tenant.queued >= policy.getMaxQueuedPerCustomer()) {
+                throw new QueueFullException("Too many calls waiting for the rate limit");
+            }
+
+            ticket = new Ticket(
+                    tenant, tenant.finish(flow, virtualTime, context.getPriority()), sequence++, lock.newCondition());
+            queue.add(ticket);
+            tenant.queued++;
+            if (!dispatchPending) {
+                scheduleDispatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        Runnable wake = () -> signal(ticket);
+        if (deadline != null) {
+            deadline.addCancelListener(wake);
+        }
+        lock.lock();
+        try {
+            long timeoutNanos = timeoutMillis < 0 ? Long.MAX_VALUE : TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            while (!ticket.granted) {
+                long waited = System.nanoTime() - start;
+                boolean deadlineFirst = deadline != null && deadline.remainingNanos() < timeoutNanos - waited;
+                long remaining = deadlineFirst ? deadline.remainingNanos() : timeoutNanos - waited;
+                if (remaining <= 0) {
+                    withdraw(ticket);
+                    if (!deadlineFirst) {
+                        throw new SusException("Timed out waiting for the rate limit");
+                    }
+                    throw new DeadlineExceededException(deadline.isCancelled()
+                            ? "Call cancelled"
+                            : "Deadline exceeded waiting for the rate limit");
+                }
+                ticket.ready.awaitNanos(remaining);
+            }
+            long waited = System.nanoTime() - start;
+            ticket.tenant.onDispatched(waited);
+            return waited;
+        } catch (InterruptedException e) {
+            if (ticket.granted) {
+                handOver();
+            } else {
+                withdraw(ticket);
+            }
+            Thread.currentThread().interrupt();
+            throw new SusException(e);
+        } finally {
+            lock.unlock();
+            if (deadline != null) {
+                deadline.removeCancelListener(wake);
+            }
+        }
+    }
+
+    /**
+     * Get a snapshot of each customer's queue. Customers are dropped five minutes after their last call.
+     *
+     * @return the statistics by {@link QueueStatistics#customerKey(String) customer key}
+     */
+    public Map<String, QueueStatistics> getStatistics() {
+        Map<String, QueueStatistics> statistics = new HashMap<>();
+        lock.lock();
+        try {
+            tenants.values().forEach(tenant -> statistics.put(tenant.key, new QueueStatistics(
+                    tenant.queued,
+                    tenant.dispatched,
+                    Duration.ofNanos(tenant.totalWaitNanos),
+                    Duration.ofNanos(tenant.maxWaitNanos))));
+        } finally {
+            lock.unlock();
+        }
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private void scheduleDispatch() {
+        dispatchPending = true;
+        Dispatcher.SCHEDULER.schedule(this::dispatch, rateLimiter.reserve(), TimeUnit.NANOSECONDS);
+    }
+
+    private void dispatch() {
+        lock.lock();
+        try {
+            handOver();
+            if (queue.isEmpty()) {
+                dispatchPending = false;
+            } else {
+                scheduleDispatch();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Let the first call in line use a permit that has become usable, or give the permit back if none is waiting
+     */
+    private void handOver() {
+        Ticket ticket = queue.poll();
+        if (ticket == null) {
+            rateLimiter.release();
+            return;
+        }
+        virtualTime = ticket.finish;
+        ticket.tenant.queued--;
+        ticket.granted = true;
+        ticket.ready.signal();
+    }
+
+    private void withdraw(Ticket ticket) {
+        queue.remove(ticket);
+        ticket.tenant.queued--;
+    }
+
+    private void signal(Ticket ticket) {
+        lock.lock();
+        try {
+            ticket.ready.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void prune(long now) {
+        if (now - lastPruned < IDLE_EXPIRY_NANOS) {
+            return;
+        }
+        lastPruned = now;
+        Iterator<Tenant> iterator = tenants.values().iterator();
+        while (iterator.hasNext()) {
+            Tenant tenant = iterator.next();
+            if (tenant.queued == 0 && now - tenant.lastActive >= IDLE_EXPIRY_NANOS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private final class Tenant {
+        private final String key;
+        private final double[] lastFinish = new double[RequestPriority.values().length];
+        private int queued;
+        private long dispatched;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+        private long lastActive;
+
+        private Tenant(String authToken) {
+            this.key = QueueStatistics.customerKey(authToken);
+        }
+
+        private double finish(int flow, double virtualTime, RequestPriority priority) {
+            lastFinish[flow] = Math.max(virtualTime, lastFinish[flow]) + 1.0 / policy.getWeight(priority);
+            return lastFinish[flow];
+        }
+
+        private void onDispatched(long waitNanos) {
+            dispatched++;
+            totalWaitNanos += waitNanos;
+            maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        }
+    }
+
+    private static final class Ticket {
+        private final Tenant tenant;
+        private final double finish;
+        private final long sequence;
+        private final Condition ready;
+        private boolean granted;
+
+        private Ticket(Tenant tenant, double finish, long sequence, Condition ready) {
+            this.tenant = tenant;
+            this.finish = finish;
+            this.sequence = sequence;
+            this.ready = ready;
+        }
+    }
+
+    private static final class Dispatcher {
+        private static final ScheduledExecutorService SCHEDULER = makeScheduler();
+
+        private static ScheduledExecutorService makeScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                    1, new ThreadFactoryBuilder().setNameFormat("sus-scheduler-%d").setDaemon(true).build());
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package uk.co.stuffusell.api.client.client;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.HttpUriRequest;
+import uk.co.stuffusell.api.client.Configuration;
+import uk.co.stuffusell.api.client.RequestInterceptor;
+
+/**
+ * The headers the client adds to every request, as the first request interceptors in the chain
+ */
+public final class HeaderInterceptors {
+    static final String HEADER_ACCESS_TOKEN = "X-Access-Token";
+    static final String HEADER_REMOTE_IP = "X-Remote-IP";
+    static final String HEADER_REMOTE_UA = "X-Remote-UA";
+    static final String HEADER_AUTH = HttpHeaders.AUTHORIZATION;
+    static final String HEADER_USER_AGENT = HttpHeaders.USER_AGENT;
+
+    /**
+     * Adds the customer's auth token and the end user's IP address and user agent from the {@link RequestContext}
+     */
+    public static final RequestInterceptor REQUEST_CONTEXT = (request, context) -> {
+        addHeader(request, HEADER_AUTH, context.getAuthToken());
+        addHeader(request, HEADER_REMOTE_IP, context.getIpAddress());
+        addHeader(request, HEADER_REMOTE_UA, context.getUserAgent());
+    };
+
+    private HeaderInterceptors() {
+    }
+
+    /**
+     * Make the interceptor that adds the client's access token and user agent
+     *
+     * @param configuration the client configuration
+     * @return the interceptor
+     */
+    public static RequestInterceptor client(Configuration configuration) {
+        String accessToken = configuration.getAccessToken();
+        String userAgent = configuration.getUserAgent();
+        return (request, context) -> {
+            request.addHeader(HEADER_ACCESS_TOKEN, accessToken);
+            request.addHeader(HEADER_USER_AGENT, userAgent);
+            request.addHeader("Accepts", "application/json");
+        };
+    }
+
+    private static void addHeader(HttpUriRequest request, String name, String value) {
+        if (value != null && !value.isEmpty()) {
+            request.addHeader(name, value);
+        }
+    }
+}
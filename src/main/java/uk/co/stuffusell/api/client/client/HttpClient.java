@@ -1,133 +1,831 @@
 package uk.co.stuffusell.api.client.client;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpClientConnection;
 import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
 import org.apache.http.HttpHeaders;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.entity.StringEntity;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.UnsupportedSchemeException;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.DefaultHttpClientConnectionOperator;
+import org.apache.http.impl.conn.DefaultSchemePortResolver;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
 import org.apache.http.util.EntityUtils;
+import uk.co.stuffusell.api.client.CircuitState;
+import uk.co.stuffusell.api.client.ClientMetrics;
+import uk.co.stuffusell.api.client.ClientTracer;
 import uk.co.stuffusell.api.client.Configuration;
-import uk.co.stuffusell.api.client.ForbiddenException;
+import uk.co.stuffusell.api.client.DeadlineExceededException;
+import uk.co.stuffusell.api.client.PoolStatistics;
+import uk.co.stuffusell.api.client.QueueStatistics;
 import uk.co.stuffusell.api.client.SusException;
-import uk.co.stuffusell.api.client.SusServerException;
-import uk.co.stuffusell.api.client.UnauthorisedException;
-import uk.co.stuffusell.api.client.util.ObjectMapperFactory;
+import uk.co.stuffusell.api.client.util.Gzip;
+import uk.co.stuffusell.api.client.util.PathTemplates;
 import uk.co.stuffusell.api.client.util.RateLimiter;
+import uk.co.stuffusell.api.client.util.ReplayInputStream;
 import uk.co.stuffusell.api.client.util.RequestParameterMapper;
-import uk.co.stuffusell.api.common.ErrorResponse;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class HttpClient {
-    private static final String HEADER_ACCESS_TOKEN = "X-Access-Token";
-    private static final String HEADER_REMOTE_IP = "X-Remote-IP";
-    private static final String HEADER_REMOTE_UA = "X-Remote-UA";
-    private static final String HEADER_AUTH = HttpHeaders.AUTHORIZATION;
-    private static final String HEADER_USER_AGENT = "User-Agent";
-    private static final int TIMEOUT_MILLIS = -1;
+public class HttpClient implements AutoCloseable {
+    private static final String HEADER_IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int ERROR_REPLAY_LIMIT = 4096;
 
-    private final RequestParameterMapper parameterMapper = new RequestParameterMapper();
-    private final ObjectMapper objectMapper = ObjectMapperFactory.make();
+    private final RequestParameterMapper parameterMapper;
+    private final JsonCodec codec;
+    private final ErrorMapper errorMapper;
     private final Configuration configuration;
+    private final RequestConfig requestConfig;
+    private final PoolingHttpClientConnectionManager connectionManager;
     private final CloseableHttpClient httpClient;
-    private final ThreadLocal<HttpClientContext> httpContext = new ThreadLocal<>();
+    private final Semaphore connectionPermits;
     private final RateLimiter rateLimiter;
+    private final RateLimitFeedback rateLimitFeedback;
+    private final FairScheduler scheduler;
+    private final Retrier retrier;
+    private final CircuitBreakers circuitBreakers;
+    private final ConditionalCache conditionalCache;
+    private final ClientMetrics metrics;
+    private final ClientTracer tracer;
+    private final Interceptors interceptors;
+    private final ConcurrentMap<FlightKey, CompletableFuture<Object>> inFlight;
+    private final Deadline deadline;
 
     public HttpClient(Configuration configuration) {
+        this(configuration, JsonCodec.make(configuration));
+    }
+
+    public HttpClient(Configuration configuration, JsonCodec codec) {
+        this.parameterMapper = new RequestParameterMapper(codec.getObjectMapper());
+        this.codec = codec;
+        this.errorMapper = new ErrorMapper(codec);
         this.configuration = configuration;
+        this.metrics = configuration.getMetrics();
+        this.tracer = configuration.getTracer();
+        this.interceptors = Interceptors.make(configuration);
+        this.inFlight = configuration.isRequestCoalescing() ? new ConcurrentHashMap<>() : null;
+        this.requestConfig = RequestConfig.custom()
+                .setConnectTimeout(configuration.getConnectTimeoutMillis())
+                .setSocketTimeout(configuration.getSocketTimeoutMillis())
+                .setConnectionRequestTimeout(configuration.getConnectionRequestTimeoutMillis())
+                .build();
+        this.retrier = new Retrier(configuration.getRetryPolicy());
+        this.circuitBreakers = configuration.getCircuitBreakerPolicy() == null
+                ? null
+                : new CircuitBreakers(configuration.getEndpoint(), configuration.getCircuitBreakerPolicy());
+        this.conditionalCache = configuration.getConditionalCacheSize() > 0
+                ? new ConditionalCache(configuration.getConditionalCacheSize())
+                : null;
+        this.connectionManager = makeConnectionManager(configuration);
         this.httpClient = makeHttpClient(configuration);
+        this.connectionPermits = new Semaphore(
+                Math.min(connectionManager.getMaxTotal(), connectionManager.getDefaultMaxPerRoute()), true);
         this.rateLimiter = new RateLimiter(configuration.getRequestsPerSecond(), configuration.getRequestBurstSize());
+        this.rateLimitFeedback = configuration.isAdaptiveRateLimit()
+                ? new RateLimitFeedback(rateLimiter, configuration)
+                : null;
+        this.scheduler = configuration.getFairSchedulingPolicy() == null
+                ? null
+                : new FairScheduler(rateLimiter, configuration.getFairSchedulingPolicy());
+        this.deadline = null;
+        if (metrics != null) {
+            metrics.bindPool(this::getPoolStatistics);
+        }
+    }
+
+    private HttpClient(HttpClient parent, Deadline deadline) {
+        this.parameterMapper = parent.parameterMapper;
+        this.codec = parent.codec;
+        this.errorMapper = parent.errorMapper;
+        this.configuration = parent.configuration;
+        this.requestConfig = parent.requestConfig;
+        this.connectionManager = parent.connectionManager;
+        this.httpClient = parent.httpClient;
+        this.connectionPermits = parent.connectionPermits;
+        this.rateLimiter = parent.rateLimiter;
+        this.rateLimitFeedback = parent.rateLimitFeedback;
+        this.scheduler = parent.scheduler;
+        this.retrier = parent.retrier;
+        this.circuitBreakers = parent.circuitBreakers;
+        this.conditionalCache = parent.conditionalCache;
+        this.metrics = parent.metrics;
+        this.tracer = parent.tracer;
+        this.interceptors = parent.interceptors;
+        this.inFlight = parent.inFlight;
+        this.deadline = deadline;
+    }
+
+    /**
+     * Get a view of this client that shares its connections and limits but fails any call that is not complete by
+     * the deadline. The time left is applied to the wait for a pooled connection, the connect and each read, and a
+     * request still in flight when the deadline passes is aborted.
+     *
+     * @param deadline the deadline
+     * @return the view
+     */
+    public HttpClient withDeadline(Deadline deadline) {
+        return new HttpClient(this, deadline);
     }
 
+    /**
+     * Get a resource for the customer and end user set on the calling thread's {@link RequestContext#get() context},
+     * which is left in place. Prefer the overload that takes the context.
+     *
+     * @param path         the request path
+     * @param parameters   the query parameters, may be null
+     * @param responseType the response type
+     * @param <T>          the response type
+     * @return the response
+     */
     public <T> T get(String path, Map<String, String> parameters, Class<T> responseType) {
-        return executeAndTransform(new HttpGet(getUri(path, parameters)), responseType);
+        return get(path, parameters, responseType, threadContext());
     }
 
+    /**
+     * Get a resource for the customer and end user set on the calling thread's {@link RequestContext#get() context},
+     * which is left in place. Prefer the overload that takes the context.
+     *
+     * @param path         the request path
+     * @param parameters   the query parameters, may be null
+     * @param responseType the response type
+     * @param <T>          the response type
+     * @return the response
+     */
     public <T> T get(String path, Map<String, String> parameters, TypeReference<T> responseType) {
-        return executeAndTransform(new HttpGet(getUri(path, parameters)), responseType);
+        return get(path, parameters, responseType, threadContext());
     }
 
+    /**
+     * Post a request for the customer and end user set on the calling thread's
+     * {@link RequestContext#get() context}, which is left in place. Prefer the overload that takes the context.
+     *
+     * @param path         the request path
+     * @param data         the payload
+     * @param responseType the response type
+     * @param <T>          the response type
+     * @return the response
+     */
     public <T> T post(String path, Object data, Class<T> responseType) {
-        HttpPost request = setPayload(new HttpPost(getUri(path, null)), data);
-        return executeAndTransform(request, responseType);
+        return post(path, data, responseType, threadContext());
     }
 
+    /**
+     * Delete a resource for the customer and end user set on the calling thread's
+     * {@link RequestContext#get() context}, which is left in place. Prefer the overload that takes the context.
+     *
+     * @param path         the request path
+     * @param parameters   the query parameters, may be null
+     * @param responseType the response type
+     * @param <T>          the response type
+     * @return the response
+     */
     public <T> T delete(String path, Map<String, String> parameters, Class<T> responseType) {
-        return executeAndTransform(new HttpDelete(getUri(path, parameters)), responseType);
+        return delete(path, parameters, responseType, threadContext());
     }
 
-    private <T> T executeAndTransform(HttpUriRequest request, Class<T> responseType) {
-        String content = null;
+    public <T> T get(String path, Map<String, String> parameters, Class<T> responseType, RequestContext context) {
+        return execute(new HttpGet(getUri(path, parameters)), codec.reader(responseType), context);
+    }
+
+    public <T> T get(
+            String path, Map<String, String> parameters, TypeReference<T> responseType, RequestContext context) {
+        return execute(new HttpGet(getUri(path, parameters)), codec.reader(responseType.getType()), context);
+    }
+
+    public <T> T post(String path, Object data, Class<T> responseType, RequestContext context) {
+        return post(path, data, responseType, false, context);
+    }
+
+    /**
+     * Post a request. An idempotent request is sent with an idempotency key, so the server can recognise a
+     * repeat, and may be retried.
+     *
+     * @param path         the request path
+     * @param data         the payload
+     * @param responseType the response type
+     * @param idempotent   true if the request is safe to retry
+     * @param context      the request context
+     * @param <T>          the response type
+     * @return the response
+     */
+    public <T> T post(String path, Object data, Class<T> responseType, boolean idempotent, RequestContext context) {
+        HttpPost request = setPayload(new HttpPost(getUri(path, null)), data);
+        if (idempotent) {
+            request.addHeader(HEADER_IDEMPOTENCY_KEY, UUID.randomUUID().toString());
+        }
+        return execute(request, codec.reader(responseType), context);
+    }
+
+    public <T> T delete(String path, Map<String, String> parameters, Class<T> responseType, RequestContext context) {
+        return execute(new HttpDelete(getUri(path, parameters)), codec.reader(responseType), context);
+    }
+
+    /**
+     * Get the state of each circuit used so far
+     *
+     * @return the states by circuit name, empty if the circuit breaker is disabled
+     */
+    public Map<String, CircuitState> getCircuitStates() {
+        return circuitBreakers == null ? Collections.emptyMap() : circuitBreakers.getStates();
+    }
+
+    /**
+     * Get a snapshot of each customer's fair scheduling queue
+     *
+     * @return the statistics by {@link QueueStatistics#customerKey(String) customer key}, empty if fair scheduling
+     * is disabled
+     */
+    public Map<String, QueueStatistics> getQueueStatistics() {
+        return scheduler == null ? Collections.emptyMap() : scheduler.getStatistics();
+    }
+
+    /**
+     * Get the connection pool counters
+     *
+     * @return the pool statistics
+     */
+    public PoolStatistics getPoolStatistics() {
+        PoolStats stats = connectionManager.getTotalStats();
+        return new PoolStatistics(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax());
+    }
+
+    /**
+     * Close the pooled connections and stop the idle connection reaper. Views made with
+     * {@link #withDeadline(Deadline)} share the connections, so closing any of them closes them all.
+     */
+    @Override
+    public void close() {
         try {
-            content = execute(request);
-            return content == null ? null : objectMapper.readValue(content, responseType);
+            httpClient.close();
         } catch (IOException e) {
-            throw throwError(content, e);
+            throw new SusException(e);
         }
     }
 
-    private <T> T executeAndTransform(HttpUriRequest request, TypeReference<T> responseType) {
-        String content = null;
+    /**
+     * Open connections to the endpoint and leave them in the pool, so later requests do not wait for a connect and
+     * handshake. The first connection is opened on its own so the TLS session it negotiates can be resumed by the
+     * rest, which are opened in parallel on threads of their own, never on a caller's executor, so warming up from a
+     * task on a bounded executor cannot starve itself. Connections already in the pool count towards the total.
+     * The warmed connections are kept for the configured keep-alive.
+     *
+     * @param connections the number of connections wanted, capped at the maximum connections per route
+     * @return the number of connections open in the pool
+     */
+    public int warmUp(int connections) {
+        HttpRoute route = getRoute();
+        List<HttpClientConnection> leased = new ArrayList<>();
         try {
-            content = execute(request);
-            return content == null ? null : objectMapper.readValue(content, responseType);
+            // Hold every connection until all are open, otherwise the pool would hand the same one back each time
+            for (int i = 0; i < Math.min(connections, configuration.getMaxConnectionsPerRoute()); i++) {
+                leased.add(connectionManager.requestConnection(route, null)
+                        .get(requestConfig.getConnectionRequestTimeout(), TimeUnit.MILLISECONDS));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | IOException ignore) {
+            // Warm up as many connections as the pool would give
+        }
+
+        int open = 0;
+        List<HttpClientConnection> closed = new ArrayList<>();
+        for (HttpClientConnection connection : leased) {
+            if (connection.isOpen()) {
+                open++;
+            } else {
+                closed.add(connection);
+            }
+        }
+        if (!closed.isEmpty() && connect(closed.get(0), route)) {
+            open++;
+        }
+        if (closed.size() > 1) {
+            ExecutorService connectors = Executors.newFixedThreadPool(
+                    closed.size() - 1,
+                    new ThreadFactoryBuilder().setNameFormat("sus-warm-up-%d").setDaemon(true).build());
+            try {
+                List<CompletableFuture<Boolean>> connects = new ArrayList<>();
+                for (HttpClientConnection connection : closed.subList(1, closed.size())) {
+                    connects.add(CompletableFuture.supplyAsync(() -> connect(connection, route), connectors));
+                }
+                for (CompletableFuture<Boolean> connect : connects) {
+                    if (connect.join()) {
+                        open++;
+                    }
+                }
+            } finally {
+                connectors.shutdown();
+            }
+        }
+
+        int keepAliveMillis = Math.max(0, configuration.getKeepAliveMillis());
+        for (HttpClientConnection connection : leased) {
+            connectionManager.releaseConnection(connection, null, keepAliveMillis, TimeUnit.MILLISECONDS);
+        }
+        return open;
+    }
+
+    private boolean connect(HttpClientConnection connection, HttpRoute route) {
+        HttpClientContext context = HttpClientContext.create();
+        try {
+            // As the request path does, -1 means no timeout, which the connection manager takes as 0
+            connectionManager.connect(connection, route, Math.max(0, requestConfig.getConnectTimeout()), context);
+            connectionManager.routeComplete(connection, route, context);
+            return true;
         } catch (IOException e) {
-            throw throwError(content, e);
+            try {
+                connection.shutdown();
+            } catch (IOException ignore) {
+            }
+            return false;
         }
     }
 
+    private HttpRoute getRoute() {
+        // Must match the route the client plans for a request, or the pooled connections would never be used
+        HttpHost target = URIUtils.extractHost(URI.create(configuration.getEndpoint()));
+        try {
+            return new HttpRoute(
+                    new HttpHost(
+                            target.getHostName(),
+                            DefaultSchemePortResolver.INSTANCE.resolve(target),
+                            target.getSchemeName()),
+                    null,
+                    "https".equalsIgnoreCase(target.getSchemeName()));
+        } catch (UnsupportedSchemeException e) {
+            throw new SusException(e);
+        }
+    }
 
-    private String execute(HttpUriRequest request) throws IOException {
-        if (configuration.isBlockTillRateLimitReset()) {
-            rateLimiter.blockTillRateLimitReset();
+    @SuppressWarnings("unchecked")
+    private <T> T execute(HttpRequestBase request, ObjectReader responseReader, RequestContext context) {
+        interceptors.onRequest(request, context);
+        if (!interceptors.hasCallInterceptors()) {
+            return coalesce(request, responseReader, context);
         }
+        return (T) interceptors.call(
+                request, responseReader.getValueType(), () -> coalesce(request, responseReader, context));
+    }
 
-        String authToken = RequestContext.get().getAuthToken();
-        if (authToken != null && !authToken.isEmpty()) {
-            request.addHeader(HEADER_AUTH, authToken);
+    /**
+     * Make the call, or wait for an identical GET already in flight and share its outcome
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(HttpRequestBase request, ObjectReader responseReader, RequestContext context) {
+        if (inFlight == null || !HttpGet.METHOD_NAME.equals(request.getMethod())) {
+            return call(request, responseReader, context);
         }
-        String ipAddress = RequestContext.get().getIpAddress();
-        if (ipAddress != null && !ipAddress.isEmpty()) {
-            request.addHeader(HEADER_REMOTE_IP, ipAddress);
+
+        FlightKey key = new FlightKey(getCacheKey(request), responseReader.getValueType());
+        CompletableFuture<Object> flight = new CompletableFuture<>();
+        CompletableFuture<Object> leader = inFlight.putIfAbsent(key, flight);
+        if (leader != null) {
+            if (metrics != null) {
+                metrics.onCoalesced(request.getMethod(), PathTemplates.normalize(request.getURI().getPath()));
+            }
+            return (T) await(leader, request, responseReader, context);
         }
-        String userAgent = RequestContext.get().getUserAgent();
-        if (userAgent != null && !userAgent.isEmpty()) {
-            request.addHeader(HEADER_REMOTE_UA, userAgent);
+
+        try {
+            T value = call(request, responseReader, context);
+            // Leave the map before completing, so no caller can join a flight that has landed
+            inFlight.remove(key, flight);
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
         }
-        request.addHeader(HEADER_ACCESS_TOKEN, configuration.getAccessToken());
-        request.addHeader(HEADER_USER_AGENT, configuration.getUserAgent());
-        request.addHeader("Accepts", "application/json");
+    }
+
+    private Object await(
+            CompletableFuture<Object> leader,
+            HttpRequestBase request,
+            ObjectReader responseReader,
+            RequestContext context) {
+        try {
+            return deadline == null
+                    ? leader.get()
+                    : leader.get(Math.max(0, deadline.remainingNanos()), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DeadlineExceededException && (deadline == null || !deadline.isExpired())) {
+                // The leader ran out of its own time, this caller still has some
+                return call(request, responseReader, context);
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (RuntimeException) cause;
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(
+                    deadline.isCancelled() ? "Call cancelled" : "Deadline exceeded", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SusException(e);
+        }
+    }
+
+    private <T> T call(HttpRequestBase request, ObjectReader responseReader, RequestContext context) {
+        String pathTemplate = metrics == null && tracer == null
+                ? null
+                : PathTemplates.normalize(request.getURI().getPath());
+        if (tracer == null) {
+            return execute(request, responseReader, pathTemplate, null, context);
+        }
+
+        CallTrace trace = new CallTrace(
+                tracer.startSpan(configuration.getEndpoint(), request.getMethod(), pathTemplate));
+        trace.getSpan().inject(request::setHeader);
+        try {
+            T value = execute(request, responseReader, pathTemplate, trace, context);
+            trace.end(null);
+            return value;
+        } catch (RuntimeException | Error e) {
+            trace.end(e);
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T execute(
+            HttpRequestBase request,
+            ObjectReader responseReader,
+            String pathTemplate,
+            CallTrace trace,
+            RequestContext requestContext) {
+        retrier.onRequest();
+        CircuitBreaker circuitBreaker = circuitBreakers == null
+                ? null
+                : circuitBreakers.forPath(request.getURI().getPath());
+        String cacheKey = conditionalCache == null || !HttpGet.METHOD_NAME.equals(request.getMethod())
+                ? null
+                : getCacheKey(request);
+        ConditionalCache.Entry cached = cacheKey == null
+                ? null
+                : conditionalCache.get(cacheKey, responseReader.getValueType());
+        if (cached != null) {
+            addValidators(request, cached);
+        }
+
+        int throttleRetries = 0;
+        int retries = 0;
+        while (true) {
+            checkDeadline(null);
+            long rateLimitWait = scheduler == null
+                    ? acquireRateLimit(throttleRetries + retries > 0)
+                    : scheduler.acquire(requestContext, configuration.getRateLimitTimeoutMillis(), deadline);
+            if (rateLimitWait >= 0 && metrics != null) {
+                metrics.onRateLimitWait(rateLimitWait);
+            }
+            if (rateLimitWait >= 0 && trace != null) {
+                trace.onRateLimitWait(rateLimitWait);
+            }
+            if (circuitBreaker != null) {
+                circuitBreaker.acquirePermission();
+            }
+
+            SusException failure;
+            long start = System.nanoTime();
+            boolean recorded = circuitBreaker == null;
+            int statusCode = 0;
+            CountingEntity responseEntity = null;
+            Runnable releaseDeadline = applyDeadline(request);
+            HttpClientContext context = null;
+            if (trace != null) {
+                trace.startAttempt();
+                context = HttpClientContext.create();
+                context.setAttribute(CallTrace.ATTRIBUTE, trace);
+            }
+            try (ConnectionPermit permit = acquireConnectionPermit(request);
+                 CloseableHttpResponse response = httpClient.execute(request, context)) {
+                statusCode = response.getStatusLine().getStatusCode();
+                interceptors.onResponse(request, response);
+                if (metrics != null) {
+                    responseEntity = CountingEntity.wrap(response);
+                }
+                if (!recorded) {
+                    circuitBreaker.onResult(
+                            statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR, System.nanoTime() - start);
+                    recorded = true;
+                }
+                if (rateLimitFeedback != null
+                        && rateLimitFeedback.onResponse(statusCode, name -> getHeader(response, name)) >= 0
+                        && throttleRetries < configuration.getMaxThrottleRetries()) {
+                    EntityUtils.consume(response.getEntity());
+                    throttleRetries++;
+                    onRetry(request, pathTemplate);
+                    continue;
+                }
+
+                if (cached != null && statusCode == HttpStatus.SC_NOT_MODIFIED) {
+                    EntityUtils.consume(response.getEntity());
+                    return (T) cached.getValue();
+                }
 
-        try (CloseableHttpResponse response = httpClient.execute(request, getHttpContext())) {
-            if (response.getStatusLine().getStatusCode() >= HttpStatus.SC_BAD_REQUEST) {
-                throw throwError(response);
+                if (statusCode < HttpStatus.SC_BAD_REQUEST) {
+                    T value = readEntity(response, responseReader, trace);
+                    if (cacheKey != null) {
+                        conditionalCache.put(
+                                cacheKey,
+                                responseReader.getValueType(),
+                                getHeader(response, HttpHeaders.ETAG),
+                                getHeader(response, HttpHeaders.LAST_MODIFIED),
+                                value);
+                    }
+                    return value;
+                }
+
+                failure = throwError(response);
+                if (!retrier.isRetryable(statusCode)) {
+                    throw failure;
+                }
+            } catch (IOException e) {
+                checkDeadline(e);
+                failure = new SusException(e);
+            } catch (SusException e) {
+                // A body cut off by the abort surfaces as an unreadable response
+                if (e.getCause() instanceof IOException) {
+                    checkDeadline(e.getCause());
+                }
+                throw e;
+            } finally {
+                if (releaseDeadline != null) {
+                    releaseDeadline.run();
+                }
+                if (!recorded) {
+                    circuitBreaker.onResult(true, System.nanoTime() - start);
+                }
+                if (trace != null) {
+                    trace.endAttempt(statusCode);
+                }
+                if (metrics != null) {
+                    metrics.onRequest(
+                            request.getMethod(),
+                            pathTemplate,
+                            statusCode,
+                            System.nanoTime() - start,
+                            getContentLength(request),
+                            responseEntity == null ? 0 : responseEntity.getCount());
+                }
             }
 
-            return readEntity(response);
+            if (!isIdempotent(request)) {
+                throw failure;
+            }
+            long backoff = retrier.nextBackoffMillis(
+                    request.getMethod(), request.getURI().getPath(), ++retries, failure);
+            if (backoff < 0
+                    || deadline != null && TimeUnit.MILLISECONDS.toNanos(backoff) >= deadline.remainingNanos()) {
+                throw failure;
+            }
+            onRetry(request, pathTemplate);
+            await(TimeUnit.MILLISECONDS.toNanos(backoff));
+        }
+    }
+
+    private void onRetry(HttpRequestBase request, String pathTemplate) {
+        if (metrics != null) {
+            metrics.onRetry(request.getMethod(), pathTemplate);
+        }
+    }
+
+    private static long getContentLength(HttpRequestBase request) {
+        HttpEntity entity = request instanceof HttpEntityEnclosingRequest
+                ? ((HttpEntityEnclosingRequest) request).getEntity()
+                : null;
+        return entity == null ? 0 : Math.max(0, entity.getContentLength());
+    }
+
+    private static String getCacheKey(HttpRequestBase request) {
+        // Responses are per customer, so the same URI fetched with another auth token is a different response
+        Header authToken = request.getFirstHeader(HeaderInterceptors.HEADER_AUTH);
+        return authToken == null ? request.getURI().toString() : authToken.getValue() + ' ' + request.getURI();
+    }
+
+    private static void addValidators(HttpRequestBase request, ConditionalCache.Entry cached) {
+        if (cached.getEtag() != null) {
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+        }
+        if (cached.getLastModified() != null) {
+            request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+    }
+
+    /**
+     * Bound the request's timeouts by the deadline and abort it when the deadline passes or is cancelled
+     *
+     * @return releases the request from the deadline once the attempt is over, null if there is no deadline
+     */
+    private Runnable applyDeadline(HttpRequestBase request) {
+        if (deadline == null) {
+            request.setConfig(requestConfig);
+            return null;
+        }
+
+        request.setConfig(RequestConfig.copy(requestConfig)
+                .setConnectTimeout(deadline.bound(requestConfig.getConnectTimeout()))
+                .setSocketTimeout(deadline.bound(requestConfig.getSocketTimeout()))
+                .setConnectionRequestTimeout(deadline.bound(requestConfig.getConnectionRequestTimeout()))
+                .build());
+        ScheduledFuture<?> abort = Aborter.SCHEDULER.schedule(
+                request::abort, deadline.remainingNanos(), TimeUnit.NANOSECONDS);
+        Runnable cancel = request::abort;
+        deadline.addCancelListener(cancel);
+        return () -> {
+            abort.cancel(false);
+            deadline.removeCancelListener(cancel);
+        };
+    }
+
+    private static RequestContext threadContext() {
+        // Copied, so the call never shares the context the caller goes on changing
+        RequestContext context = RequestContext.get();
+        return context.forCall(context.getAuthToken());
+    }
+
+    private void checkDeadline(Throwable cause) {
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException(deadline.isCancelled() ? "Call cancelled" : "Deadline exceeded", cause);
+        }
+    }
+
+    private static boolean isIdempotent(HttpRequestBase request) {
+        return !HttpPost.METHOD_NAME.equals(request.getMethod()) || request.containsHeader(HEADER_IDEMPOTENCY_KEY);
+    }
+
+    /**
+     * Wait for a reserved rate limit permit or a retry backoff, waking early if the deadline is cancelled
+     */
+    private void await(long waitNanos) {
+        if (waitNanos <= 0) {
+            return;
+        }
+        Thread waiter = Thread.currentThread();
+        Runnable wake = () -> LockSupport.unpark(waiter);
+        if (deadline != null) {
+            deadline.addCancelListener(wake);
+        }
+        try {
+            long until = System.nanoTime() + waitNanos;
+            for (long remaining = waitNanos; remaining > 0; remaining = until - System.nanoTime()) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new SusException(new InterruptedException());
+                }
+                checkDeadline(null);
+            }
+        } finally {
+            if (deadline != null) {
+                deadline.removeCancelListener(wake);
+            }
+        }
+    }
+
+    /**
+     * Wait for the rate limit, if it applies to the request
+     *
+     * @return the nanoseconds waited, -1 if the rate limit does not apply
+     */
+    private long acquireRateLimit(boolean retry) {
+        if (!retry && !configuration.isBlockTillRateLimitReset()) {
+            return -1;
+        }
+
+        long start = System.nanoTime();
+        try {
+            int timeout = configuration.getRateLimitTimeoutMillis();
+            if (deadline != null) {
+                // Reserve rather than block in the limiter so a cancelled deadline can wake the wait
+                int bounded = deadline.bound(timeout);
+                long waitNanos = rateLimiter.tryReserve(bounded, TimeUnit.MILLISECONDS);
+                if (waitNanos < 0) {
+                    throw bounded == timeout
+                            ? new SusException("Timed out waiting for the rate limit")
+                            : new DeadlineExceededException("Deadline exceeded waiting for the rate limit");
+                }
+                await(waitNanos);
+            } else if (timeout < 0) {
+                rateLimiter.acquire();
+            } else if (!rateLimiter.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new SusException("Timed out waiting for the rate limit");
+            }
+            return System.nanoTime() - start;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SusException(e);
+        }
+    }
+
+    /**
+     * Wait for a free connection before entering the pool. The pool waits for a connection while holding a monitor,
+     * which pins a virtual thread to its carrier, so callers queue here instead and never wait inside the pool.
+     */
+    private ConnectionPermit acquireConnectionPermit(HttpRequestBase request) throws IOException {
+        int timeout = request.getConfig().getConnectionRequestTimeout();
+        CancelWaker waker = deadline == null ? null : new CancelWaker();
+        if (waker != null) {
+            deadline.addCancelListener(waker);
+        }
+        try {
+            if (timeout <= 0) {
+                connectionPermits.acquire();
+            } else if (!connectionPermits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new ConnectionPoolTimeoutException("Timeout waiting for connection from pool");
+            }
+            ConnectionPermit permit = new ConnectionPermit(connectionPermits);
+            if (waker != null && waker.stop()) {
+                permit.close();
+                checkDeadline(null);
+            }
+            return permit;
+        } catch (InterruptedException e) {
+            if (waker != null && waker.stop()) {
+                checkDeadline(e);
+            }
+            Thread.currentThread().interrupt();
+            throw new SusException(e);
+        } finally {
+            if (waker != null) {
+                waker.stop();
+                deadline.removeCancelListener(waker);
+            }
         }
     }
 
     private <T extends HttpEntityEnclosingRequest> T setPayload(T request, Object payload) {
         try {
-            StringEntity entity = new StringEntity(objectMapper.writeValueAsString(payload), Charset.forName("UTF-8"));
+            byte[] content = codec.writer(payload.getClass()).writeValueAsBytes(payload);
+            int threshold = configuration.getRequestCompressionThreshold();
+            boolean compress = threshold >= 0 && content.length >= threshold;
+            ByteArrayEntity entity = new ByteArrayEntity(compress ? Gzip.compress(content) : content);
             entity.setContentType("application/json; charset=utf-8");
+            if (compress) {
+                entity.setContentEncoding(Gzip.ENCODING);
+            }
             request.setEntity(entity);
             return request;
         } catch (JsonProcessingException e) {
@@ -137,50 +835,52 @@ public class HttpClient {
 
     private SusException throwError(CloseableHttpResponse response) {
         Header contentType = response.getFirstHeader("Content-Type");
+        String content = null;
         if (contentType != null && contentType.getValue().startsWith("application/json")) {
-            String content = null;
             try {
                 content = readEntity(response);
-                return throwError(
-                        response.getStatusLine().getStatusCode(),
-                        response.getStatusLine().getReasonPhrase(),
-                        objectMapper.readValue(content, ErrorResponse.class));
             } catch (IOException ignore) {
-                return throwError(
-                        response.getStatusLine().getStatusCode(),
-                        response.getStatusLine().getReasonPhrase(),
-                        new ErrorResponse(content));
             }
-        } else {
-            return throwError(
-                    response.getStatusLine().getStatusCode(),
-                    response.getStatusLine().getReasonPhrase(),
-                    null);
         }
+        return errorMapper.fromResponse(
+                response.getStatusLine().getStatusCode(),
+                response.getStatusLine().getReasonPhrase(),
+                contentType == null ? null : contentType.getValue(),
+                content);
     }
 
-    private SusException throwError(int statusCode, String statusMessage, ErrorResponse error) {
-        switch (statusCode) {
-            case 401:
-                return new UnauthorisedException(statusCode, statusMessage, error);
-            case 403:
-                return new ForbiddenException(statusCode, statusMessage, error);
-            default:
-                return new SusServerException(statusCode, statusMessage, error);
+    private <T> T readEntity(CloseableHttpResponse response, ObjectReader responseReader, CallTrace trace)
+            throws IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return null;
         }
-    }
 
-    private SusException throwError(String content, IOException e) {
-        try {
-            return new SusServerException(
-                    HttpStatus.SC_OK,
-                    "OK",
-                    objectMapper.readValue(content, ErrorResponse.class));
-        } catch (IOException ignore) {
-            return new SusException(e);
+        long start = System.nanoTime();
+        CallTrace.TimedInputStream timed = trace == null ? null : new CallTrace.TimedInputStream(entity.getContent());
+        try (ReplayInputStream content = new ReplayInputStream(
+                timed == null ? entity.getContent() : timed, ERROR_REPLAY_LIMIT)) {
+            T value;
+            try (JsonParser parser = responseReader.createParser(content)) {
+                value = responseReader.readValue(parser);
+            } catch (JsonProcessingException e) {
+                // Only a body that arrived but is not the expected JSON, a failure reading it is left to the caller
+                throw errorMapper.fromUnreadableContent(content.replayAsString(), e);
+            }
+            EntityUtils.consume(entity);
+            if (trace != null) {
+                trace.onBodyRead(timed.getReadNanos());
+                trace.onDeserialize(System.nanoTime() - start - timed.getReadNanos());
+            }
+            return value;
         }
     }
 
+    private static String getHeader(CloseableHttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
     private String readEntity(CloseableHttpResponse response) throws IOException {
         if (response.getEntity() == null) {
             return null;
@@ -188,26 +888,234 @@ public class HttpClient {
         return EntityUtils.toString(response.getEntity());
     }
 
+    private static PoolingHttpClientConnectionManager makeConnectionManager(Configuration configuration) {
+        PoolingHttpClientConnectionManager connectionManager = configuration.getTracer() == null
+                ? new PoolingHttpClientConnectionManager(
+                        configuration.getConnectionTimeToLiveMillis(), TimeUnit.MILLISECONDS)
+                : new PoolingHttpClientConnectionManager(
+                        new TracingConnectionOperator(),
+                        null,
+                        configuration.getConnectionTimeToLiveMillis(),
+                        TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(configuration.getMaxConnectionsTotal() > 0
+                ? configuration.getMaxConnectionsTotal()
+                : configuration.getMaxConnectionsPerRoute());
+        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
+        connectionManager.setValidateAfterInactivity(configuration.getValidateAfterInactivityMillis());
+        return connectionManager;
+    }
 
     private CloseableHttpClient makeHttpClient(Configuration configuration) {
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
-        connectionManager.setMaxTotal(configuration.getMaxConnectionsPerRoute());
-        connectionManager.setDefaultMaxPerRoute(configuration.getMaxConnectionsPerRoute());
-        return HttpClients.custom().setConnectionManager(connectionManager).build();
+        HttpClientBuilder builder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig);
+        if (!configuration.isResponseCompression()) {
+            builder.disableContentCompression();
+        }
+        if (configuration.getRetryPolicy().getMaxRetries() > 0) {
+            builder.disableAutomaticRetries();
+        }
+        if (tracer != null) {
+            builder.setRequestExecutor(new TracingRequestExecutor());
+        }
+        if (configuration.getKeepAliveMillis() >= 0) {
+            builder.setKeepAliveStrategy(keepAliveStrategy(configuration.getKeepAliveMillis()));
+        }
+        if (configuration.getIdleConnectionTimeoutMillis() > 0) {
+            builder.evictExpiredConnections()
+                    .evictIdleConnections(configuration.getIdleConnectionTimeoutMillis(), TimeUnit.MILLISECONDS);
+        }
+        return builder.build();
+    }
+
+    private static ConnectionKeepAliveStrategy keepAliveStrategy(long keepAliveMillis) {
+        return (response, context) -> {
+            long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+            return keepAlive < 0 ? keepAliveMillis : keepAlive;
+        };
+    }
+
+    /**
+     * Counts the response body bytes read, after any decompression
+     */
+    private static final class CountingEntity extends HttpEntityWrapper {
+        private CountingInputStream content;
+
+        private CountingEntity(HttpEntity entity) {
+            super(entity);
+        }
+
+        static CountingEntity wrap(HttpResponse response) {
+            if (response.getEntity() == null) {
+                return null;
+            }
+            CountingEntity entity = new CountingEntity(response.getEntity());
+            response.setEntity(entity);
+            return entity;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            if (content == null) {
+                content = new CountingInputStream(super.getContent());
+            }
+            return content;
+        }
+
+        long getCount() {
+            return content == null ? 0 : content.getCount();
+        }
+    }
+
+    /**
+     * Times new connections, including the TLS handshake, for traced calls
+     */
+    private static final class TracingConnectionOperator extends DefaultHttpClientConnectionOperator {
+        private TracingConnectionOperator() {
+            super(RegistryBuilder.<ConnectionSocketFactory>create()
+                    .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                    .register("https", SSLConnectionSocketFactory.getSocketFactory())
+                    .build(), null, null);
+        }
+
+        @Override
+        public void connect(
+                ManagedHttpClientConnection conn,
+                HttpHost host,
+                InetSocketAddress localAddress,
+                int connectTimeout,
+                SocketConfig socketConfig,
+                HttpContext context) throws IOException {
+            CallTrace trace = context == null ? null : (CallTrace) context.getAttribute(CallTrace.ATTRIBUTE);
+            long start = System.nanoTime();
+            try {
+                super.connect(conn, host, localAddress, connectTimeout, socketConfig, context);
+            } finally {
+                if (trace != null) {
+                    trace.onConnect(System.nanoTime() - start);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks when a traced request is sent on its connection and when the response headers arrive
+     */
+    private static final class TracingRequestExecutor extends HttpRequestExecutor {
+        @Override
+        public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws IOException, HttpException {
+            CallTrace trace = (CallTrace) context.getAttribute(CallTrace.ATTRIBUTE);
+            if (trace != null) {
+                trace.onRequestSent();
+            }
+            HttpResponse response = super.execute(request, conn, context);
+            if (trace != null) {
+                trace.onHeadersReceived();
+            }
+            return response;
+        }
+    }
+
+    /**
+     * Identifies identical GETs: the URI, the auth token and the type the response is read as
+     */
+    private static final class FlightKey {
+        private final String request;
+        private final JavaType responseType;
+
+        private FlightKey(String request, JavaType responseType) {
+            this.request = request;
+            this.responseType = responseType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FlightKey)) {
+                return false;
+            }
+            FlightKey that = (FlightKey) o;
+            return request.equals(that.request) && responseType.equals(that.responseType);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * request.hashCode() + responseType.hashCode();
+        }
     }
 
-    private HttpClientContext getHttpContext() {
-        HttpClientContext context = httpContext.get();
-        if (context == null) {
-            context = HttpClientContext.create();
-            context.setRequestConfig(RequestConfig.custom()
-                    .setSocketTimeout(TIMEOUT_MILLIS)
-                    .setConnectTimeout(TIMEOUT_MILLIS)
-                    .setConnectionRequestTimeout(TIMEOUT_MILLIS)
-                    .build());
-            httpContext.set(context);
+    /**
+     * Wakes a thread waiting for a connection permit when the deadline is cancelled, by interrupting it. The
+     * interrupt is only sent while the thread is still waiting, and cleared again once it has stopped.
+     */
+    private static final class CancelWaker implements Runnable {
+        private final Thread waiter = Thread.currentThread();
+        private final ReentrantLock lock = new ReentrantLock();
+        private boolean waiting = true;
+        private boolean woken;
+
+        @Override
+        public void run() {
+            lock.lock();
+            try {
+                if (waiting) {
+                    woken = true;
+                    waiter.interrupt();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Stop waking the waiter, and clear the interrupt if it was woken
+         *
+         * @return true if the waiter was woken
+         */
+        boolean stop() {
+            boolean interrupted;
+            lock.lock();
+            try {
+                waiting = false;
+                interrupted = woken;
+            } finally {
+                lock.unlock();
+            }
+            if (interrupted) {
+                Thread.interrupted();
+            }
+            return interrupted;
+        }
+    }
+
+    /**
+     * A connection permit, given back once the response is closed and its connection returned to the pool
+     */
+    private static final class ConnectionPermit implements Closeable {
+        private final Semaphore permits;
+
+        private ConnectionPermit(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void close() {
+            permits.release();
+        }
+    }
+
+    private static final class Aborter {
+        private static final ScheduledExecutorService SCHEDULER = makeScheduler();
+
+        private static ScheduledExecutorService makeScheduler() {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(
+                    1, new ThreadFactoryBuilder().setNameFormat("sus-deadline-%d").setDaemon(true).build());
+            scheduler.setRemoveOnCancelPolicy(true);
+            return scheduler;
         }
-        return context;
     }
 
     private URI getUri(String path, Map<String, String> params) {
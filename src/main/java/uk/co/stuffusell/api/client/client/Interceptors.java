@@ -0,0 +1,104 @@
+package uk.co.stuffusell.api.client.client;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import uk.co.stuffusell.api.client.CallInterceptor;
+import uk.co.stuffusell.api.client.Configuration;
+import uk.co.stuffusell.api.client.RequestInterceptor;
+import uk.co.stuffusell.api.client.ResponseInterceptor;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The interceptor chain of a client: the built-in {@link HeaderInterceptors} followed by the interceptors from the
+ * configuration. The interceptors are held in arrays so running them allocates nothing, and a call only allocates
+ * its chain when there is a call interceptor to run.
+ */
+public class Interceptors {
+    private static final RequestInterceptor[] NO_REQUEST_INTERCEPTORS = {};
+    private static final ResponseInterceptor[] NO_RESPONSE_INTERCEPTORS = {};
+    private static final CallInterceptor[] NO_CALL_INTERCEPTORS = {};
+
+    private final RequestInterceptor[] requestInterceptors;
+    private final ResponseInterceptor[] responseInterceptors;
+    private final CallInterceptor[] callInterceptors;
+
+    public Interceptors(
+            List<RequestInterceptor> requestInterceptors,
+            List<ResponseInterceptor> responseInterceptors,
+            List<CallInterceptor> callInterceptors) {
+        this.requestInterceptors = requestInterceptors.toArray(NO_REQUEST_INTERCEPTORS);
+        this.responseInterceptors = responseInterceptors.toArray(NO_RESPONSE_INTERCEPTORS);
+        this.callInterceptors = callInterceptors.toArray(NO_CALL_INTERCEPTORS);
+    }
+
+    /**
+     * Make the chain for a client
+     *
+     * @param configuration the client configuration
+     * @return the chain
+     */
+    public static Interceptors make(Configuration configuration) {
+        List<RequestInterceptor> requestInterceptors = new ArrayList<>();
+        requestInterceptors.add(HeaderInterceptors.REQUEST_CONTEXT);
+        requestInterceptors.add(HeaderInterceptors.client(configuration));
+        requestInterceptors.addAll(configuration.getRequestInterceptors());
+        return new Interceptors(
+                requestInterceptors,
+                configuration.getResponseInterceptors(),
+                configuration.getCallInterceptors());
+    }
+
+    public void onRequest(HttpUriRequest request, RequestContext context) {
+        for (RequestInterceptor interceptor : requestInterceptors) {
+            interceptor.onRequest(request, context);
+        }
+    }
+
+    public void onResponse(HttpUriRequest request, HttpResponse response) {
+        for (ResponseInterceptor interceptor : responseInterceptors) {
+            interceptor.onResponse(request, response);
+        }
+    }
+
+    public boolean hasCallInterceptors() {
+        return callInterceptors.length > 0;
+    }
+
+    /**
+     * Run the call interceptors around a call
+     *
+     * @param request      the request
+     * @param responseType the type the response is read as
+     * @param call         makes the call
+     * @return the response
+     */
+    public Object call(HttpUriRequest request, Type responseType, CallInterceptor.Chain call) {
+        return new Chain(request, responseType, call, 0).proceed();
+    }
+
+    private final class Chain implements CallInterceptor.Chain {
+        private final HttpUriRequest request;
+        private final Type responseType;
+        private final CallInterceptor.Chain call;
+        private final int index;
+
+        private Chain(HttpUriRequest request, Type responseType, CallInterceptor.Chain call, int index) {
+            this.request = request;
+            this.responseType = responseType;
+            this.call = call;
+            this.index = index;
+        }
+
+        @Override
+        public Object proceed() {
+            if (index == callInterceptors.length) {
+                return call.proceed();
+            }
+            return callInterceptors[index].intercept(
+                    request, responseType, new Chain(request, responseType, call, index + 1));
+        }
+    }
+}
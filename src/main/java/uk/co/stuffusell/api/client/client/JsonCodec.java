@@ -0,0 +1,125 @@
+package uk.co.stuffusell.api.client.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import uk.co.stuffusell.api.client.Configuration;
+import uk.co.stuffusell.api.client.util.ObjectMapperFactory;
+import uk.co.stuffusell.api.common.ErrorResponse;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * One object mapper per client, with a reader for each response type and a writer for each payload class. Readers
+ * and writers are immutable and resolve their (de)serializer when they are built, so once built for a type every
+ * later call reuses it without looking the type up again.
+ */
+public class JsonCodec {
+    private static final String DTO_PACKAGE = ErrorResponse.class.getPackage().getName();
+
+    private final ObjectMapper objectMapper;
+    private final ConcurrentMap<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    public JsonCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Make the codec for a client, with any additional modules from the configuration registered
+     *
+     * @param configuration the client configuration
+     * @return the codec
+     */
+    public static JsonCodec make(Configuration configuration) {
+        ObjectMapper objectMapper = ObjectMapperFactory.make();
+        objectMapper.registerModules(configuration.getModules());
+        return new JsonCodec(objectMapper);
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
+    /**
+     * Get the reader for a response type
+     *
+     * @param type a class or the type captured by a {@code TypeReference}
+     * @return the reader
+     */
+    public ObjectReader reader(Type type) {
+        ObjectReader reader = readers.get(type);
+        if (reader == null) {
+            reader = readers.computeIfAbsent(type, key -> objectMapper.readerFor(objectMapper.constructType(key)));
+        }
+        return reader;
+    }
+
+    /**
+     * Get the writer for a payload class
+     *
+     * @param type the runtime class of the payload
+     * @return the writer
+     */
+    public ObjectWriter writer(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = writers.computeIfAbsent(type, objectMapper::writerFor);
+        }
+        return writer;
+    }
+
+    /**
+     * Build the readers and writers for every SUS type an API class takes or returns. Return types are unwrapped
+     * from {@link CompletableFuture}, so this works for the blocking and the asynchronous client alike.
+     *
+     * @param api the client class
+     */
+    public void prepare(Class<?> api) {
+        for (Method method : api.getDeclaredMethods()) {
+            if (!Modifier.isPublic(method.getModifiers())) {
+                continue;
+            }
+            Type returnType = unwrap(method.getGenericReturnType());
+            if (isBound(returnType)) {
+                reader(returnType);
+            }
+            for (Class<?> parameterType : method.getParameterTypes()) {
+                if (isDto(parameterType)) {
+                    writer(parameterType);
+                }
+            }
+        }
+        reader(ErrorResponse.class);
+    }
+
+    private static Type unwrap(Type type) {
+        if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == CompletableFuture.class) {
+            return ((ParameterizedType) type).getActualTypeArguments()[0];
+        }
+        return type;
+    }
+
+    private static boolean isBound(Type type) {
+        if (type instanceof ParameterizedType) {
+            ParameterizedType parameterized = (ParameterizedType) type;
+            Type rawType = parameterized.getRawType();
+            return isDto(rawType) || rawType == List.class && isBound(parameterized.getActualTypeArguments()[0]);
+        }
+        return isDto(type) || type == String.class;
+    }
+
+    private static boolean isDto(Type type) {
+        return type instanceof Class
+                && !((Class<?>) type).isPrimitive()
+                && !((Class<?>) type).isArray()
+                && ((Class<?>) type).getPackage().getName().startsWith(DTO_PACKAGE);
+    }
+}
@@ -0,0 +1,157 @@
+package uk.co.stuffusell.api.client.client;
+
+import uk.co.stuffusell.api.client.SusException;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Spliterator that walks a paged endpoint lazily. Pages are requested on demand, with up to {@code prefetch}
+ * further pages fetched in the background while the current one is consumed. A page is only referenced until
+ * its items have been handed out, so memory is bounded by the prefetch depth rather than the result size.
+ * <p>
+ * The walk ends once the total number of items the server reports has been handed out, or at the first empty
+ * page. A page shorter than the size asked for does not end it, as the server may serve smaller pages than asked.
+ * Pages are only prefetched once the first has arrived, and never past the last page the reported total and the
+ * largest page seen imply, so a finished walk has not asked for pages beyond the end.
+ *
+ * @param <T> the item type
+ */
+public class PageSpliterator<T> implements Spliterator<T>, AutoCloseable {
+    private final IntFunction<Page<T>> pageFetcher;
+    private final int prefetch;
+    private final Executor executor;
+    private final Deque<CompletableFuture<Page<T>>> pending = new ArrayDeque<>();
+    private final int firstPage;
+    private Iterator<T> current = Collections.emptyIterator();
+    private int nextPage;
+    private long itemsSeen;
+    private long total = -1;
+    private int largestPage;
+    private boolean lastPageReached;
+
+    /**
+     * Create a spliterator over a paged endpoint
+     *
+     * @param pageFetcher fetches a page by number
+     * @param firstPage   the number of the first page
+     * @param prefetch    the number of pages to fetch ahead of the consumer
+     * @param executor    the executor used to fetch pages in the background
+     */
+    public PageSpliterator(IntFunction<Page<T>> pageFetcher, int firstPage, int prefetch, Executor executor) {
+        this.pageFetcher = pageFetcher;
+        this.firstPage = firstPage;
+        this.nextPage = firstPage;
+        this.prefetch = Math.max(0, prefetch);
+        this.executor = executor;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        while (!current.hasNext()) {
+            if (lastPageReached) {
+                return false;
+            }
+            Page<T> page = nextPage();
+            itemsSeen += page.items.size();
+            if (page.items.isEmpty() || page.total > 0 && itemsSeen >= page.total) {
+                lastPageReached = true;
+                close();
+            }
+            current = page.items.iterator();
+        }
+        action.accept(current.next());
+        return true;
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED;
+    }
+
+    /**
+     * Cancel any pages still being fetched in the background
+     */
+    @Override
+    public void close() {
+        CompletableFuture<Page<T>> page;
+        while ((page = pending.poll()) != null) {
+            page.cancel(false);
+        }
+    }
+
+    private Page<T> nextPage() {
+        CompletableFuture<Page<T>> page = pending.poll();
+        int currentPage = page == null ? nextPage++ : -1;
+        prefetch();
+
+        try {
+            Page<T> fetched = page == null ? pageFetcher.apply(currentPage) : page.join();
+            total = fetched.total;
+            largestPage = Math.max(largestPage, fetched.items.size());
+            if (!fetched.items.isEmpty()) {
+                prefetch();
+            }
+            return fetched;
+        } catch (CompletionException e) {
+            close();
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new SusException(e);
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void prefetch() {
+        while (pending.size() < prefetch && mayExist(nextPage)) {
+            int prefetchPage = nextPage++;
+            pending.add(CompletableFuture.supplyAsync(() -> pageFetcher.apply(prefetchPage), executor));
+        }
+    }
+
+    private boolean mayExist(int page) {
+        if (total < 0) {
+            return false;
+        }
+        // Without a total only an empty page ends the walk, so there is always another to ask for
+        return total == 0 || (long) (page - firstPage) * largestPage < total;
+    }
+
+    /**
+     * A page of items
+     *
+     * @param <T> the item type
+     */
+    public static final class Page<T> {
+        private final Collection<T> items;
+        private final long total;
+
+        /**
+         * @param items the items on the page, may be null
+         * @param total the total number of items across all pages, 0 if the server does not report it
+         */
+        public Page(Collection<T> items, long total) {
+            this.items = items == null ? Collections.emptyList() : items;
+            this.total = total;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package uk.co.stuffusell.api.client.client;
+
+import org.apache.http.HttpStatus;
+import uk.co.stuffusell.api.client.Configuration;
+import uk.co.stuffusell.api.client.util.RateLimiter;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Feeds the server's view of the rate limit back into the {@link RateLimiter}. The permitted rate is adapted
+ * AIMD-style: it creeps up by about one request per second for every second of successful requests and is halved
+ * when the server throttles a request, so it settles just under the rate the server actually allows.
+ * {@code Retry-After} and exhausted {@code RateLimit-Remaining} headers pause the limiter until the server's
+ * window resets.
+ */
+public class RateLimitFeedback {
+    public static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private static final long DEFAULT_RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+    private static final double MIN_REQUESTS_PER_SECOND = 1;
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double INCREASE_PER_SECOND = 1;
+    private static final long CONGESTION_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final RateLimiter rateLimiter;
+    private final double maxRequestsPerSecond;
+    private final AtomicLong lastDecrease = new AtomicLong(NEVER);
+
+    public RateLimitFeedback(RateLimiter rateLimiter, Configuration configuration) {
+        this.rateLimiter = rateLimiter;
+        this.maxRequestsPerSecond = Math.max(
+                configuration.getRequestsPerSecond(),
+                configuration.getMaxRequestsPerSecond());
+    }
+
+    /**
+     * Record a response
+     *
+     * @param statusCode the HTTP status code
+     * @param headers    looks up a response header value by name, returning null if absent
+     * @return the nanoseconds to wait before retrying if the request was throttled, -1 otherwise
+     */
+    public long onResponse(int statusCode, Function<String, String> headers) {
+        if (statusCode == SC_TOO_MANY_REQUESTS) {
+            long retryAfter = parseRetryAfter(headers.apply("Retry-After"));
+            retryAfter = retryAfter < 0 ? DEFAULT_RETRY_AFTER_NANOS : retryAfter;
+            decrease();
+            rateLimiter.pause(retryAfter);
+            return retryAfter;
+        }
+
+        if (statusCode < HttpStatus.SC_BAD_REQUEST) {
+            increase();
+        }
+        if ("0".equals(header(headers, "RateLimit-Remaining"))) {
+            long reset = parseReset(header(headers, "RateLimit-Reset"));
+            if (reset > 0) {
+                rateLimiter.pause(reset);
+            }
+        }
+        return -1;
+    }
+
+    private void increase() {
+        double current = rateLimiter.getRequestsPerSecond();
+        if (current < maxRequestsPerSecond) {
+            rateLimiter.setRequestsPerSecond(Math.min(maxRequestsPerSecond, current + INCREASE_PER_SECOND / current));
+        }
+    }
+
+    private void decrease() {
+        // Throttled responses to requests already in flight belong to the same congestion event, only back off once
+        // per window. The window is fixed rather than taken from Retry-After, which may be zero or far longer than
+        // the responses still in flight take to arrive.
+        long now = System.nanoTime();
+        long last = lastDecrease.get();
+        if ((last == NEVER || now - last >= CONGESTION_WINDOW_NANOS) && lastDecrease.compareAndSet(last, now)) {
+            double current = rateLimiter.getRequestsPerSecond();
+            rateLimiter.setRequestsPerSecond(Math.max(MIN_REQUESTS_PER_SECOND, current * DECREASE_FACTOR));
+        }
+    }
+
+    private static String header(Function<String, String> headers, String name) {
+        String value = headers.apply(name);
+        return value == null ? headers.apply("X-" + name) : value;
+    }
+
+    static long parseRetryAfter(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            return TimeUnit.SECONDS.toNanos(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException ignore) {
+        }
+        try {
+            Instant at = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, at.toEpochMilli() - System.currentTimeMillis()));
+        } catch (DateTimeParseException ignore) {
+            return -1;
+        }
+    }
+
+    static long parseReset(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(value.trim());
+            if (seconds >= EPOCH_SECONDS_THRESHOLD) {
+                seconds -= TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+            }
+            return TimeUnit.SECONDS.toNanos(Math.max(0, seconds));
+        } catch (NumberFormatException ignore) {
+            return -1;
+        }
+    }
+}
@@ -1,10 +1,26 @@
 package uk.co.stuffusell.api.client.client;
 
+import uk.co.stuffusell.api.client.RequestPriority;
+
+/**
+ * The customer and end user a call is made for. The client passes it explicitly with each call, so it is never
+ * shared between calls. The thread-local context is only a way for callers to hand the end user's ip address and
+ * user agent to the next call made on the thread, which takes it and clears it.
+ */
 public class RequestContext {
     private static final ThreadLocal<RequestContext> THREAD_LOCAL = new ThreadLocal<>();
     private String authToken;
     private String ipAddress;
     private String userAgent;
+    private RequestPriority priority = RequestPriority.INTERACTIVE;
+
+    public RequestContext() {
+    }
+
+    public RequestContext(String ipAddress, String userAgent) {
+        this.ipAddress = ipAddress;
+        this.userAgent = userAgent;
+    }
 
     public static RequestContext get() {
         RequestContext context = THREAD_LOCAL.get();
@@ -21,6 +37,34 @@ public class RequestContext {
         return context;
     }
 
+    /**
+     * Take the context set on the calling thread for a call, clearing it
+     *
+     * @param authToken the customer auth token, may be null
+     * @return the context, a new one if none was set
+     */
+    public static RequestContext take(String authToken) {
+        RequestContext context = clear();
+        if (context == null) {
+            context = new RequestContext();
+        }
+        context.setAuthToken(authToken);
+        return context;
+    }
+
+    /**
+     * Make a copy of this context for a call
+     *
+     * @param authToken the customer auth token, may be null
+     * @return the copy
+     */
+    public RequestContext forCall(String authToken) {
+        RequestContext context = new RequestContext(ipAddress, userAgent);
+        context.setAuthToken(authToken);
+        context.setPriority(priority);
+        return context;
+    }
+
     public String getAuthToken() {
         return authToken;
     }
@@ -44,4 +88,18 @@ public class RequestContext {
     public void setUserAgent(String userAgent) {
         this.userAgent = userAgent;
     }
+
+    public RequestPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * Set the priority class the call waits in for the rate limit when fair scheduling is enabled. Defaults to
+     * interactive.
+     *
+     * @param priority the priority class
+     */
+    public void setPriority(RequestPriority priority) {
+        this.priority = priority;
+    }
 }
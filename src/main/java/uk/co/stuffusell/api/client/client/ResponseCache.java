@@ -0,0 +1,117 @@
+package uk.co.stuffusell.api.client.client;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import uk.co.stuffusell.api.client.CachePolicy;
+import uk.co.stuffusell.api.client.CacheStatistics;
+import uk.co.stuffusell.api.client.CachedEndpoint;
+import uk.co.stuffusell.api.client.SusException;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Caches reference data responses, one bounded cache per endpoint so each can have its own time to live.
+ * Concurrent misses on the same response wait for a single fetch rather than each calling the server.
+ * <p>
+ * A cached response is returned to every caller, so collections are cached as unmodifiable views.
+ */
+public class ResponseCache {
+    private static final String SHARED_KEY = "";
+
+    private final Map<CachedEndpoint, Cache<String, Optional<Object>>> caches = new EnumMap<>(CachedEndpoint.class);
+
+    public ResponseCache(CachePolicy policy) {
+        for (CachedEndpoint endpoint : CachedEndpoint.values()) {
+            long ttlMillis = policy.getTtlMillis(endpoint);
+            if (ttlMillis > 0) {
+                caches.put(endpoint, CacheBuilder.newBuilder()
+                        .maximumSize(policy.getMaximumSize())
+                        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                        .recordStats()
+                        .build());
+            }
+        }
+    }
+
+    /**
+     * Get a response from the cache, fetching it if it is not cached
+     *
+     * @param endpoint  the endpoint
+     * @param authToken the customer's auth token, ignored unless the endpoint is cached per customer
+     * @param loader    fetches the response from the server
+     * @param <T>       the response type
+     * @return the response
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(CachedEndpoint endpoint, String authToken, Supplier<T> loader) {
+        Cache<String, Optional<Object>> cache = caches.get(endpoint);
+        if (cache == null) {
+            return loader.get();
+        }
+
+        try {
+            return (T) cache.get(key(endpoint, authToken), () -> Optional.ofNullable(unmodifiable(loader.get())))
+                    .orElse(null);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new SusException(e.getCause());
+        }
+    }
+
+    /**
+     * Drop the responses cached for a customer, after a call that may have changed them
+     *
+     * @param authToken the customer's auth token
+     */
+    public void invalidate(String authToken) {
+        caches.forEach((endpoint, cache) -> {
+            if (endpoint.isPerCustomer()) {
+                cache.invalidate(key(endpoint, authToken));
+            }
+        });
+    }
+
+    /**
+     * Drop every cached response
+     */
+    public void invalidateAll() {
+        caches.values().forEach(Cache::invalidateAll);
+    }
+
+    public CacheStatistics getStatistics() {
+        CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+        for (Cache<String, Optional<Object>> cache : caches.values()) {
+            stats = stats.plus(cache.stats());
+        }
+        return new CacheStatistics(stats.hitCount(), stats.missCount(), stats.evictionCount());
+    }
+
+    private static Object unmodifiable(Object response) {
+        if (response instanceof List) {
+            return Collections.unmodifiableList((List<?>) response);
+        }
+        if (response instanceof Set) {
+            return Collections.unmodifiableSet((Set<?>) response);
+        }
+        if (response instanceof Map) {
+            return Collections.unmodifiableMap((Map<?, ?>) response);
+        }
+        return response;
+    }
+
+    private static String key(CachedEndpoint endpoint, String authToken) {
+        return endpoint.isPerCustomer() && authToken != null ? authToken : SHARED_KEY;
+    }
+}
@@ -0,0 +1,70 @@
+package uk.co.stuffusell.api.client.client;
+
+import uk.co.stuffusell.api.client.RetryListener;
+import uk.co.stuffusell.api.client.RetryPolicy;
+import uk.co.stuffusell.api.client.util.RetryBudget;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Applies a {@link RetryPolicy}: decides whether a failed call may be retried and how long to back off first.
+ * Shared by the blocking and the asynchronous transports.
+ */
+public class Retrier {
+    private final RetryPolicy policy;
+    private final RetryBudget budget;
+
+    public Retrier(RetryPolicy policy) {
+        this.policy = policy;
+        this.budget = new RetryBudget(policy.getRetryBudgetRatio(), policy.getMinRetryBudget());
+    }
+
+    /**
+     * Record a new call against the retry budget
+     */
+    public void onRequest() {
+        budget.deposit();
+    }
+
+    /**
+     * Is the status code one that should be retried
+     *
+     * @param statusCode the HTTP status code
+     * @return true if retryable
+     */
+    public boolean isRetryable(int statusCode) {
+        return policy.getRetryableStatusCodes().contains(statusCode);
+    }
+
+    /**
+     * Get the backoff before the next retry of a failed call, taking the retry from the budget
+     *
+     * @param method the HTTP method
+     * @param path   the request path
+     * @param retry  the retry about to be made, starting at 1
+     * @param cause  the failure
+     * @return the milliseconds to wait before retrying, or -1 if the call should not be retried
+     */
+    public long nextBackoffMillis(String method, String path, int retry, Exception cause) {
+        if (retry > policy.getMaxRetries()) {
+            return -1;
+        }
+
+        RetryListener listener = policy.getRetryListener();
+        if (!budget.tryWithdraw()) {
+            if (listener != null) {
+                listener.onRetryBudgetExhausted(method, path, cause);
+            }
+            return -1;
+        }
+
+        double ceiling = Math.min(
+                policy.getMaxBackoffMillis(),
+                policy.getInitialBackoffMillis() * Math.pow(policy.getBackoffMultiplier(), retry - 1));
+        long backoff = ThreadLocalRandom.current().nextLong((long) ceiling + 1);
+        if (listener != null) {
+            listener.onRetry(method, path, retry, backoff, cause);
+        }
+        return backoff;
+    }
+}
@@ -0,0 +1,31 @@
+package uk.co.stuffusell.api.client.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public final class Gzip {
+    public static final String ENCODING = "gzip";
+
+    private Gzip() {
+    }
+
+    public static byte[] compress(byte[] content) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(content);
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    public static InputStream decompress(byte[] content) throws IOException {
+        return new GZIPInputStream(new ByteArrayInputStream(content));
+    }
+}
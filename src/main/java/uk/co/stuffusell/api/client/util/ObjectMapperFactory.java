@@ -14,6 +14,7 @@ import com.fasterxml.jackson.datatype.joda.JodaModule;
 
 public final class ObjectMapperFactory {
     private static boolean failOnUnknownProperties;
+    private static boolean indentOutput;
 
     private ObjectMapperFactory() {
     }
@@ -23,7 +24,7 @@ public final class ObjectMapperFactory {
         mapper.registerModule(new JodaModule());
         mapper.setPropertyNamingStrategy(new NoIsPropertyNamingStrategy());
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
-        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.configure(SerializationFeature.INDENT_OUTPUT, indentOutput);
         mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, failOnUnknownProperties);
         mapper.configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
         mapper.configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
@@ -39,6 +40,16 @@ public final class ObjectMapperFactory {
         failOnUnknownProperties = fail;
     }
 
+    /**
+     * Pretty print the JSON written by mappers made after this call. Request bodies are compact by default, set
+     * this only to make payloads easier to read while debugging.
+     *
+     * @param indent true to indent the output
+     */
+    public static void setIndentOutput(boolean indent) {
+        indentOutput = indent;
+    }
+
     private static class NoIsPropertyNamingStrategy extends PropertyNamingStrategy {
         @Override
         public String nameForGetterMethod(MapperConfig<?> config, AnnotatedMethod method, String defaultName) {
@@ -0,0 +1,100 @@
+package uk.co.stuffusell.api.client.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Maps request paths to the API path they were made from, e.g. {@code /api/customer/order/ABC123/update} to
+ * {@code /api/customer/order/{sku}/update}, so they can label metrics and traces without a label per SKU. Paths
+ * the API does not define keep their segments, apart from any containing a digit which become {@code {id}}.
+ */
+public final class PathTemplates {
+    private static final String ID = "{id}";
+    private static final String[][] TEMPLATES = split(
+            "/api/consignment/overview",
+            "/api/consignment/{consignmentId}",
+            "/api/customer/invoice/{invoiceNumber}",
+            "/api/customer/order/{sku}",
+            "/api/customer/order/{sku}/book-courier",
+            "/api/customer/order/{sku}/collect-plus-label-numbers",
+            "/api/customer/order/{sku}/listing-history",
+            "/api/customer/order/{sku}/packaging-request",
+            "/api/customer/order/{sku}/update",
+            "/api/sku/{sku}");
+
+    private PathTemplates() {
+    }
+
+    /**
+     * Get the template for a request path
+     *
+     * @param path the request path, without the query string
+     * @return the template
+     */
+    public static String normalize(String path) {
+        List<String> segments = segments(path);
+        for (String[] template : TEMPLATES) {
+            if (matches(template, segments)) {
+                return template[0];
+            }
+        }
+
+        StringBuilder normalized = new StringBuilder(path.length());
+        for (String segment : segments) {
+            normalized.append('/').append(hasDigit(segment) ? ID : segment);
+        }
+        return normalized.length() == 0 ? "/" : normalized.toString();
+    }
+
+    private static boolean matches(String[] template, List<String> segments) {
+        if (template.length - 1 != segments.size()) {
+            return false;
+        }
+        for (int i = 1; i < template.length; i++) {
+            if (template[i].charAt(0) != '{' && !template[i].equals(segments.get(i - 1))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> segments(String path) {
+        // The path may start with a double slash, the endpoint is joined to paths that already start with one
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (i > start) {
+                    segments.add(path.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    private static boolean hasDigit(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            if (Character.isDigit(segment.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split each template into the template itself followed by its segments
+     */
+    private static String[][] split(String... templates) {
+        String[][] split = new String[templates.length][];
+        for (int i = 0; i < templates.length; i++) {
+            List<String> segments = segments(templates[i]);
+            split[i] = new String[segments.size() + 1];
+            split[i][0] = templates[i];
+            for (int j = 0; j < segments.size(); j++) {
+                split[i][j + 1] = segments.get(j);
+            }
+        }
+        return split;
+    }
+}
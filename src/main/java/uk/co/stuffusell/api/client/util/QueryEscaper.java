@@ -1,8 +1,24 @@
 package uk.co.stuffusell.api.client.util;
 
+/**
+ * Escapes user text for use in a search query. Characters that cannot appear in a query are removed and those
+ * with a special meaning, including the {@code &&} and {@code ||} operators, are escaped with a backslash.
+ * <p>
+ * The escaped characters are those matched by the original expression {@code [+-=!()\{\}\[\]^\\"~*?:\/]}, whose
+ * {@code +-=} is a range that also covers {@code , . 0-9 ; <}. They are kept as they were so escaped queries do
+ * not change.
+ */
 public final class QueryEscaper {
-    private static final String ESCAPABLE_CHARS = "([+-=!()\\{\\}\\[\\]^\\\\\"~*?:\\/]|&&|\\|\\|)";
-    private static final String INVALID_CHARS = "([\\<\\>])";
+    private static final boolean[] ESCAPABLE = new boolean[128];
+
+    static {
+        for (char c = '+'; c <= '='; c++) {
+            ESCAPABLE[c] = true;
+        }
+        for (char c : "!(){}[]^\\\"~*?:/".toCharArray()) {
+            ESCAPABLE[c] = true;
+        }
+    }
 
     private QueryEscaper() {
 
@@ -13,6 +29,66 @@ public final class QueryEscaper {
             return null;
         }
 
-        return query.replaceAll(INVALID_CHARS, "").replaceAll(ESCAPABLE_CHARS, "\\\\$1");
+        int start = firstChange(query);
+        if (start < 0) {
+            return query;
+        }
+
+        int length = query.length();
+        StringBuilder escaped = new StringBuilder(length + 16).append(query, 0, start);
+        for (int i = start; i < length; i++) {
+            char c = query.charAt(i);
+            if (isInvalid(c)) {
+                continue;
+            }
+            if (isEscapable(c)) {
+                escaped.append('\\').append(c);
+            } else if (isOperator(query, i)) {
+                escaped.append('\\').append(c).append(c);
+                i = nextValid(query, i + 1);
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static int firstChange(String query) {
+        int length = query.length();
+        for (int i = 0; i < length; i++) {
+            char c = query.charAt(i);
+            if (isInvalid(c) || isEscapable(c) || isOperator(query, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Does an {@code &&} or {@code ||} operator start at the index, once invalid characters are removed
+     */
+    private static boolean isOperator(String query, int index) {
+        char c = query.charAt(index);
+        if (c != '&' && c != '|') {
+            return false;
+        }
+        int next = nextValid(query, index + 1);
+        return next < query.length() && query.charAt(next) == c;
+    }
+
+    private static int nextValid(String query, int from) {
+        int i = from;
+        while (i < query.length() && isInvalid(query.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isInvalid(char c) {
+        return c == '<' || c == '>';
+    }
+
+    private static boolean isEscapable(char c) {
+        return c < ESCAPABLE.length && ESCAPABLE[c];
     }
 }
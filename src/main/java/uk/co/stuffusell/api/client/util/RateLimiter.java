@@ -1,51 +1,170 @@
 package uk.co.stuffusell.api.client.util;
 
-import java.time.Clock;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Lock-free token bucket. The bucket is held as a single theoretical arrival time: each caller atomically reserves
+ * the next free slot and then parks until that slot is reached. Slots are handed out in the order callers reserve
+ * them, so waiters are served first come, first served without contending on a monitor.
+ * <p>
+ * Up to {@code requestBurstSize} requests may be made at once, after which requests are spaced out so the long
+ * run rate never exceeds {@code requestsPerSecond}. The rate can be changed, and the limiter paused, while in use so
+ * it can follow the rate the server actually allows.
+ */
 public class RateLimiter {
     private final int requestBurstSize;
-    private final long burstTimeLimit;
-    private long lastBurstStartTime;
-    private int requestsInBurst;
+    private final AtomicLong theoreticalArrivalTime;
+    private volatile Rate rate;
 
     public RateLimiter(int requestsPerSecond, int requestBurstSize) {
-        this.requestBurstSize = requestBurstSize;
-        this.burstTimeLimit = TimeUnit.SECONDS.toMillis(requestBurstSize / requestsPerSecond);
+        this.requestBurstSize = Math.max(1, requestBurstSize);
+        this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+        setRequestsPerSecond(requestsPerSecond);
     }
 
+    /**
+     * Get the current permitted rate
+     *
+     * @return requests per second
+     */
+    public double getRequestsPerSecond() {
+        return rate.requestsPerSecond;
+    }
+
+    /**
+     * Change the permitted rate. Permits already reserved are not affected.
+     *
+     * @param requestsPerSecond requests per second
+     */
+    public void setRequestsPerSecond(double requestsPerSecond) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("The requests per second must be greater than zero");
+        }
+        this.rate = new Rate(requestsPerSecond, requestBurstSize);
+    }
+
+    /**
+     * Stop granting permits until the given time has elapsed. Used when the server asks the client to back off.
+     *
+     * @param pauseNanos the nanoseconds to pause for
+     */
+    public void pause(long pauseNanos) {
+        long resumeAt = System.nanoTime() + pauseNanos + rate.burstToleranceNanos;
+        theoreticalArrivalTime.accumulateAndGet(resumeAt, Math::max);
+    }
+
+    /**
+     * Take a permit, blocking until one is available
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        park(reserve());
+    }
+
+    /**
+     * Take a permit, blocking until one is available. An interrupt ends the wait early and is left set on the thread.
+     *
+     * @deprecated use {@link #acquire()}, which reports an interrupt
+     */
+    @Deprecated
     public void blockTillRateLimitReset() {
-        if (getRequestLeftInBurst() <= 0) {
-            long blockFor = getMillisTillNextBurstWindow();
-            if (blockFor > 0) {
-                synchronized (this) {
-                    try {
-                        this.wait(blockFor);
-                    } catch (InterruptedException ignore) {
-                    }
-                }
-            }
-            reset();
+        try {
+            acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+    }
 
-        if (requestsInBurst == 0) {
-            lastBurstStartTime = Clock.systemUTC().millis();
+    /**
+     * Take a permit if one becomes available within the timeout, blocking until it does. If the permit cannot be
+     * granted in time the call returns immediately without waiting or consuming a permit.
+     *
+     * @param timeout the maximum time to wait
+     * @param unit    the unit of the timeout
+     * @return true if a permit was taken, false otherwise
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean tryAcquire(long timeout, TimeUnit unit) throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
         }
+        long waitNanos = tryReserve(timeout, unit);
+        if (waitNanos < 0) {
+            return false;
+        }
+        park(waitNanos);
+        return true;
+    }
 
-        requestsInBurst++;
+    /**
+     * Reserve a permit without blocking
+     *
+     * @return the nanoseconds the caller must wait before using the permit
+     */
+    public long reserve() {
+        return tryReserve(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
     }
 
-    private int getRequestLeftInBurst() {
-        return requestBurstSize - requestsInBurst;
+    /**
+     * Reserve a permit without blocking, if it becomes available within the timeout
+     *
+     * @param timeout the maximum time the caller is prepared to wait
+     * @param unit    the unit of the timeout
+     * @return the nanoseconds the caller must wait before using the permit, or -1 if no permit was reserved
+     */
+    public long tryReserve(long timeout, TimeUnit unit) {
+        long timeoutNanos = unit.toNanos(timeout);
+        while (true) {
+            Rate current = rate;
+            long now = System.nanoTime();
+            long arrivalTime = theoreticalArrivalTime.get();
+            long waitNanos = Math.max(0, arrivalTime - current.burstToleranceNanos - now);
+            if (waitNanos > timeoutNanos) {
+                return -1;
+            }
+            long next = Math.max(arrivalTime, now) + current.permitIntervalNanos;
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, next)) {
+                return waitNanos;
+            }
+        }
     }
 
-    private long getMillisTillNextBurstWindow() {
-        long nextBurstStartTime = lastBurstStartTime + burstTimeLimit;
-        return nextBurstStartTime - Clock.systemUTC().millis();
+    /**
+     * Give back a reserved permit that will not be used, so the slot it held is not lost to later callers. Callers
+     * that reserved after it are not woken early, but the next permit reserved is available that much sooner.
+     */
+    public void release() {
+        long intervalNanos = rate.permitIntervalNanos;
+        theoreticalArrivalTime.accumulateAndGet(intervalNanos, (arrivalTime, interval) -> arrivalTime - interval);
     }
 
-    private void reset() {
-        lastBurstStartTime = 0;
-        requestsInBurst = 0;
+    private static void park(long waitNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + waitNanos;
+        long remaining = waitNanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private static final class Rate {
+        private final double requestsPerSecond;
+        private final long permitIntervalNanos;
+        private final long burstToleranceNanos;
+
+        private Rate(double requestsPerSecond, int requestBurstSize) {
+            this.requestsPerSecond = requestsPerSecond;
+            this.permitIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+            this.burstToleranceNanos = permitIntervalNanos * (requestBurstSize - 1);
+        }
     }
 }
@@ -0,0 +1,54 @@
+package uk.co.stuffusell.api.client.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Input stream that keeps a copy of the first bytes read through it so they can be replayed if parsing fails.
+ * Only the head of the stream is retained, so memory stays bounded however large the body is.
+ */
+public class ReplayInputStream extends FilterInputStream {
+    private final byte[] buffer;
+    private int buffered;
+
+    public ReplayInputStream(InputStream in, int limit) {
+        super(in);
+        this.buffer = new byte[limit];
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0 && buffered < buffer.length) {
+            buffer[buffered++] = (byte) b;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0 && buffered < buffer.length) {
+            int count = Math.min(read, buffer.length - buffered);
+            System.arraycopy(b, off, buffer, buffered, count);
+            buffered += count;
+        }
+        return read;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /**
+     * Get the bytes read so far, up to the replay limit, decoded as UTF-8
+     *
+     * @return the replayed content
+     */
+    public String replayAsString() {
+        return new String(buffer, 0, buffered, StandardCharsets.UTF_8);
+    }
+}
@@ -6,6 +6,9 @@ import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.net.URL;
@@ -13,7 +16,6 @@ import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -25,31 +27,47 @@ import java.util.TreeSet;
 public class RequestParameterMapper {
     private static final PropertyNamingStrategy.SnakeCaseStrategy STRATEGY =
             new PropertyNamingStrategy.SnakeCaseStrategy();
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
 
-    private final ObjectMapper objectMapper = ObjectMapperFactory.make();
+    /**
+     * The parameters of each class, worked out once: reflection, making fields accessible and translating names
+     * are then not repeated on every call.
+     */
+    private static final ClassValue<Parameter[]> PARAMETERS = new ClassValue<Parameter[]>() {
+        @Override
+        protected Parameter[] computeValue(Class<?> type) {
+            return getParameters(type);
+        }
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public RequestParameterMapper() {
+        this(ObjectMapperFactory.make());
+    }
+
+    public RequestParameterMapper(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
 
     public <T> Map<String, String> writeToMap(T object) {
-        try {
-            Map<String, String> values = new LinkedHashMap<>();
-            for (Field field : getDeclaredFields(object.getClass())) {
-                field.setAccessible(true);
-                Object value = field.get(object);
-                if (value == null || Modifier.isTransient(field.getModifiers())) {
-                    continue;
-                }
-                if (value instanceof Collection) {
-                    Collection collection = (Collection) value;
-                    if (!collection.isEmpty()) {
-                        values.put(STRATEGY.translate(field.getName()), toString(collection));
-                    }
-                } else {
-                    values.put(STRATEGY.translate(field.getName()), String.valueOf(value));
+        Parameter[] parameters = PARAMETERS.get(object.getClass());
+        Map<String, String> values = new LinkedHashMap<>(parameters.length * 2);
+        for (Parameter parameter : parameters) {
+            Object value = parameter.get(object);
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Collection) {
+                Collection collection = (Collection) value;
+                if (!collection.isEmpty()) {
+                    values.put(parameter.name, toString(collection));
                 }
+            } else {
+                values.put(parameter.name, String.valueOf(value));
             }
-            return values;
-        } catch (IllegalAccessException e) {
-            throw new IllegalStateException(e);
         }
+        return values;
     }
 
     private String toString(Collection collection) {
@@ -81,21 +99,55 @@ public class RequestParameterMapper {
 
     public <T> T read(URL url, Class<T> type) {
         try {
-            Map<String, Object> params = splitQuery(url);
-            return objectMapper.readValue(objectMapper.writeValueAsString(params), type);
-        } catch (IOException e) {
+            // Bind the parameters directly rather than writing them out as JSON and parsing that
+            return objectMapper.convertValue(splitQuery(url), type);
+        } catch (IOException | IllegalArgumentException e) {
             throw new IllegalStateException(e);
         }
     }
 
-    private <T> List<Field> getDeclaredFields(Class<T> type) {
-        List<Field> fields = new ArrayList<>();
-        Class clazz = type;
+    private static Parameter[] getParameters(Class<?> type) {
+        List<Parameter> parameters = new ArrayList<>();
+        Class<?> clazz = type;
         while (!clazz.equals(Object.class)) {
-            fields.addAll(Arrays.asList(clazz.getDeclaredFields()));
+            for (Field field : clazz.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isTransient(modifiers) && !Modifier.isStatic(modifiers)) {
+                    parameters.add(new Parameter(STRATEGY.translate(field.getName()), accessor(field)));
+                }
+            }
             clazz = clazz.getSuperclass();
         }
-        return fields;
+        return parameters.toArray(new Parameter[0]);
+    }
+
+    private static MethodHandle accessor(Field field) {
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectGetter(field).asType(ACCESSOR_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Parameter {
+        private final String name;
+        private final MethodHandle accessor;
+
+        private Parameter(String name, MethodHandle accessor) {
+            this.name = name;
+            this.accessor = accessor;
+        }
+
+        private Object get(Object object) {
+            try {
+                return (Object) accessor.invokeExact(object);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
     }
 
     private static Map<String, Object> splitQuery(URL url) throws UnsupportedEncodingException {
@@ -0,0 +1,53 @@
+package uk.co.stuffusell.api.client.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free budget of retries shared by every call through a client. Each request deposits a fraction of a retry
+ * and each retry withdraws a whole one, capping the extra load retries can add during an outage.
+ */
+public class RetryBudget {
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long capacity;
+    private final AtomicLong balance;
+
+    /**
+     * Create a budget
+     *
+     * @param ratio   the retries deposited for each request
+     * @param minimum the retries the budget starts with
+     */
+    public RetryBudget(double ratio, int minimum) {
+        this.deposit = Math.round(ratio * SCALE);
+        this.capacity = Math.max(minimum, 1) * SCALE * 10;
+        this.balance = new AtomicLong(minimum * SCALE);
+    }
+
+    /**
+     * Record a request
+     */
+    public void deposit() {
+        if (deposit > 0) {
+            balance.accumulateAndGet(deposit, (current, amount) -> Math.min(capacity, current + amount));
+        }
+    }
+
+    /**
+     * Take a retry from the budget
+     *
+     * @return true if a retry was available
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+}
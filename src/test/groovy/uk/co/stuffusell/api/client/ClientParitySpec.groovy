@@ -0,0 +1,62 @@
+package uk.co.stuffusell.api.client
+
+import java.util.concurrent.CompletionException
+
+/**
+ * Runs the same stub responses through the blocking and the asynchronous client, which must agree on the result
+ */
+class ClientParitySpec extends StubServerSpec {
+    int status
+    String body
+    Map<String, String> headers
+
+    def setup() {
+        stub("/api/customer/current", { exchange -> respond(exchange, status, body, headers) })
+    }
+
+    def "Both clients fail the same way for the same response"() {
+        given:
+        this.status = status
+        this.body = body
+        this.headers = [:]
+
+        when:
+        Throwable blocking = failure { SusClient.make(configuration()).current("token") }
+        Throwable async = failure { AsyncSusClient.make(configuration()).current("token").join() }
+
+        then:
+        blocking.getClass() == expected
+        async.getClass() == expected
+        !(blocking instanceof SusServerException) || blocking.statusCode == async.statusCode
+
+        where:
+        status | body                              | expected
+        200    | ""                                | SusException
+        200    | '{"customer":'                    | SusException
+        401    | '{"error":"Not logged in"}'       | UnauthorisedException
+        403    | '{"error":"Not yours"}'           | ForbiddenException
+        500    | "oops"                            | SusServerException
+    }
+
+    def "Both clients return null for a response with no content"() {
+        given:
+        status = 204
+        body = ""
+        headers = [:]
+
+        expect:
+        SusClient.make(configuration()).current("token") == null
+        AsyncSusClient.make(configuration()).current("token").join() == null
+    }
+
+    private static Throwable failure(Closure<?> call) {
+        try {
+            call()
+            return null
+        } catch (CompletionException e) {
+            return e.cause
+        } catch (Exception e) {
+            return e
+        }
+    }
+}
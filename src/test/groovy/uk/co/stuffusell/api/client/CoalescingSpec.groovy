@@ -0,0 +1,66 @@
+package uk.co.stuffusell.api.client
+
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
+
+class CoalescingSpec extends StubServerSpec {
+    static final int CALLERS = 10
+
+    AtomicInteger requests = new AtomicInteger()
+    def callers = Executors.newFixedThreadPool(CALLERS)
+    SusClient client
+
+    def setup() {
+        stub("/api/customer/order/", { exchange ->
+            requests.incrementAndGet()
+            sleep(200)
+            respond(exchange, exchange.requestURI.path.endsWith("missing") ? 404 : 200, "{}")
+        })
+        client = SusClient.make(configuration().withRequestCoalescing(true))
+    }
+
+    def cleanup() {
+        callers.shutdownNow()
+    }
+
+    def "Identical GETs in flight together share one request"() {
+        when:
+        List<Object> orders = concurrently { client.getOrder("token", "S1") }*.get()
+
+        then:
+        requests.get() == 1
+        orders.every { it.is(orders[0]) }
+    }
+
+    def "Every caller gets the failure of the shared request"() {
+        when:
+        List<Throwable> failures = concurrently { client.getOrder("token", "missing") }.collect { future ->
+            try {
+                future.get()
+                null
+            } catch (ExecutionException e) {
+                e.cause
+            }
+        }
+
+        then:
+        requests.get() == 1
+        failures.every { it instanceof SusServerException }
+    }
+
+    def "Requests for other customers and requests made one after another are not shared"() {
+        when:
+        concurrently { int i -> client.getOrder("token-" + i, "S1") }*.get()
+        client.getOrder("token", "S1")
+        client.getOrder("token", "S1")
+
+        then:
+        requests.get() == CALLERS + 2
+    }
+
+    private List<Future<Object>> concurrently(Closure<Object> call) {
+        (1..CALLERS).collect { int i -> callers.submit({ call.maximumNumberOfParameters == 1 ? call(i) : call() }) }
+    }
+}
@@ -0,0 +1,101 @@
+package uk.co.stuffusell.api.client
+
+import jdk.jfr.Recording
+import jdk.jfr.consumer.RecordedEvent
+import jdk.jfr.consumer.RecordingFile
+import spock.lang.Requires
+import spock.lang.Timeout
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Puts 10k calls in flight at once, a virtual thread each, against a stub server that holds every response for a
+ * while, and records every virtual thread that blocks while pinned to its carrier. HttpClient 4.5 takes its pool
+ * lock inside synchronized blocks, so brief pins on that lock cannot be avoided, but no call may wait for a pooled
+ * connection while pinned: with more calls than connections that would hold every carrier. Only runs on Java 21 and
+ * later.
+ */
+@Requires({ Runtime.version().feature() >= 21 })
+class ConcurrentCallsSpec extends StubServerSpec {
+    static final int CALLS = 10_000
+    static final int CONNECTIONS = 200
+    static final long RESPONSE_DELAY_MILLIS = 20
+
+    ScheduledExecutorService responder = Executors.newSingleThreadScheduledExecutor()
+    AtomicInteger serverInFlight = new AtomicInteger()
+    AtomicInteger serverPeak = new AtomicInteger()
+
+    def setup() {
+        stub("/api/customer/current", { exchange ->
+            serverPeak.accumulateAndGet(serverInFlight.incrementAndGet(), Math.&max)
+            responder.schedule({
+                serverInFlight.decrementAndGet()
+                respond(exchange, 200, "{}")
+            }, RESPONSE_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+        })
+    }
+
+    def cleanup() {
+        responder.shutdownNow()
+    }
+
+    @Timeout(120)
+    def "Ten thousand calls on virtual threads complete without pinning their carriers"() {
+        given:
+        SusClient client = SusClient.make(configuration()
+                .withMaxConnectionsPerRoute(CONNECTIONS)
+                .withConnectionRequestTimeoutMillis(60_000))
+        ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()
+        CountDownLatch started = new CountDownLatch(CALLS)
+        Recording recording = new Recording()
+        recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace()
+        recording.start()
+
+        when:
+        List<Future<Object>> calls = (1..CALLS).collect { int i ->
+            threads.submit({
+                started.countDown()
+                started.await()
+                client.current("token-" + i)
+            } as Callable<Object>)
+        }
+        List<Object> responses = calls*.get()
+        List<RecordedEvent> pinnedWaits = pinnedEvents(recording).findAll { isWaitForConnection(it) }
+
+        then:
+        responses.every { it != null }
+        pinnedWaits.empty
+        serverPeak.get() <= CONNECTIONS
+        client.poolStatistics.leased == 0
+        client.poolStatistics.pending == 0
+
+        cleanup:
+        threads.shutdownNow()
+        recording.close()
+    }
+
+    private static boolean isWaitForConnection(RecordedEvent pinned) {
+        pinned.stackTrace?.frames?.any { it.method.name.startsWith("await") } ?: false
+    }
+
+    private static List<RecordedEvent> pinnedEvents(Recording recording) {
+        recording.stop()
+        Path dump = Files.createTempFile("pinned", ".jfr")
+        try {
+            recording.dump(dump)
+            return RecordingFile.readAllEvents(dump)
+        } finally {
+            Files.delete(dump)
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package uk.co.stuffusell.api.client
+
+import com.sun.net.httpserver.Headers
+
+import java.util.concurrent.CopyOnWriteArrayList
+
+class ConditionalRequestsSpec extends StubServerSpec {
+    static final String LAST_MODIFIED = "Wed, 21 Oct 2026 07:28:00 GMT"
+
+    List<Headers> requests = new CopyOnWriteArrayList<>()
+    Map<String, String> validators = ["ETag": '"v1"']
+    String body = '{"sku":"SKU1"}'
+    SusClient client
+
+    def setup() {
+        stub("/api/customer/order/", { exchange ->
+            requests << exchange.requestHeaders
+            String ifNoneMatch = exchange.requestHeaders.getFirst("If-None-Match")
+            String ifModifiedSince = exchange.requestHeaders.getFirst("If-Modified-Since")
+            boolean notModified = ifNoneMatch != null
+                    ? ifNoneMatch == validators["ETag"]
+                    : ifModifiedSince != null && ifModifiedSince == validators["Last-Modified"]
+            if (notModified) {
+                respond(exchange, 304, new byte[0], validators)
+            } else {
+                respond(exchange, 200, body, validators)
+            }
+        })
+        client = SusClient.make(configuration().withConditionalCacheSize(100))
+    }
+
+    def "A repeat GET sends the ETag and reuses the cached response when it is not modified"() {
+        given:
+        def first = client.getOrder("token", "SKU1")
+
+        when:
+        def second = client.getOrder("token", "SKU1")
+
+        then:
+        requests.size() == 2
+        requests[0].getFirst("If-None-Match") == null
+        requests[1].getFirst("If-None-Match") == '"v1"'
+        second.is(first)
+    }
+
+    def "A repeat GET sends the Last-Modified date when there is no ETag"() {
+        given:
+        validators = ["Last-Modified": LAST_MODIFIED]
+        def first = client.getOrder("token", "SKU1")
+
+        when:
+        def second = client.getOrder("token", "SKU1")
+
+        then:
+        requests[1].getFirst("If-Modified-Since") == LAST_MODIFIED
+        requests[1].getFirst("If-None-Match") == null
+        second.is(first)
+    }
+
+    def "A changed response replaces the cached one"() {
+        given:
+        def first = client.getOrder("token", "SKU1")
+        validators = ["ETag": '"v2"']
+
+        when:
+        def second = client.getOrder("token", "SKU1")
+        def third = client.getOrder("token", "SKU1")
+
+        then:
+        !second.is(first)
+        requests[2].getFirst("If-None-Match") == '"v2"'
+        third.is(second)
+    }
+
+    def "A response cached for one auth token is not reused for another"() {
+        given:
+        def first = client.getOrder("token-a", "SKU1")
+
+        when:
+        def second = client.getOrder("token-b", "SKU1")
+
+        then:
+        requests[1].getFirst("If-None-Match") == null
+        !second.is(first)
+    }
+
+    def "A response without validators is not cached"() {
+        given:
+        validators = [:]
+        client.getOrder("token", "SKU1")
+
+        when:
+        client.getOrder("token", "SKU1")
+
+        then:
+        requests[1].getFirst("If-None-Match") == null
+        requests[1].getFirst("If-Modified-Since") == null
+    }
+
+    def "Nothing is cached unless the conditional cache is enabled"() {
+        given:
+        SusClient uncached = SusClient.make(configuration())
+        uncached.getOrder("token", "SKU1")
+
+        when:
+        uncached.getOrder("token", "SKU1")
+
+        then:
+        requests[1].getFirst("If-None-Match") == null
+    }
+}
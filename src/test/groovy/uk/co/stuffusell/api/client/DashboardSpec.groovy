@@ -0,0 +1,87 @@
+package uk.co.stuffusell.api.client
+
+import java.time.Duration
+
+class DashboardSpec extends StubServerSpec {
+    static final Map<String, String> BODIES = [
+            "/api/customer/current"          : "{}",
+            "/api/customer/pricing"          : "{}",
+            "/api/customer/orders"           : "[]",
+            "/api/stock/summary"             : "{}",
+            "/api/customer/ledger"           : "{}",
+            "/api/customer/ledger/uninvoiced": "{}",
+            "/api/consignment/overview"      : "{}"]
+
+    Map<String, Integer> statuses = [:]
+    long delayMillis = 200
+    SusClient client
+
+    def setup() {
+        stub("/", { exchange ->
+            String path = exchange.requestURI.path
+            int status = statuses.getOrDefault(path, 200)
+            if (status == 200) {
+                sleep(delayMillis)
+            }
+            respond(exchange, status, status == 200 ? BODIES[path] : "{}")
+        })
+        client = SusClient.make(configuration())
+    }
+
+    def "The parts are fetched in parallel"() {
+        given:
+        client.dashboard("token", Duration.ofSeconds(5))
+
+        when:
+        long start = System.nanoTime()
+        Dashboard dashboard = client.dashboard("token", Duration.ofSeconds(5))
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000
+
+        then:
+        dashboard.complete
+        dashboard.customer != null
+        dashboard.orders == []
+        elapsedMillis < delayMillis * 3
+    }
+
+    def "A part that fails is recorded and the rest are returned"() {
+        given:
+        statuses["/api/stock/summary"] = 500
+
+        when:
+        Dashboard dashboard = client.dashboard("token", Duration.ofSeconds(5))
+
+        then:
+        !dashboard.complete
+        dashboard.errors.keySet() == [DashboardPart.STOCK_REPORT_SUMMARY] as Set
+        dashboard.errors[DashboardPart.STOCK_REPORT_SUMMARY] instanceof SusServerException
+        dashboard.stockReportSummary == null
+        dashboard.consignments != null
+    }
+
+    def "An auth failure cancels the other parts and is thrown"() {
+        given:
+        delayMillis = 5_000
+        statuses["/api/customer/current"] = 401
+
+        when:
+        long start = System.nanoTime()
+        client.dashboard("token", Duration.ofSeconds(10))
+
+        then:
+        thrown(UnauthorisedException)
+        (System.nanoTime() - start) / 1_000_000 < 2_000
+    }
+
+    def "Parts still running at the deadline are recorded as exceeding it"() {
+        given:
+        delayMillis = 2_000
+
+        when:
+        Dashboard dashboard = client.dashboard("token", Duration.ofMillis(300))
+
+        then:
+        dashboard.errors.size() == DashboardPart.values().length
+        dashboard.errors.values().every { it instanceof DeadlineExceededException }
+    }
+}
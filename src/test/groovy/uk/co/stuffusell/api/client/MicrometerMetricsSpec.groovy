@@ -0,0 +1,117 @@
+package uk.co.stuffusell.api.client
+
+import io.micrometer.core.instrument.Timer
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+
+class MicrometerMetricsSpec extends StubServerSpec {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry()
+    int status = 200
+
+    def setup() {
+        stub("/api/customer/order/", { exchange -> respond(exchange, status, status == 200 ? '{}' : '{"error":"x"}') })
+    }
+
+    def "Requests are timed and tagged by the path template rather than the path"() {
+        given:
+        SusClient client = client()
+
+        when:
+        client.getOrder("token", "SKU1")
+        client.getOrder("token", "SKU2")
+
+        then:
+        Timer timer = registry.get("sus.client.requests").timer()
+        timer.count() == 2
+        timer.id.getTag("method") == "GET"
+        timer.id.getTag("uri") == "/api/customer/order/{sku}"
+        timer.id.getTag("status") == "200"
+        timer.id.getTag("outcome") == "SUCCESS"
+        registry.get("sus.client.response.size").tag("uri", "/api/customer/order/{sku}").summary().totalAmount() == 4
+    }
+
+    def "Failed requests are tagged with their status and outcome"() {
+        given:
+        this.status = status
+        SusClient client = SusClient.make(configuration()
+                .withMetrics(new MicrometerMetrics(registry))
+                .withRetryPolicy(RetryPolicy.none()))
+
+        when:
+        client.getOrder("token", "SKU1")
+
+        then:
+        thrown(SusException)
+        registry.get("sus.client.requests").tags("status", status as String, "outcome", outcome).timer().count() == 1
+
+        where:
+        status | outcome
+        404    | "CLIENT_ERROR"
+        503    | "SERVER_ERROR"
+    }
+
+    def "A request that gets no response is tagged as an I/O error"() {
+        given:
+        SusClient client = SusClient.make(configuration()
+                .withMetrics(new MicrometerMetrics(registry))
+                .withRetryPolicy(RetryPolicy.none()))
+        server.stop(0)
+
+        when:
+        client.getOrder("token", "SKU1")
+
+        then:
+        thrown(SusException)
+        registry.get("sus.client.requests").tags("status", "IO_ERROR", "outcome", "UNKNOWN").timer().count() == 1
+    }
+
+    def "Retries are counted"() {
+        given:
+        status = 503
+        SusClient client = SusClient.make(configuration()
+                .withMetrics(new MicrometerMetrics(registry))
+                .withRetryPolicy(new RetryPolicy().withMaxRetries(2).withInitialBackoffMillis(1)))
+
+        when:
+        client.getOrder("token", "SKU1")
+
+        then:
+        thrown(SusServerException)
+        registry.get("sus.client.retries").tag("uri", "/api/customer/order/{sku}").counter().count() == 2
+    }
+
+    def "The connection pool is reported by gauges"() {
+        given:
+        SusClient client = SusClient.make(configuration()
+                .withMetrics(new MicrometerMetrics(registry))
+                .withMaxConnectionsPerRoute(7))
+
+        when:
+        client.getOrder("token", "SKU1")
+
+        then:
+        registry.get("sus.client.pool.available").tag("pool", "1").gauge().value() == 1
+        registry.get("sus.client.pool.leased").tag("pool", "1").gauge().value() == 0
+        registry.get("sus.client.pool.pending").tag("pool", "1").gauge().value() == 0
+        registry.get("sus.client.pool.max").tag("pool", "1").gauge().value() == 7
+    }
+
+    def "Clients sharing an instance each report their own pool"() {
+        given:
+        MicrometerMetrics metrics = new MicrometerMetrics(registry)
+        SusClient first = SusClient.make(configuration().withMetrics(metrics).withMaxConnectionsPerRoute(3))
+        SusClient.make(configuration().withMetrics(metrics).withMaxConnectionsPerRoute(5))
+
+        when:
+        first.getOrder("token", "SKU1")
+
+        then:
+        registry.get("sus.client.pool.max").tag("pool", "1").gauge().value() == 3
+        registry.get("sus.client.pool.max").tag("pool", "2").gauge().value() == 5
+        registry.get("sus.client.pool.available").tag("pool", "1").gauge().value() == 1
+        registry.get("sus.client.pool.available").tag("pool", "2").gauge().value() == 0
+    }
+
+    private SusClient client() {
+        SusClient.make(configuration().withMetrics(new MicrometerMetrics(registry)))
+    }
+}
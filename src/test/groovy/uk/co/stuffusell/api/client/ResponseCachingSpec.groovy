@@ -0,0 +1,77 @@
+package uk.co.stuffusell.api.client
+
+import uk.co.stuffusell.api.common.CustomerOrderUpdateRequest
+import uk.co.stuffusell.api.common.CustomerUpdateRequest
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicInteger
+
+class ResponseCachingSpec extends StubServerSpec {
+    Map<String, AtomicInteger> requests = new ConcurrentHashMap<>()
+    SusClient client
+
+    def setup() {
+        stub("/", { exchange ->
+            String path = exchange.requestURI.path
+            requests.computeIfAbsent(path, { new AtomicInteger() }).incrementAndGet()
+            respond(exchange, 200, path == "/api/customer/categories" ? '["Books"]' : '{}')
+        })
+        client = SusClient.make(configuration().withCachePolicy(new CachePolicy()))
+    }
+
+    def "Pricing is cached per customer"() {
+        when:
+        2.times { client.pricing("a") }
+        client.pricing("b")
+
+        then:
+        requests["/api/customer/pricing"].get() == 2
+        client.cacheStatistics.hitCount == 1
+        client.cacheStatistics.missCount == 2
+    }
+
+    def "A call that changes the customer's account drops their cached pricing"() {
+        given:
+        client.pricing("a")
+        client.pricing("b")
+
+        when:
+        change(client)
+        client.pricing("a")
+        client.pricing("b")
+
+        then:
+        requests["/api/customer/pricing"].get() == 3
+
+        where:
+        change << [
+                { SusClient c -> c.update("a", new CustomerUpdateRequest()) },
+                { SusClient c -> c.pricingChanged("a") },
+                { SusClient c -> c.updateOrder("a", "SKU1", new CustomerOrderUpdateRequest()) }]
+    }
+
+    def "Categories are shared and cannot be changed by a caller"() {
+        given:
+        List<String> categories = client.categories()
+
+        when:
+        categories.clear()
+
+        then:
+        thrown(UnsupportedOperationException)
+        client.categories() == ["Books"]
+        requests["/api/customer/categories"].get() == 1
+    }
+
+    def "Invalidating the cache fetches every response again"() {
+        given:
+        client.categories()
+
+        when:
+        client.invalidateCache()
+        client.categories()
+
+        then:
+        requests["/api/customer/categories"].get() == 2
+    }
+}
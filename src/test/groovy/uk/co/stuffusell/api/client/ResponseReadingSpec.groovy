@@ -0,0 +1,45 @@
+package uk.co.stuffusell.api.client
+
+class ResponseReadingSpec extends StubServerSpec {
+    String body
+    SusClient client
+
+    def setup() {
+        stub("/api/customer/orders", { exchange -> respond(exchange, 200, body) })
+        client = SusClient.make(configuration())
+    }
+
+    def "A response is parsed from the entity stream"() {
+        given:
+        body = "[" + (1..500).collect { '{"orderId":"' + it + '"}' }.join(",") + "]"
+
+        expect:
+        client.orders("token").size() == 500
+    }
+
+    def "An error carried by a 200 is recovered from the replay buffer"() {
+        given:
+        body = '{"error":"Session expired"}'
+
+        when:
+        client.orders("token")
+
+        then:
+        SusServerException e = thrown()
+        e.statusCode == 200
+        e.error.error == "Session expired"
+    }
+
+    def "An unreadable 200 that is not an error is reported as unreadable"() {
+        given:
+        body = '{"orders":' + ("x" * 10_000)
+
+        when:
+        client.orders("token")
+
+        then:
+        SusException e = thrown()
+        !(e instanceof SusServerException)
+        e.cause instanceof IOException
+    }
+}
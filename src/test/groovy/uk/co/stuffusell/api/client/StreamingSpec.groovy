@@ -0,0 +1,60 @@
+package uk.co.stuffusell.api.client
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+import java.util.stream.Collectors
+
+class StreamingSpec extends StubServerSpec {
+    static final int TOTAL = 23
+
+    List<Integer> requested = new CopyOnWriteArrayList<>()
+
+    def setup() {
+        stub("/api/stock/list", { exchange ->
+            Map<String, String> query = exchange.requestURI.query.split("&").collectEntries { it.split("=") as List }
+            int page = query.page as int
+            int pageSize = query.pageSize as int
+            requested << page
+            int items = Math.max(0, Math.min(pageSize, TOTAL - page * pageSize))
+            respond(exchange, 200, '{"items":[' + (['{}'] * items).join(",") + '],"total":' + TOTAL + '}')
+        })
+    }
+
+    def "A stream asks for no pages past the reported total"() {
+        given:
+        SusClient client = SusClient.make(configuration().withPageSize(10).withPagePrefetch(prefetch))
+
+        when:
+        long count = client.streamStock("token").count()
+
+        then:
+        count == TOTAL
+        requested.sort() == [0, 1, 2]
+
+        cleanup:
+        client.close()
+
+        where:
+        prefetch << [0, 2, 5]
+    }
+
+    def "Background threads are only started when first needed and stopped when the client is closed"() {
+        given:
+        SusClient client = SusClient.make(configuration().withPageSize(10).withPagePrefetch(2))
+
+        expect:
+        client.@executor.@threads == null
+
+        when:
+        client.streamStock("token").withCloseable { it.collect(Collectors.toList()) }
+
+        then:
+        client.@executor.@threads != null
+
+        when:
+        client.close()
+
+        then:
+        client.@executor.@threads.awaitTermination(5, TimeUnit.SECONDS)
+    }
+}
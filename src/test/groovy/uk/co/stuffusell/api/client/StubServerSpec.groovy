@@ -0,0 +1,66 @@
+package uk.co.stuffusell.api.client
+
+import com.sun.net.httpserver.HttpExchange
+import com.sun.net.httpserver.HttpHandler
+import com.sun.net.httpserver.HttpServer
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+/**
+ * Base for specs that run the client against a local stub of the API. The server is started before each feature,
+ * with a thread per exchange, and stopped after it.
+ */
+abstract class StubServerSpec extends Specification {
+    static final int BACKLOG = 1024
+
+    HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), BACKLOG)
+    ExecutorService serverThreads = Executors.newCachedThreadPool()
+
+    def setup() {
+        server.executor = serverThreads
+        server.start()
+    }
+
+    def cleanup() {
+        server.stop(0)
+        serverThreads.shutdownNow()
+    }
+
+    String getEndpoint() {
+        "http://localhost:" + server.address.port
+    }
+
+    /**
+     * Get a configuration for a client of the stub
+     */
+    Configuration configuration() {
+        new Configuration()
+                .withEndpoint(endpoint)
+                .withAccessToken("key")
+    }
+
+    /**
+     * Handle requests for paths starting with the given path
+     */
+    void stub(String path, Closure handler) {
+        server.createContext(path, handler as HttpHandler)
+    }
+
+    /**
+     * Send a JSON response and close the exchange
+     */
+    static void respond(HttpExchange exchange, int status, String body, Map<String, String> headers = [:]) {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8)
+        respond(exchange, status, content, ["Content-Type": "application/json"] + headers)
+    }
+
+    static void respond(HttpExchange exchange, int status, byte[] body, Map<String, String> headers = [:]) {
+        headers.each { name, value -> exchange.responseHeaders.add(name, value) }
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length)
+        exchange.responseBody.write(body)
+        exchange.close()
+    }
+}
@@ -0,0 +1,59 @@
+package uk.co.stuffusell.api.client
+
+import java.util.concurrent.atomic.AtomicInteger
+
+class ThrottlingSpec extends StubServerSpec {
+    AtomicInteger requests = new AtomicInteger()
+    int throttled
+
+    def setup() {
+        stub("/api/customer/current", { exchange ->
+            if (requests.incrementAndGet() <= throttled) {
+                respond(exchange, 429, '{"error":"Too many requests"}', ["Retry-After": "0"])
+            } else {
+                respond(exchange, 200, '{}')
+            }
+        })
+    }
+
+    def "A throttled request is retried after the server's Retry-After"() {
+        given:
+        throttled = 2
+        SusClient client = SusClient.make(configuration().withAdaptiveRateLimit(true))
+
+        when:
+        def customer = client.current("token")
+
+        then:
+        customer != null
+        requests.get() == 3
+    }
+
+    def "A request still throttled after the retries are used up is reported"() {
+        given:
+        throttled = Integer.MAX_VALUE
+        SusClient client = SusClient.make(configuration().withAdaptiveRateLimit(true).withMaxThrottleRetries(2))
+
+        when:
+        client.current("token")
+
+        then:
+        SusServerException e = thrown()
+        e.statusCode == 429
+        requests.get() == 3
+    }
+
+    def "Throttled requests are not retried unless the client adapts to the rate limit"() {
+        given:
+        throttled = 1
+        SusClient client = SusClient.make(configuration())
+
+        when:
+        client.current("token")
+
+        then:
+        SusServerException e = thrown()
+        e.statusCode == 429
+        requests.get() == 1
+    }
+}
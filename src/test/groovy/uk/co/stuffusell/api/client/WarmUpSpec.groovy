@@ -0,0 +1,140 @@
+package uk.co.stuffusell.api.client
+
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class WarmUpSpec extends StubServerSpec {
+
+    def setup() {
+        stub("/api/customer/current", { exchange -> respond(exchange, 200, "{}") })
+    }
+
+    def "A warm-up leaves the connections open in the pool"() {
+        given:
+        SusClient client = SusClient.make(configuration().withWarmUpConnections(3))
+
+        when:
+        WarmUpReport report = client.warmUp()
+
+        then:
+        report.connections == 3
+        report.failures == 0
+        client.poolStatistics.available == 3
+        client.poolStatistics.leased == 0
+    }
+
+    def "Connections already in the pool count towards the warm-up"() {
+        given:
+        SusClient client = SusClient.make(configuration().withWarmUpConnections(3))
+        client.current("token")
+
+        when:
+        WarmUpReport report = client.warmUp()
+
+        then:
+        report.connections == 3
+        client.poolStatistics.available == 3
+    }
+
+    def "Connections that cannot be opened are counted as failures"() {
+        given:
+        server.stop(0)
+        SusClient client = SusClient.make(configuration().withWarmUpConnections(3).withConnectTimeoutMillis(1000))
+
+        when:
+        WarmUpReport report = client.warmUp()
+
+        then:
+        report.connections == 0
+        report.failures == 3
+        client.poolStatistics.available == 0
+    }
+
+    def "Warming up on start completes on a single threaded executor"() {
+        given:
+        ExecutorService executor = Executors.newSingleThreadExecutor()
+
+        when:
+        SusClient client = SusClient.make(configuration()
+                .withExecutor(executor)
+                .withWarmUpOnStart(true)
+                .withWarmUpConnections(4))
+        WarmUpReport report = client.startupWarmUp.get(10, TimeUnit.SECONDS)
+
+        then:
+        report.connections == 4
+        client.poolStatistics.available == 4
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "Warmed connections are evicted once idle for the idle timeout"() {
+        given:
+        SusClient client = SusClient.make(configuration()
+                .withWarmUpConnections(3)
+                .withIdleConnectionTimeoutMillis(200))
+        client.warmUp()
+
+        expect:
+        waitFor { client.poolStatistics.available == 0 }
+    }
+
+    def "Warmed connections are only kept for the keep-alive"() {
+        given:
+        SusClient client = SusClient.make(configuration()
+                .withWarmUpConnections(3)
+                .withKeepAliveMillis(100))
+        client.warmUp()
+
+        when:
+        sleep(200)
+        client.current("token")
+
+        then:
+        client.poolStatistics.available == 1
+    }
+
+    def "Closing the client closes its connections and stops the idle connection reaper"() {
+        given:
+        int reapers = reaperThreads()
+        SusClient client = SusClient.make(configuration()
+                .withWarmUpConnections(3)
+                .withIdleConnectionTimeoutMillis(60_000))
+        client.warmUp()
+
+        when:
+        client.close()
+
+        then:
+        client.poolStatistics.available == 0
+        waitFor { reaperThreads() == reapers }
+    }
+
+    def "A client with the default configuration runs no idle connection reaper"() {
+        given:
+        int reapers = reaperThreads()
+
+        when:
+        SusClient client = SusClient.make(configuration())
+
+        then:
+        reaperThreads() == reapers
+
+        cleanup:
+        client.close()
+    }
+
+    private static int reaperThreads() {
+        Thread.allStackTraces.keySet().count { it.name == "Connection evictor" && it.alive }
+    }
+
+    private static boolean waitFor(Closure<Boolean> condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+        while (!condition() && System.nanoTime() < deadline) {
+            sleep(20)
+        }
+        condition()
+    }
+}
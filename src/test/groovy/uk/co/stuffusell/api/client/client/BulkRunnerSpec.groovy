@@ -0,0 +1,102 @@
+package uk.co.stuffusell.api.client.client
+
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.BulkProgressListener
+import uk.co.stuffusell.api.client.SusException
+import uk.co.stuffusell.api.client.UnauthorisedException
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.function.Function
+
+class BulkRunnerSpec extends Specification {
+
+    def executor = Executors.newCachedThreadPool()
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "Each distinct key is called once and failures do not stop the run"() {
+        given:
+        List<String> called = new CopyOnWriteArrayList<>()
+        Function<String, String> call = { String key ->
+            called << key
+            if (key == "bad") {
+                throw new SusException("no such order")
+            }
+            key.toLowerCase()
+        }
+
+        when:
+        def result = new BulkRunner(executor, 3).run(["A", "B", "bad", "C", "A"], call, null)
+
+        then:
+        called.sort() == ["A", "B", "C", "bad"]
+        result.results == [A: "a", B: "b", C: "c"]
+        result.results.keySet().toList() == ["A", "B", "C"]
+        result.failures.keySet() == ["bad"] as Set
+        !result.complete
+    }
+
+    def "No more calls than the concurrency are in flight at once"() {
+        given:
+        AtomicInteger inFlight = new AtomicInteger()
+        AtomicInteger peak = new AtomicInteger()
+        Function<String, String> call = { String key ->
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math.&max)
+            sleep(10)
+            inFlight.decrementAndGet()
+            key
+        }
+
+        when:
+        def result = new BulkRunner(executor, 4).run((1..40).collect { it.toString() }, call, null)
+
+        then:
+        result.complete
+        result.results.size() == 40
+        peak.get() <= 4
+    }
+
+    def "Progress is reported after every call"() {
+        given:
+        List<Integer> completed = new CopyOnWriteArrayList<>()
+        AtomicInteger lastFailed = new AtomicInteger()
+        BulkProgressListener listener = { int done, int failed, int total ->
+            assert total == 10
+            completed << done
+            lastFailed.accumulateAndGet(failed, Math.&max)
+        }
+        Function<String, String> call = { String key ->
+            if (key == "5") {
+                throw new SusException("failed")
+            }
+            key
+        }
+
+        when:
+        new BulkRunner(executor, 2).run((1..10).collect { it.toString() }, call, listener)
+
+        then:
+        completed.sort() == (1..10).toList()
+        lastFailed.get() == 1
+    }
+
+    def "An auth failure stops the run and is thrown"() {
+        given:
+        AtomicInteger calls = new AtomicInteger()
+        Function<String, String> call = { String key ->
+            calls.incrementAndGet()
+            throw new UnauthorisedException(401, "Unauthorized", null)
+        }
+
+        when:
+        new BulkRunner(executor, 2).run((1..100).collect { it.toString() }, call, null)
+
+        then:
+        thrown(UnauthorisedException)
+        calls.get() < 100
+    }
+}
@@ -0,0 +1,94 @@
+package uk.co.stuffusell.api.client.client
+
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.ClientSpan
+import uk.co.stuffusell.api.client.TracePhase
+
+import java.util.concurrent.TimeUnit
+
+class CallTraceSpec extends Specification {
+    static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1)
+
+    Map<TracePhase, Long> phases = [:]
+    ClientSpan span = Mock() {
+        onPhase(_, _) >> { TracePhase phase, long nanos -> phases[phase] = (phases[phase] ?: 0L) + nanos }
+    }
+    CallTrace trace = new CallTrace(span)
+
+    def "The pool lease is the time to send less the time spent connecting"() {
+        when:
+        trace.startAttempt()
+        sleep(60)
+        trace.onConnect(20 * MILLIS)
+        trace.onRequestSent()
+        sleep(30)
+        trace.onHeadersReceived()
+        trace.endAttempt(200)
+
+        then:
+        phases[TracePhase.CONNECT] == 20 * MILLIS
+        phases[TracePhase.POOL_LEASE] >= 40 * MILLIS
+        phases[TracePhase.POOL_LEASE] < 60 * MILLIS
+        phases[TracePhase.TIME_TO_FIRST_BYTE] >= 30 * MILLIS
+        phases[TracePhase.TIME_TO_FIRST_BYTE] < 60 * MILLIS
+    }
+
+    def "Without the connection hooks the time to first byte runs from the start of the attempt"() {
+        when:
+        trace.startAttempt()
+        sleep(30)
+        trace.onHeadersReceived()
+        trace.endAttempt(200)
+
+        then:
+        phases.keySet() == [TracePhase.TIME_TO_FIRST_BYTE] as Set
+        phases[TracePhase.TIME_TO_FIRST_BYTE] >= 30 * MILLIS
+    }
+
+    def "An attempt without a response reports no time to first byte"() {
+        when:
+        trace.startAttempt()
+        trace.onRequestSent()
+        trace.endAttempt(0)
+
+        then:
+        !phases.containsKey(TracePhase.TIME_TO_FIRST_BYTE)
+        !phases.containsKey(TracePhase.CONNECT)
+        phases.containsKey(TracePhase.POOL_LEASE)
+    }
+
+    def "The span ends with the last status and the number of attempts"() {
+        given:
+        Exception failure = new IOException("reset")
+
+        when:
+        trace.startAttempt()
+        trace.endAttempt(503)
+        trace.startAttempt()
+        trace.endAttempt(0)
+        trace.end(failure)
+
+        then:
+        1 * span.end(0, 2, failure)
+    }
+
+    def "Reads from a timed stream are counted"() {
+        given:
+        InputStream slow = new InputStream() {
+            int remaining = 3
+
+            @Override
+            int read() {
+                sleep(20)
+                remaining-- > 0 ? 'x' as char : -1
+            }
+        }
+        CallTrace.TimedInputStream timed = new CallTrace.TimedInputStream(slow)
+
+        when:
+        timed.bytes
+
+        then:
+        timed.readNanos >= 60 * MILLIS
+    }
+}
@@ -0,0 +1,203 @@
+package uk.co.stuffusell.api.client.client
+
+import uk.co.stuffusell.api.client.CircuitBreakerOpenException
+import uk.co.stuffusell.api.client.CircuitBreakerPolicy
+import uk.co.stuffusell.api.client.CircuitState
+import uk.co.stuffusell.api.client.RetryPolicy
+import uk.co.stuffusell.api.client.StubServerSpec
+import uk.co.stuffusell.api.client.SusServerException
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+class CircuitBreakerSpec extends StubServerSpec {
+    List<List<CircuitState>> transitions = new CopyOnWriteArrayList<>()
+    CircuitBreakerPolicy policy = new CircuitBreakerPolicy()
+            .withMinimumCalls(4)
+            .withWindowSize(10)
+            .withFailureRateThreshold(50)
+            .withOpenDurationMillis(100)
+            .withHalfOpenProbes(2)
+            .withListener({ name, from, to -> transitions << [from, to] })
+
+    def "The circuit opens once the failure rate is reached after the minimum calls"() {
+        given:
+        CircuitBreaker breaker = new CircuitBreaker("sus", policy)
+
+        when:
+        [true, true, false].each { breaker.onResult(it, 0) }
+
+        then:
+        breaker.state == CircuitState.CLOSED
+
+        when:
+        breaker.onResult(true, 0)
+
+        then:
+        breaker.state == CircuitState.OPEN
+        transitions == [[CircuitState.CLOSED, CircuitState.OPEN]]
+    }
+
+    def "Failures below the threshold keep the circuit closed"() {
+        given:
+        CircuitBreaker breaker = new CircuitBreaker("sus", policy)
+
+        when:
+        30.times { breaker.onResult(it % 4 == 3, 0) }
+
+        then:
+        breaker.state == CircuitState.CLOSED
+        transitions.empty
+    }
+
+    def "The counts start again after each window"() {
+        given:
+        CircuitBreaker breaker = new CircuitBreaker("sus", policy.withMinimumCalls(10).withFailureRateThreshold(30))
+
+        when:
+        8.times { breaker.onResult(false, 0) }
+        2.times { breaker.onResult(true, 0) }
+        2.times { breaker.onResult(true, 0) }
+
+        then:
+        breaker.state == CircuitState.CLOSED
+    }
+
+    def "Slow calls count as failures"() {
+        given:
+        CircuitBreaker breaker = new CircuitBreaker("sus", policy.withSlowCallThresholdMillis(10))
+
+        when:
+        4.times { breaker.onResult(false, 20_000_000L) }
+
+        then:
+        breaker.state == CircuitState.OPEN
+    }
+
+    def "Calls fail fast while the circuit is open"() {
+        given:
+        CircuitBreaker breaker = open(new CircuitBreaker("sus", policy))
+
+        when:
+        breaker.acquirePermission()
+
+        then:
+        CircuitBreakerOpenException e = thrown()
+        e.circuit == "sus"
+    }
+
+    def "The circuit closes when every half-open probe succeeds"() {
+        given:
+        CircuitBreaker breaker = open(new CircuitBreaker("sus", policy))
+        sleep(150)
+
+        when:
+        2.times { breaker.acquirePermission() }
+
+        then:
+        breaker.state == CircuitState.HALF_OPEN
+
+        when:
+        breaker.acquirePermission()
+
+        then:
+        thrown(CircuitBreakerOpenException)
+
+        when:
+        2.times { breaker.onResult(false, 0) }
+
+        then:
+        breaker.state == CircuitState.CLOSED
+        transitions.drop(1) == [
+                [CircuitState.OPEN, CircuitState.HALF_OPEN],
+                [CircuitState.HALF_OPEN, CircuitState.CLOSED]]
+    }
+
+    def "The circuit opens again when a half-open probe fails"() {
+        given:
+        CircuitBreaker breaker = open(new CircuitBreaker("sus", policy))
+        sleep(150)
+        2.times { breaker.acquirePermission() }
+
+        when:
+        breaker.onResult(false, 0)
+        breaker.onResult(true, 0)
+
+        then:
+        breaker.state == CircuitState.OPEN
+
+        when:
+        breaker.acquirePermission()
+
+        then:
+        thrown(CircuitBreakerOpenException)
+    }
+
+    def "Concurrent results are neither lost nor reported twice"() {
+        given:
+        int threads = 8
+        int callsPerThread = 1250
+        CircuitBreaker breaker = new CircuitBreaker(
+                "sus", policy.withMinimumCalls(threads * callsPerThread + 1).withWindowSize(1_000_000))
+        def executor = Executors.newFixedThreadPool(threads)
+        CountDownLatch start = new CountDownLatch(1)
+
+        when:
+        (1..threads).collect {
+            executor.submit({
+                start.await()
+                callsPerThread.times { breaker.onResult(it % 2 == 0, 0) }
+            })
+        }.with { futures ->
+            start.countDown()
+            futures*.get()
+        }
+
+        then:
+        breaker.state == CircuitState.CLOSED
+
+        when:
+        breaker.onResult(true, 0)
+
+        then:
+        breaker.state == CircuitState.OPEN
+        transitions == [[CircuitState.CLOSED, CircuitState.OPEN]]
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "An open circuit fails calls without sending them"() {
+        given:
+        AtomicInteger requests = new AtomicInteger()
+        stub("/api/orders", { exchange ->
+            requests.incrementAndGet()
+            respond(exchange, 500, '{"error":"Broken"}')
+        })
+        HttpClient client = new HttpClient(configuration()
+                .withRetryPolicy(RetryPolicy.none())
+                .withCircuitBreakerPolicy(policy.withOpenDurationMillis(60_000)))
+
+        when:
+        4.times {
+            try {
+                client.get("/api/orders", [:], Map, new RequestContext())
+            } catch (SusServerException ignore) {
+            }
+        }
+        client.get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        thrown(CircuitBreakerOpenException)
+        requests.get() == 4
+        client.circuitStates.values().toList() == [CircuitState.OPEN]
+    }
+
+    private static CircuitBreaker open(CircuitBreaker breaker) {
+        4.times { breaker.onResult(true, 0) }
+        assert breaker.state == CircuitState.OPEN
+        breaker
+    }
+}
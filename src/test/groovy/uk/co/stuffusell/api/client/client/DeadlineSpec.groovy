@@ -0,0 +1,150 @@
+package uk.co.stuffusell.api.client.client
+
+import uk.co.stuffusell.api.client.DeadlineExceededException
+import uk.co.stuffusell.api.client.RetryPolicy
+import uk.co.stuffusell.api.client.StubServerSpec
+import uk.co.stuffusell.api.client.SusException
+
+import java.time.Duration
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DeadlineSpec extends StubServerSpec {
+    AtomicInteger requests = new AtomicInteger()
+    long delayMillis
+    int status = 200
+    def canceller = Executors.newSingleThreadScheduledExecutor()
+
+    def setup() {
+        stub("/api/orders", { exchange ->
+            requests.incrementAndGet()
+            sleep(delayMillis)
+            respond(exchange, status, status == 200 ? '{}' : '{"error":"Unavailable"}')
+        })
+    }
+
+    def cleanup() {
+        canceller.shutdownNow()
+    }
+
+    def "A slow response is abandoned at the deadline even with long configured timeouts"() {
+        given:
+        delayMillis = 3000
+        HttpClient client = new HttpClient(configuration()
+                .withSocketTimeoutMillis(30_000)
+                .withRetryPolicy(RetryPolicy.none()))
+
+        when:
+        long start = System.nanoTime()
+        client.withDeadline(Deadline.after(Duration.ofMillis(200))).get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        thrown(DeadlineExceededException)
+        requests.get() == 1
+        millisSince(start) < 1000
+    }
+
+    def "A call made after the deadline has passed fails without sending the request"() {
+        given:
+        Deadline deadline = Deadline.after(Duration.ofMillis(1))
+        sleep(10)
+
+        when:
+        new HttpClient(configuration()).withDeadline(deadline).get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        DeadlineExceededException e = thrown()
+        e.message == "Deadline exceeded"
+        requests.get() == 0
+    }
+
+    def "Retries stop rather than back off past the deadline"() {
+        given:
+        status = 503
+        HttpClient client = new HttpClient(configuration().withRetryPolicy(new RetryPolicy()
+                .withMaxRetries(10)
+                .withInitialBackoffMillis(1000)
+                .withMinRetryBudget(100)))
+
+        when:
+        long start = System.nanoTime()
+        client.withDeadline(Deadline.after(Duration.ofMillis(300))).get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        thrown(SusException)
+        millisSince(start) < 600
+    }
+
+    def "Cancelling the deadline wakes a call waiting for the rate limit"() {
+        given:
+        HttpClient client = new HttpClient(configuration()
+                .withBlockTillRateLimitReset(true)
+                .withRequestsPerSecond(1)
+                .withRequestBurstSize(1))
+                .withDeadline(Deadline.after(Duration.ofSeconds(10)))
+        client.get("/api/orders", [:], Map, new RequestContext())
+        Deadline deadline = Deadline.after(Duration.ofSeconds(10))
+        canceller.schedule({ deadline.cancel() }, 100, TimeUnit.MILLISECONDS)
+
+        when:
+        long start = System.nanoTime()
+        client.withDeadline(deadline).get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        DeadlineExceededException e = thrown()
+        e.message == "Call cancelled"
+        requests.get() == 1
+        millisSince(start) < 700
+    }
+
+    def "Cancelling the deadline wakes a call backing off before a retry"() {
+        given:
+        status = 503
+        HttpClient client = new HttpClient(configuration().withRetryPolicy(new RetryPolicy()
+                .withInitialBackoffMillis(60_000)
+                .withMaxBackoffMillis(60_000)))
+        Deadline deadline = Deadline.after(Duration.ofMinutes(5))
+        canceller.schedule({ deadline.cancel() }, 200, TimeUnit.MILLISECONDS)
+
+        when:
+        long start = System.nanoTime()
+        client.withDeadline(deadline).get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        thrown(SusException)
+        millisSince(start) < 1000
+    }
+
+    def "Cancelling the deadline wakes a call waiting for a pooled connection"() {
+        given:
+        delayMillis = 3000
+        HttpClient client = new HttpClient(configuration()
+                .withMaxConnectionsPerRoute(1)
+                .withConnectionRequestTimeoutMillis(30_000))
+        Thread holder = Thread.start { client.get("/api/orders", [:], Map, new RequestContext()) }
+        while (requests.get() == 0) {
+            sleep(5)
+        }
+        Deadline deadline = Deadline.after(Duration.ofMinutes(5))
+        canceller.schedule({ deadline.cancel() }, 100, TimeUnit.MILLISECONDS)
+
+        when:
+        long start = System.nanoTime()
+        client.withDeadline(deadline).get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        DeadlineExceededException e = thrown()
+        e.message == "Call cancelled"
+        !Thread.currentThread().isInterrupted()
+        requests.get() == 1
+        millisSince(start) < 1000
+
+        cleanup:
+        holder.join()
+    }
+
+    private static long millisSince(long start) {
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+    }
+}
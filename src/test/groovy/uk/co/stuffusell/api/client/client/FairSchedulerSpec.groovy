@@ -0,0 +1,215 @@
+package uk.co.stuffusell.api.client.client
+
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.DeadlineExceededException
+import uk.co.stuffusell.api.client.FairSchedulingPolicy
+import uk.co.stuffusell.api.client.QueueFullException
+import uk.co.stuffusell.api.client.QueueStatistics
+import uk.co.stuffusell.api.client.RequestPriority
+import uk.co.stuffusell.api.client.SusException
+import uk.co.stuffusell.api.client.util.RateLimiter
+
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+class FairSchedulerSpec extends Specification {
+    def callers = Executors.newCachedThreadPool()
+
+    def cleanup() {
+        callers.shutdownNow()
+    }
+
+    def "A customer's interactive call goes ahead of another customer's batch backlog"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(20, 1), new FairSchedulingPolicy())
+        ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>()
+        List<Future<?>> exports = (1..10).collect {
+            callers.submit({
+                scheduler.acquire(context("export", RequestPriority.BATCH), -1, null)
+                order.add("export")
+            })
+        }
+        waitForQueued(scheduler, "export", 8)
+
+        when:
+        scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), -1, null)
+        order.add("shop")
+        exports*.get()
+
+        then:
+        order.toList().indexOf("shop") <= 4
+    }
+
+    def "Customers with calls waiting share the rate limit in turn"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(50, 1), new FairSchedulingPolicy())
+        ConcurrentLinkedQueue<String> order = new ConcurrentLinkedQueue<>()
+        scheduler.acquire(context("a", RequestPriority.BATCH), -1, null)
+
+        when:
+        List<Future<?>> calls = ["a", "b"].collectMany { customer ->
+            (1..6).collect {
+                callers.submit({
+                    scheduler.acquire(context(customer, RequestPriority.BATCH), -1, null)
+                    order.add(customer)
+                })
+            }
+        }
+        calls*.get()
+
+        then:
+        order.toList().take(6).count("a") in 2..4
+    }
+
+    def "A customer with the maximum calls waiting is refused at once"() {
+        given:
+        RateLimiter limiter = new RateLimiter(1, 1)
+        FairScheduler scheduler = new FairScheduler(
+                limiter, new FairSchedulingPolicy().withMaxQueuedPerCustomer(2))
+        scheduler.acquire(context("export", RequestPriority.BATCH), -1, null)
+        // Hold back the next permit so neither waiting call can be let through
+        limiter.pause(TimeUnit.MINUTES.toNanos(1))
+        2.times { callers.submit({ scheduler.acquire(context("export", RequestPriority.BATCH), -1, null) }) }
+        waitForQueued(scheduler, "export", 2)
+
+        when:
+        scheduler.acquire(context("export", RequestPriority.BATCH), -1, null)
+
+        then:
+        thrown(QueueFullException)
+        scheduler.statistics[key("export")].queued == 2
+    }
+
+    def "A call that times out leaves the queue"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(1, 1), new FairSchedulingPolicy())
+        scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), -1, null)
+
+        when:
+        scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), 50, null)
+
+        then:
+        SusException e = thrown()
+        e.message == "Timed out waiting for the rate limit"
+        scheduler.statistics[key("shop")].queued == 0
+    }
+
+    def "A call that reaches its deadline leaves the queue"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(1, 1), new FairSchedulingPolicy())
+        scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), -1, null)
+
+        when:
+        scheduler.acquire(
+                context("shop", RequestPriority.INTERACTIVE), -1, Deadline.after(Duration.ofMillis(50)))
+
+        then:
+        thrown(DeadlineExceededException)
+        scheduler.statistics[key("shop")].queued == 0
+    }
+
+    def "A permit reserved for a call that timed out is not lost"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(2, 1), new FairSchedulingPolicy())
+        long start = System.nanoTime()
+        scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), -1, null)
+        try {
+            scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), 50, null)
+        } catch (SusException ignore) {
+        }
+
+        when:
+        sleep(700 - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+        long waited = scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), -1, null)
+
+        then:
+        waited == 0
+    }
+
+    def "A permit granted to a call interrupted before it could use it goes to the next call"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(1, 1), new FairSchedulingPolicy())
+        scheduler.acquire(context("a", RequestPriority.INTERACTIVE), -1, null)
+        long start = System.nanoTime()
+        Thread interrupted = null
+        Future<?> first = callers.submit({
+            interrupted = Thread.currentThread()
+            scheduler.acquire(context("b", RequestPriority.INTERACTIVE), -1, null)
+        })
+        waitForQueued(scheduler, "b", 1)
+        Future<Long> second = callers.submit({
+            scheduler.acquire(context("c", RequestPriority.INTERACTIVE), -1, null)
+        } as Callable<Long>)
+        waitForQueued(scheduler, "c", 1)
+
+        when:
+        // Hold the scheduler past the first dispatch, so the first call is interrupted once granted but not yet awake
+        scheduler.@lock.lock()
+        try {
+            sleep(1100 - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))
+            interrupted.interrupt()
+            sleep(50)
+        } finally {
+            scheduler.@lock.unlock()
+        }
+        first.get()
+
+        then:
+        ExecutionException e = thrown()
+        e.cause.cause instanceof InterruptedException
+        second.get() < TimeUnit.MILLISECONDS.toNanos(1500)
+    }
+
+    def "The waits are recorded per customer"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(10, 1), new FairSchedulingPolicy())
+
+        when:
+        3.times { scheduler.acquire(context("shop", RequestPriority.INTERACTIVE), -1, null) }
+        scheduler.acquire(context(null, RequestPriority.INTERACTIVE), -1, null)
+
+        then:
+        scheduler.statistics[key("shop")].dispatched == 3
+        scheduler.statistics[key("shop")].queued == 0
+        scheduler.statistics[key("shop")].maxWait >= Duration.ofMillis(50)
+        scheduler.statistics[key("shop")].meanWait <= scheduler.statistics[key("shop")].maxWait
+        scheduler.statistics[""].dispatched == 1
+    }
+
+    def "Customers are reported by a fingerprint of their auth token"() {
+        given:
+        FairScheduler scheduler = new FairScheduler(new RateLimiter(10, 1), new FairSchedulingPolicy())
+
+        when:
+        scheduler.acquire(context("secret-token", RequestPriority.INTERACTIVE), -1, null)
+
+        then:
+        scheduler.statistics.keySet() == [QueueStatistics.customerKey("secret-token")] as Set
+        QueueStatistics.customerKey("secret-token") ==~ /[0-9a-f]{16}/
+        QueueStatistics.customerKey("secret-token") != QueueStatistics.customerKey("other-token")
+        QueueStatistics.customerKey(null) == ""
+    }
+
+    private static String key(String authToken) {
+        QueueStatistics.customerKey(authToken)
+    }
+
+    private static RequestContext context(String authToken, RequestPriority priority) {
+        RequestContext context = new RequestContext()
+        context.authToken = authToken
+        context.priority = priority
+        context
+    }
+
+    private static void waitForQueued(FairScheduler scheduler, String customer, int queued) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5)
+        while ((scheduler.statistics[key(customer)]?.queued ?: 0) < queued && System.nanoTime() < deadline) {
+            sleep(5)
+        }
+    }
+}
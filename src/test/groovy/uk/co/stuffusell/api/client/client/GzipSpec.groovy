@@ -0,0 +1,105 @@
+package uk.co.stuffusell.api.client.client
+
+import com.sun.net.httpserver.HttpExchange
+import uk.co.stuffusell.api.client.StubServerSpec
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+class GzipSpec extends StubServerSpec {
+    static final int THRESHOLD = 256
+
+    List<String> requestEncodings = new CopyOnWriteArrayList<>()
+    List<String> responseEncodings = new CopyOnWriteArrayList<>()
+
+    def setup() {
+        // Echoes the request body, compressed if the client accepts it
+        stub("/api/echo", { HttpExchange exchange ->
+            String encoding = exchange.requestHeaders.getFirst("Content-Encoding")
+            requestEncodings << encoding
+            byte[] body = exchange.requestBody.bytes
+            if (encoding == "gzip") {
+                body = new GZIPInputStream(new ByteArrayInputStream(body)).bytes
+            }
+            if (body.length == 0) {
+                body = '{"echo":"get"}'.getBytes(StandardCharsets.UTF_8)
+            }
+            if (exchange.requestHeaders.getFirst("Accept-Encoding")?.contains("gzip")) {
+                responseEncodings << "gzip"
+                respond(exchange, 200, gzip(body), ["Content-Type": "application/json", "Content-Encoding": "gzip"])
+            } else {
+                responseEncodings << null
+                respond(exchange, 200, body, ["Content-Type": "application/json"])
+            }
+        })
+    }
+
+    def "A body at or above the threshold is sent compressed"() {
+        given:
+        Map<String, String> payload = [name: "x" * size]
+
+        when:
+        Map<String, String> echoed = post(async, payload)
+
+        then:
+        echoed == payload
+        requestEncodings == [encoding]
+
+        where:
+        async | size           | encoding
+        false | THRESHOLD      | "gzip"
+        false | 10             | null
+        true  | THRESHOLD      | "gzip"
+        true  | 10             | null
+    }
+
+    def "Bodies are never compressed without a threshold"() {
+        given:
+        HttpClient client = new HttpClient(configuration())
+
+        when:
+        client.post("/api/echo", [name: "x" * 10_000], Map, new RequestContext())
+
+        then:
+        requestEncodings == [null]
+    }
+
+    def "A compressed response is decoded"() {
+        when:
+        Map<String, String> echoed = async
+                ? new AsyncHttpClient(configuration()).get("/api/echo", [:], Map, new RequestContext()).join()
+                : new HttpClient(configuration()).get("/api/echo", [:], Map, new RequestContext())
+
+        then:
+        echoed == [echo: "get"]
+        responseEncodings == ["gzip"]
+
+        where:
+        async << [false, true]
+    }
+
+    def "Responses are not compressed when the client does not ask for it"() {
+        when:
+        Map<String, String> echoed = new AsyncHttpClient(configuration().withResponseCompression(false))
+                .get("/api/echo", [:], Map, new RequestContext()).join()
+
+        then:
+        echoed == [echo: "get"]
+        responseEncodings == [null]
+    }
+
+    private Map<String, String> post(boolean async, Map<String, String> payload) {
+        def configuration = configuration().withRequestCompressionThreshold(THRESHOLD)
+        async
+                ? new AsyncHttpClient(configuration).post("/api/echo", payload, Map, new RequestContext()).join()
+                : new HttpClient(configuration).post("/api/echo", payload, Map, new RequestContext())
+    }
+
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        new GZIPOutputStream(bytes).withCloseable { it.write(content) }
+        bytes.toByteArray()
+    }
+}
@@ -0,0 +1,42 @@
+package uk.co.stuffusell.api.client.client
+
+import com.sun.net.httpserver.Headers
+import uk.co.stuffusell.api.client.StubServerSpec
+
+class HttpClientSpec extends StubServerSpec {
+    Headers received
+
+    def setup() {
+        stub("/api/orders", { exchange ->
+            received = exchange.requestHeaders
+            respond(exchange, 200, '{"status":"ok"}')
+        })
+    }
+
+    def cleanup() {
+        RequestContext.clear()
+    }
+
+    def "A call without a context is made for the one set on the calling thread, which is left in place"() {
+        given:
+        HttpClient client = new HttpClient(configuration())
+        RequestContext.get().authToken = "token"
+        RequestContext.get().ipAddress = "10.0.0.1"
+
+        when:
+        Map<String, String> response = call(client)
+
+        then:
+        response == [status: "ok"]
+        received.getFirst("Authorization") == "token"
+        received.getFirst("X-Remote-IP") == "10.0.0.1"
+        RequestContext.get().authToken == "token"
+
+        where:
+        call << [
+                { HttpClient c -> c.get("/api/orders", [:], Map) },
+                { HttpClient c -> c.post("/api/orders", [:], Map) },
+                { HttpClient c -> c.delete("/api/orders", [:], Map) }
+        ]
+    }
+}
@@ -0,0 +1,89 @@
+package uk.co.stuffusell.api.client.client
+
+import org.apache.http.client.methods.HttpGet
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.CallInterceptor
+import uk.co.stuffusell.api.client.Configuration
+
+class InterceptorsSpec extends Specification {
+
+    def "The built-in interceptors add the client and request context headers"() {
+        given:
+        def context = new RequestContext("10.0.0.1", null).forCall("token")
+        def request = new HttpGet("http://localhost/api")
+
+        when:
+        Interceptors.make(new Configuration().withAccessToken("key").withUserAgent("app")).onRequest(request, context)
+
+        then:
+        request.getFirstHeader("Authorization").value == "token"
+        request.getFirstHeader("X-Remote-IP").value == "10.0.0.1"
+        !request.containsHeader("X-Remote-UA")
+        request.getFirstHeader("X-Access-Token").value == "key"
+        request.getFirstHeader("User-Agent").value.startsWith("app")
+    }
+
+    def "Configured request interceptors run after the built-in ones"() {
+        given:
+        def request = new HttpGet("http://localhost/api")
+        def configuration = new Configuration()
+                .withAccessToken("key")
+                .withRequestInterceptor({ r, c -> r.setHeader("X-Access-Token", "replaced") })
+
+        when:
+        Interceptors.make(configuration).onRequest(request, new RequestContext())
+
+        then:
+        request.getHeaders("X-Access-Token")*.value == ["replaced"]
+    }
+
+    def "Call interceptors nest in the order they were added"() {
+        given:
+        List<String> calls = []
+        def configuration = new Configuration()
+                .withCallInterceptor(named("outer", calls))
+                .withCallInterceptor(named("inner", calls))
+
+        when:
+        def result = Interceptors.make(configuration).call(new HttpGet("http://localhost/api"), String, {
+            calls << "call"
+            "response"
+        })
+
+        then:
+        result == "response"
+        calls == ["outer", "inner", "call", "inner done", "outer done"]
+    }
+
+    def "A call interceptor can short-circuit the call"() {
+        given:
+        def configuration = new Configuration()
+                .withCallInterceptor({ request, type, chain -> "cached" } as CallInterceptor)
+        boolean called = false
+
+        when:
+        def result = Interceptors.make(configuration).call(new HttpGet("http://localhost/api"), String, {
+            called = true
+            "response"
+        })
+
+        then:
+        result == "cached"
+        !called
+    }
+
+    def "Without call interceptors there is no chain to run"() {
+        expect:
+        !Interceptors.make(new Configuration()).hasCallInterceptors()
+        Interceptors.make(new Configuration().withCallInterceptor(named("x", []))).hasCallInterceptors()
+    }
+
+    private static CallInterceptor named(String name, List<String> calls) {
+        { request, type, chain ->
+            calls << name
+            def result = chain.proceed()
+            calls << name + " done"
+            result
+        } as CallInterceptor
+    }
+}
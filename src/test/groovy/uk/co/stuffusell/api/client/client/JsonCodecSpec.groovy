@@ -0,0 +1,85 @@
+package uk.co.stuffusell.api.client.client
+
+import com.fasterxml.jackson.core.JsonGenerator
+import com.fasterxml.jackson.core.type.TypeReference
+import com.fasterxml.jackson.databind.JsonSerializer
+import com.fasterxml.jackson.databind.SerializerProvider
+import com.fasterxml.jackson.databind.module.SimpleModule
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.Configuration
+import uk.co.stuffusell.api.client.SusClient
+import uk.co.stuffusell.api.common.CustomerOrderDto
+import uk.co.stuffusell.api.common.ErrorResponse
+
+import java.lang.reflect.Modifier
+import java.lang.reflect.Type
+
+class JsonCodecSpec extends Specification {
+    JsonCodec codec = JsonCodec.make(new Configuration())
+
+    def "A reader is built once per response type"() {
+        expect:
+        codec.reader(CustomerOrderDto).is(codec.reader(CustomerOrderDto))
+        codec.reader(new TypeReference<List<CustomerOrderDto>>() {}.type)
+                .is(codec.reader(new TypeReference<List<CustomerOrderDto>>() {}.type))
+        !codec.reader(CustomerOrderDto).is(codec.reader(new TypeReference<List<CustomerOrderDto>>() {}.type))
+    }
+
+    def "A writer is built once per payload class"() {
+        expect:
+        codec.writer(CustomerOrderDto).is(codec.writer(CustomerOrderDto))
+        !codec.writer(CustomerOrderDto).is(codec.writer(ErrorResponse))
+    }
+
+    def "Preparing the client builds a reader for every generic response type it reads"() {
+        given:
+        List<Type> typeReferences = SusClient.declaredFields
+                .findAll { Modifier.isStatic(it.modifiers) && it.type == TypeReference }
+                .collect { it.accessible = true; (it.get(null) as TypeReference).type }
+
+        when:
+        codec.prepare(SusClient)
+
+        then:
+        !typeReferences.empty
+        codec.@readers.keySet().containsAll(typeReferences)
+        codec.@readers.containsKey(ErrorResponse)
+        codec.@readers.containsKey(CustomerOrderDto)
+    }
+
+    def "Preparing a client twice builds nothing new"() {
+        given:
+        codec.prepare(SusClient)
+        Map<Type, Object> readers = new HashMap<>(codec.@readers)
+
+        when:
+        codec.prepare(SusClient)
+
+        then:
+        codec.@readers.size() == readers.size()
+        readers.every { type, reader -> codec.reader(type).is(reader) }
+    }
+
+    def "Modules from the configuration are registered on that client's mapper only"() {
+        given:
+        SimpleModule module = new SimpleModule("money")
+                .addSerializer(Money, new JsonSerializer<Money>() {
+                    @Override
+                    void serialize(Money value, JsonGenerator generator, SerializerProvider provider) {
+                        generator.writeString(value.pence + "p")
+                    }
+                })
+
+        when:
+        JsonCodec withModule = JsonCodec.make(new Configuration().withModule(module))
+
+        then:
+        withModule.writer(Money).writeValueAsString(new Money(pence: 150)) == '"150p"'
+        codec.writer(Money).writeValueAsString(new Money(pence: 150)) == '{"pence":150}'
+        !withModule.objectMapper.is(codec.objectMapper)
+    }
+
+    static class Money {
+        int pence
+    }
+}
@@ -0,0 +1,131 @@
+package uk.co.stuffusell.api.client.client
+
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.SusException
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.Executors
+import java.util.function.IntFunction
+import java.util.stream.StreamSupport
+
+class PageSpliteratorSpec extends Specification {
+
+    def executor = Executors.newCachedThreadPool()
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "I can walk every page until the total is reached"() {
+        given:
+        List<Integer> requested = new CopyOnWriteArrayList<>()
+        IntFunction<PageSpliterator.Page<Integer>> fetcher = { int page ->
+            requested << page
+            pageOf(page < 2 ? (page * 10..<(page + 1) * 10).toList() : [20, 21, 22], 23)
+        }
+
+        when:
+        List<Integer> items = StreamSupport.stream(new PageSpliterator<>(fetcher, 0, prefetch, executor), false)
+                .collect()
+
+        then:
+        items == (0..22).toList()
+        requested.sort() == [0, 1, 2]
+
+        where:
+        prefetch << [0, 1, 3]
+    }
+
+    def "No page is prefetched when the first page holds every item"() {
+        given:
+        List<Integer> requested = new CopyOnWriteArrayList<>()
+        IntFunction<PageSpliterator.Page<Integer>> fetcher = { int page ->
+            requested << page
+            pageOf((1..7).toList(), 7)
+        }
+
+        when:
+        long count = StreamSupport.stream(new PageSpliterator<>(fetcher, 0, 3, executor), false).count()
+
+        then:
+        count == 7
+        requested == [0]
+    }
+
+    def "Pages smaller than asked for do not end the walk"() {
+        given:
+        IntFunction<PageSpliterator.Page<Integer>> fetcher = { int page ->
+            pageOf((page * 5..<Math.min(23, (page + 1) * 5)).toList(), 23)
+        }
+
+        when:
+        List<Integer> items = StreamSupport.stream(new PageSpliterator<>(fetcher, 0, 2, executor), false).collect()
+
+        then:
+        items == (0..22).toList()
+    }
+
+    def "Without a total the walk ends at the first empty page"() {
+        given:
+        List<Integer> requested = []
+        IntFunction<PageSpliterator.Page<Integer>> fetcher = { int page ->
+            requested << page
+            pageOf(page < 3 ? (1..7).toList() : [], 0)
+        }
+
+        when:
+        long count = StreamSupport.stream(new PageSpliterator<>(fetcher, 0, 0, executor), false).count()
+
+        then:
+        count == 21
+        requested == [0, 1, 2, 3]
+    }
+
+    def "Pages are only fetched on demand when prefetch is disabled"() {
+        given:
+        List<Integer> requested = []
+        IntFunction<PageSpliterator.Page<Integer>> fetcher = { int page ->
+            requested << page
+            pageOf((1..10).toList(), 1000)
+        }
+
+        when:
+        List<Integer> items = StreamSupport.stream(new PageSpliterator<>(fetcher, 1, 0, executor), false)
+                .limit(15)
+                .collect()
+
+        then:
+        items.size() == 15
+        requested == [1, 2]
+    }
+
+    def "A failed page fetch is surfaced to the consumer"() {
+        given:
+        IntFunction<PageSpliterator.Page<Integer>> fetcher = { int page ->
+            if (page == 1) {
+                throw new SusException("page failed")
+            }
+            pageOf((1..10).toList(), 100)
+        }
+
+        when:
+        StreamSupport.stream(new PageSpliterator<>(fetcher, 0, 2, executor), false).count()
+
+        then:
+        SusException e = thrown()
+        e.message == 'page failed'
+    }
+
+    def "An empty first page yields no items"() {
+        when:
+        long count = StreamSupport.stream(
+                new PageSpliterator<>({ int page -> pageOf(null, 0) } as IntFunction, 0, 2, executor), false).count()
+
+        then:
+        count == 0
+    }
+
+    private static PageSpliterator.Page<Integer> pageOf(List<Integer> items, long total) {
+        new PageSpliterator.Page<>(items, total)
+    }
+}
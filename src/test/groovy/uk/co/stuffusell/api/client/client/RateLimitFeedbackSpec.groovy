@@ -0,0 +1,138 @@
+package uk.co.stuffusell.api.client.client
+
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.Configuration
+import uk.co.stuffusell.api.client.util.RateLimiter
+
+import java.time.ZoneOffset
+import java.time.ZonedDateTime
+import java.time.format.DateTimeFormatter
+import java.util.concurrent.TimeUnit
+import java.util.function.Function
+
+class RateLimitFeedbackSpec extends Specification {
+    RateLimiter limiter = new RateLimiter(10, 1)
+    RateLimitFeedback feedback = new RateLimitFeedback(
+            limiter, new Configuration().withRequestsPerSecond(10).withMaxRequestsPerSecond(12))
+
+    def "Successful responses raise the rate towards the maximum"() {
+        when:
+        feedback.onResponse(200, headers([:]))
+
+        then:
+        limiter.requestsPerSecond == 10.1d
+
+        when:
+        100.times { feedback.onResponse(200, headers([:])) }
+
+        then:
+        limiter.requestsPerSecond == 12d
+    }
+
+    def "Errors other than throttling leave the rate alone"() {
+        when:
+        long wait = feedback.onResponse(500, headers([:]))
+
+        then:
+        wait == -1
+        limiter.requestsPerSecond == 10d
+    }
+
+    def "The first throttled response halves the rate whatever the Retry-After"() {
+        when:
+        long wait = feedback.onResponse(429, headers(["Retry-After": retryAfter]))
+
+        then:
+        wait == TimeUnit.SECONDS.toNanos(seconds)
+        limiter.requestsPerSecond == 5d
+
+        where:
+        retryAfter | seconds
+        "30"       | 30
+        "0"        | 0
+        null       | 1
+    }
+
+    def "A burst of throttled responses backs off once"() {
+        when:
+        5.times { feedback.onResponse(429, headers(["Retry-After": "0"])) }
+
+        then:
+        limiter.requestsPerSecond == 5d
+    }
+
+    def "Throttling after the congestion window backs off again"() {
+        given:
+        feedback.onResponse(429, headers(["Retry-After": "0"]))
+
+        when:
+        sleep(1100)
+        feedback.onResponse(429, headers(["Retry-After": "0"]))
+
+        then:
+        limiter.requestsPerSecond == 2.5d
+    }
+
+    def "The rate never falls below one request per second"() {
+        when:
+        6.times {
+            feedback.onResponse(429, headers(["Retry-After": "0"]))
+            sleep(1010)
+        }
+
+        then:
+        limiter.requestsPerSecond == 1d
+    }
+
+    def "An exhausted rate limit pauses until it resets"() {
+        given:
+        RateLimiter paused = new RateLimiter(1000, 1)
+        RateLimitFeedback pausing = new RateLimitFeedback(paused, new Configuration().withRequestsPerSecond(1000))
+
+        when:
+        pausing.onResponse(200, headers(["X-RateLimit-Remaining": "0", "X-RateLimit-Reset": "1"]))
+
+        then:
+        !paused.tryAcquire(500, TimeUnit.MILLISECONDS)
+        paused.tryAcquire(1000, TimeUnit.MILLISECONDS)
+    }
+
+    def "Retry-After is read as delta seconds or an HTTP-date"() {
+        expect:
+        RateLimitFeedback.parseRetryAfter("120") == TimeUnit.SECONDS.toNanos(120)
+        RateLimitFeedback.parseRetryAfter(" 5 ") == TimeUnit.SECONDS.toNanos(5)
+        RateLimitFeedback.parseRetryAfter("-5") == 0
+        RateLimitFeedback.parseRetryAfter(httpDate(-60)) == 0
+        TimeUnit.NANOSECONDS.toSeconds(RateLimitFeedback.parseRetryAfter(httpDate(30))) in 28L..30L
+    }
+
+    def "Retry-After that cannot be read is ignored"() {
+        expect:
+        RateLimitFeedback.parseRetryAfter(value) == -1
+
+        where:
+        value << [null, "", "  ", "soon", "1.5", "Tue, 32 Foo 2020 99:00:00 GMT"]
+    }
+
+    def "RateLimit-Reset is read as delta seconds or epoch seconds"() {
+        given:
+        long now = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())
+
+        expect:
+        RateLimitFeedback.parseReset("30") == TimeUnit.SECONDS.toNanos(30)
+        TimeUnit.NANOSECONDS.toSeconds(RateLimitFeedback.parseReset(String.valueOf(now + 20))) in 19L..20L
+        RateLimitFeedback.parseReset(String.valueOf(now - 20)) == 0
+        RateLimitFeedback.parseReset(value) == -1
+
+        where:
+        value << [null, "", "later", "1.5"]
+    }
+
+    private static Function<String, String> headers(Map<String, String> headers) {
+        { String name -> headers[name] } as Function<String, String>
+    }
+
+    private static String httpDate(int secondsFromNow) {
+        DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(secondsFromNow))
+    }
+}
@@ -0,0 +1,120 @@
+package uk.co.stuffusell.api.client.client
+
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.CachePolicy
+import uk.co.stuffusell.api.client.CachedEndpoint
+import uk.co.stuffusell.api.client.SusException
+
+import java.util.function.Supplier
+
+class ResponseCacheSpec extends Specification {
+    int fetches
+
+    def "A response is fetched once and then served from the cache"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy())
+
+        when:
+        List<Object> responses = (1..3).collect { cache.get(CachedEndpoint.SALES_TICKER, null, loader("ticker")) }
+
+        then:
+        responses == ["ticker-1"] * 3
+        fetches == 1
+        cache.statistics.hitCount == 2
+        cache.statistics.missCount == 1
+        cache.statistics.hitRate == 2 / 3d
+    }
+
+    def "A response is fetched again once its time to live has passed"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy().withTtlMillis(CachedEndpoint.SALES_TICKER, 50))
+        cache.get(CachedEndpoint.SALES_TICKER, null, loader("ticker"))
+
+        when:
+        sleep(100)
+
+        then:
+        cache.get(CachedEndpoint.SALES_TICKER, null, loader("ticker")) == "ticker-2"
+    }
+
+    def "An endpoint with no time to live is not cached"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy().withTtlMillis(CachedEndpoint.CATEGORIES, 0))
+
+        when:
+        2.times { cache.get(CachedEndpoint.CATEGORIES, null, loader("categories")) }
+
+        then:
+        fetches == 2
+    }
+
+    def "Per customer responses are cached against each auth token, shared ones are not"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy())
+
+        expect:
+        cache.get(CachedEndpoint.PRICING, "a", loader("pricing")) == "pricing-1"
+        cache.get(CachedEndpoint.PRICING, "b", loader("pricing")) == "pricing-2"
+        cache.get(CachedEndpoint.PRICING, "a", loader("pricing")) == "pricing-1"
+        cache.get(CachedEndpoint.SALES_TICKER, "a", loader("ticker")) == "ticker-3"
+        cache.get(CachedEndpoint.SALES_TICKER, "b", loader("ticker")) == "ticker-3"
+    }
+
+    def "Invalidating a customer drops only their responses"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy())
+        cache.get(CachedEndpoint.PRICING, "a", loader("pricing"))
+        cache.get(CachedEndpoint.PRICING, "b", loader("pricing"))
+        cache.get(CachedEndpoint.SALES_TICKER, null, loader("ticker"))
+
+        when:
+        cache.invalidate("a")
+
+        then:
+        cache.get(CachedEndpoint.PRICING, "a", loader("pricing")) == "pricing-4"
+        cache.get(CachedEndpoint.PRICING, "b", loader("pricing")) == "pricing-2"
+        cache.get(CachedEndpoint.SALES_TICKER, null, loader("ticker")) == "ticker-3"
+    }
+
+    def "Cached lists cannot be changed by a caller"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy())
+        List<String> categories = cache.get(CachedEndpoint.CATEGORIES, null, { ["Books", "Music"] } as Supplier)
+
+        when:
+        categories.add("Films")
+
+        then:
+        thrown(UnsupportedOperationException)
+        cache.get(CachedEndpoint.CATEGORIES, null, { [] } as Supplier) == ["Books", "Music"]
+    }
+
+    def "A failed fetch is not cached"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy())
+
+        when:
+        cache.get(CachedEndpoint.SALES_TICKER, null, { throw new SusException("down") } as Supplier)
+
+        then:
+        SusException e = thrown()
+        e.message == "down"
+        cache.get(CachedEndpoint.SALES_TICKER, null, loader("ticker")) == "ticker-1"
+    }
+
+    def "The least recently used responses are evicted and counted"() {
+        given:
+        ResponseCache cache = new ResponseCache(new CachePolicy().withMaximumSize(2))
+
+        when:
+        ["a", "b", "c"].each { cache.get(CachedEndpoint.PRICING, it, loader("pricing")) }
+
+        then:
+        cache.statistics.evictionCount == 1
+        cache.get(CachedEndpoint.PRICING, "a", loader("pricing")) == "pricing-4"
+    }
+
+    private Supplier<Object> loader(String name) {
+        { -> name + "-" + (++fetches) } as Supplier<Object>
+    }
+}
@@ -0,0 +1,82 @@
+package uk.co.stuffusell.api.client.client
+
+import spock.lang.Specification
+import uk.co.stuffusell.api.client.RetryListener
+import uk.co.stuffusell.api.client.RetryPolicy
+
+class RetrierSpec extends Specification {
+    static final Exception FAILURE = new IOException("reset")
+
+    def "The backoff is jittered up to a ceiling that grows with each retry"() {
+        given:
+        Retrier retrier = new Retrier(new RetryPolicy()
+                .withMaxRetries(10)
+                .withInitialBackoffMillis(100)
+                .withMaxBackoffMillis(1000)
+                .withMinRetryBudget(10_000))
+
+        when:
+        List<Long> backoffs = (1..2000).collect { retrier.nextBackoffMillis("GET", "/api", retry, FAILURE) }
+
+        then:
+        backoffs.every { it >= 0 && it <= ceiling }
+        backoffs.max() > ceiling * 0.9
+        backoffs.min() < ceiling * 0.1
+        backoffs.unique().size() > 1
+
+        where:
+        retry | ceiling
+        1     | 100
+        2     | 200
+        3     | 400
+        4     | 800
+        5     | 1000
+        10    | 1000
+    }
+
+    def "A call is not retried more than the maximum retries"() {
+        given:
+        Retrier retrier = new Retrier(new RetryPolicy().withMaxRetries(2))
+
+        expect:
+        retrier.nextBackoffMillis("GET", "/api", 2, FAILURE) >= 0
+        retrier.nextBackoffMillis("GET", "/api", 3, FAILURE) == -1
+        new Retrier(RetryPolicy.none()).nextBackoffMillis("GET", "/api", 1, FAILURE) == -1
+    }
+
+    def "Retries stop once the budget is exhausted and resume as requests refill it"() {
+        given:
+        RetryListener listener = Mock()
+        Retrier retrier = new Retrier(new RetryPolicy()
+                .withMinRetryBudget(2)
+                .withRetryBudgetRatio(0.5)
+                .withRetryListener(listener))
+
+        when:
+        List<Long> backoffs = (1..3).collect { retrier.nextBackoffMillis("GET", "/api", 1, FAILURE) }
+
+        then:
+        backoffs[0] >= 0
+        backoffs[1] >= 0
+        backoffs[2] == -1
+        2 * listener.onRetry("GET", "/api", 1, _, FAILURE)
+        1 * listener.onRetryBudgetExhausted("GET", "/api", FAILURE)
+
+        when:
+        2.times { retrier.onRequest() }
+
+        then:
+        retrier.nextBackoffMillis("GET", "/api", 1, FAILURE) >= 0
+    }
+
+    def "Only the configured status codes are retryable"() {
+        given:
+        Retrier retrier = new Retrier(new RetryPolicy().withRetryableStatusCodes(503, 429))
+
+        expect:
+        retrier.isRetryable(503)
+        retrier.isRetryable(429)
+        !retrier.isRetryable(502)
+        !retrier.isRetryable(500)
+    }
+}
@@ -0,0 +1,153 @@
+package uk.co.stuffusell.api.client.client
+
+import com.fasterxml.jackson.core.JsonProcessingException
+import uk.co.stuffusell.api.client.ClientMetrics
+import uk.co.stuffusell.api.client.RetryPolicy
+import uk.co.stuffusell.api.client.StubServerSpec
+import uk.co.stuffusell.api.client.SusException
+import uk.co.stuffusell.api.client.SusServerException
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.atomic.AtomicInteger
+
+class RetrySpec extends StubServerSpec {
+    AtomicInteger requests = new AtomicInteger()
+    List<String> idempotencyKeys = new CopyOnWriteArrayList<>()
+    int failures
+
+    def setup() {
+        // Promises more body than it sends, so the client sees the connection close partway through
+        stub("/api/truncated", { exchange ->
+            if (requests.incrementAndGet() <= failures) {
+                exchange.sendResponseHeaders(200, 100)
+                exchange.responseBody.write('{"orders":['.bytes)
+                try {
+                    exchange.close()
+                } catch (IOException ignore) {
+                }
+            } else {
+                respond(exchange, 200, '{}')
+            }
+        })
+        stub("/api/orders", { exchange ->
+            String key = exchange.requestHeaders.getFirst("Idempotency-Key")
+            if (key != null) {
+                idempotencyKeys << key
+            }
+            if (requests.incrementAndGet() <= failures) {
+                respond(exchange, 503, '{"error":"Unavailable"}')
+            } else {
+                respond(exchange, 200, '{}')
+            }
+        })
+    }
+
+    def "A GET failing with a retryable status is retried"() {
+        given:
+        failures = 2
+
+        when:
+        client(new RetryPolicy().withInitialBackoffMillis(1)).get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        requests.get() == 3
+    }
+
+    def "A POST without an idempotency key is not retried"() {
+        given:
+        failures = 1
+
+        when:
+        client(new RetryPolicy().withInitialBackoffMillis(1)).post("/api/orders", [:], Map, false, new RequestContext())
+
+        then:
+        SusServerException e = thrown()
+        e.statusCode == 503
+        requests.get() == 1
+    }
+
+    def "A POST with an idempotency key is retried with the same key"() {
+        given:
+        failures = 2
+
+        when:
+        client(new RetryPolicy().withInitialBackoffMillis(1)).post("/api/orders", [:], Map, true, new RequestContext())
+
+        then:
+        requests.get() == 3
+        idempotencyKeys.size() == 3
+        idempotencyKeys.unique(false).size() == 1
+    }
+
+    def "The last failure is reported once the retries are used up"() {
+        given:
+        failures = Integer.MAX_VALUE
+
+        when:
+        client(new RetryPolicy().withMaxRetries(2).withInitialBackoffMillis(1))
+                .get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        SusServerException e = thrown()
+        e.statusCode == 503
+        requests.get() == 3
+    }
+
+    def "Retries take a rate limit permit even when first attempts do not"() {
+        given:
+        failures = 2
+        List<Long> rateLimitWaits = new CopyOnWriteArrayList<>()
+        ClientMetrics metrics = new ClientMetrics() {
+            @Override
+            void onRateLimitWait(long waitNanos) {
+                rateLimitWaits << waitNanos
+            }
+        }
+        HttpClient client = new HttpClient(configuration()
+                .withRetryPolicy(new RetryPolicy().withInitialBackoffMillis(1))
+                .withRequestsPerSecond(2)
+                .withRequestBurstSize(1)
+                .withMetrics(metrics))
+
+        when:
+        client.get("/api/orders", [:], Map, new RequestContext())
+
+        then:
+        requests.get() == 3
+        rateLimitWaits.size() == 2
+        rateLimitWaits[1] >= 300_000_000L
+    }
+
+    def "A body cut off partway through is retried rather than reported as unreadable"() {
+        given:
+        failures = 1
+
+        when:
+        Map<String, Object> response = client(new RetryPolicy().withInitialBackoffMillis(1))
+                .get("/api/truncated", [:], Map, new RequestContext())
+
+        then:
+        response == [:]
+        requests.get() == 2
+    }
+
+    def "A body that arrives whole but is not JSON is reported as unreadable without a retry"() {
+        given:
+        stub("/api/garbled", { exchange ->
+            requests.incrementAndGet()
+            respond(exchange, 200, '{"orders":[')
+        })
+
+        when:
+        client(new RetryPolicy().withInitialBackoffMillis(1)).get("/api/garbled", [:], Map, new RequestContext())
+
+        then:
+        SusException e = thrown()
+        e.cause instanceof JsonProcessingException
+        requests.get() == 1
+    }
+
+    private HttpClient client(RetryPolicy retryPolicy) {
+        new HttpClient(configuration().withRetryPolicy(retryPolicy))
+    }
+}
@@ -0,0 +1,135 @@
+package uk.co.stuffusell.api.client.client
+
+import com.sun.net.httpserver.HttpExchange
+import uk.co.stuffusell.api.client.ClientSpan
+import uk.co.stuffusell.api.client.ClientTracer
+import uk.co.stuffusell.api.client.RetryPolicy
+import uk.co.stuffusell.api.client.StubServerSpec
+import uk.co.stuffusell.api.client.SusServerException
+import uk.co.stuffusell.api.client.TracePhase
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+import java.util.function.BiConsumer
+
+class TracingSpec extends StubServerSpec {
+    static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1)
+
+    List<RecordingSpan> spans = new CopyOnWriteArrayList<>()
+    List<String> traceparents = new CopyOnWriteArrayList<>()
+    ClientTracer tracer = { endpoint, method, path ->
+        RecordingSpan span = new RecordingSpan(method: method, path: path)
+        spans << span
+        span
+    } as ClientTracer
+    long headerDelayMillis
+    long bodyDelayMillis
+    int status = 200
+
+    def setup() {
+        stub("/api/orders/", { HttpExchange exchange ->
+            traceparents << exchange.requestHeaders.getFirst("traceparent")
+            sleep(headerDelayMillis)
+            byte[] body = (status == 200 ? '{"items":[1,2,3]}' : '{"error":"x"}').getBytes(StandardCharsets.UTF_8)
+            exchange.responseHeaders.add("Content-Type", "application/json")
+            exchange.sendResponseHeaders(status, body.length)
+            exchange.responseBody.write(body, 0, 5)
+            exchange.responseBody.flush()
+            sleep(bodyDelayMillis)
+            exchange.responseBody.write(body, 5, body.length - 5)
+            exchange.close()
+        })
+    }
+
+    def "A call is one span named by its path template, with the trace context sent to the server"() {
+        when:
+        client().get("/api/orders/42", [:], Map, new RequestContext())
+
+        then:
+        spans.size() == 1
+        spans[0].method == "GET"
+        spans[0].path == "/api/orders/{id}"
+        spans[0].ended == [200, 1, null]
+        traceparents == ["00-trace-span-01"]
+    }
+
+    def "The phases of an attempt are reported"() {
+        given:
+        headerDelayMillis = 100
+        bodyDelayMillis = 100
+        HttpClient client = client()
+
+        when:
+        client.get("/api/orders/1", [:], Map, new RequestContext())
+        client.get("/api/orders/2", [:], Map, new RequestContext())
+
+        then:
+        with(spans[0].phases) {
+            it.keySet().containsAll([TracePhase.POOL_LEASE, TracePhase.CONNECT, TracePhase.TIME_TO_FIRST_BYTE,
+                                     TracePhase.BODY_READ, TracePhase.DESERIALIZE])
+            it[TracePhase.TIME_TO_FIRST_BYTE] >= 100 * MILLIS
+            // The body read is timed from the first read, a little after the server starts holding the rest back
+            it[TracePhase.BODY_READ] >= 50 * MILLIS
+            it[TracePhase.DESERIALIZE] < it[TracePhase.BODY_READ]
+        }
+        !spans[1].phases.containsKey(TracePhase.CONNECT)
+    }
+
+    def "A retried call is one span that counts its attempts"() {
+        given:
+        status = 503
+
+        when:
+        client(new RetryPolicy().withMaxRetries(2).withInitialBackoffMillis(1))
+                .get("/api/orders/1", [:], Map, new RequestContext())
+
+        then:
+        SusServerException e = thrown()
+        spans.size() == 1
+        spans[0].ended == [503, 3, e]
+        traceparents.size() == 3
+    }
+
+    def "The span ends when the call fails with an error"() {
+        given:
+        AssertionError error = new AssertionError("broken")
+        HttpClient client = new HttpClient(configuration()
+                .withTracer(tracer)
+                .withResponseInterceptor({ request, response -> throw error }))
+
+        when:
+        client.get("/api/orders/1", [:], Map, new RequestContext())
+
+        then:
+        AssertionError thrownError = thrown()
+        thrownError.is(error)
+        spans[0].ended[2].is(error)
+    }
+
+    private HttpClient client(RetryPolicy retryPolicy = new RetryPolicy()) {
+        new HttpClient(configuration().withTracer(tracer).withRetryPolicy(retryPolicy))
+    }
+
+    static class RecordingSpan implements ClientSpan {
+        String method
+        String path
+        Map<TracePhase, Long> phases = [:]
+        List<Object> ended
+
+        @Override
+        void inject(BiConsumer<String, String> headers) {
+            headers.accept("traceparent", "00-trace-span-01")
+        }
+
+        @Override
+        synchronized void onPhase(TracePhase phase, long durationNanos) {
+            phases[phase] = (phases[phase] ?: 0L) + durationNanos
+        }
+
+        @Override
+        void end(int statusCode, int attempts, Throwable error) {
+            ended = [statusCode, attempts, error]
+        }
+    }
+}
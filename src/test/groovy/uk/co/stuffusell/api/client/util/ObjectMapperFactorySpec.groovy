@@ -2,6 +2,7 @@ package uk.co.stuffusell.api.client.util
 
 import com.fasterxml.jackson.databind.DeserializationFeature
 import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.SerializationFeature
 import spock.lang.Specification
 
 class ObjectMapperFactorySpec extends Specification {
@@ -23,6 +24,24 @@ class ObjectMapperFactorySpec extends Specification {
                 DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES.getMask())
     }
 
+    def "Output is compact unless indenting is configured"() {
+        when:
+        ObjectMapper mapper = ObjectMapperFactory.make()
+
+        then:
+        mapper.writeValueAsString([name: 'value', count: 1]) == '{"name":"value","count":1}'
+
+        when:
+        ObjectMapperFactory.setIndentOutput(true)
+        mapper = ObjectMapperFactory.make()
+
+        then:
+        mapper.serializationConfig.isEnabled(SerializationFeature.INDENT_OUTPUT)
+
+        cleanup:
+        ObjectMapperFactory.setIndentOutput(false)
+    }
+
     def "The constructor is private"() {
         when:
         ObjectMapperFactory factory = new ObjectMapperFactory()
@@ -0,0 +1,27 @@
+package uk.co.stuffusell.api.client.util
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class PathTemplatesSpec extends Specification {
+
+    @Unroll
+    def "The template for #path is #expected"() {
+        expect:
+        PathTemplates.normalize(path) == expected
+
+        where:
+        path                                           | expected
+        '/api/customer/current'                        | '/api/customer/current'
+        '//api/customer/orders'                        | '/api/customer/orders'
+        '/api/customer/order/AB12CD'                   | '/api/customer/order/{sku}'
+        '/api/customer/order/AB12CD/update'            | '/api/customer/order/{sku}/update'
+        '/api/customer/order/AB12CD/listing-history'   | '/api/customer/order/{sku}/listing-history'
+        '/api/customer/invoice/INV-0042'               | '/api/customer/invoice/{invoiceNumber}'
+        '/api/consignment/overview'                    | '/api/consignment/overview'
+        '/api/consignment/1234'                        | '/api/consignment/{consignmentId}'
+        '/api/sku/XYZ'                                 | '/api/sku/{sku}'
+        '/api/customer/parcel/991/label'               | '/api/customer/parcel/{id}/label'
+        '/'                                            | '/'
+    }
+}
@@ -0,0 +1,61 @@
+package uk.co.stuffusell.api.client.util
+
+import spock.lang.Specification
+import spock.lang.Unroll
+
+class QueryEscaperSpec extends Specification {
+    private static final String ESCAPABLE_CHARS = "([+-=!()\\{\\}\\[\\]^\\\\\"~*?:\\/]|&&|\\|\\|)"
+    private static final String INVALID_CHARS = "([\\<\\>])"
+    private static final String ALPHABET = 'ab Z09+-=.,;:/\\!(){}[]^"~*?&|<>\té'
+
+    @Unroll
+    def "I can escape #query"() {
+        expect:
+        QueryEscaper.escape(query) == expected
+
+        where:
+        query                  | expected
+        null                   | null
+        ''                     | ''
+        'leather bag'          | 'leather bag'
+        'a && b || c'          | 'a \\&& b \\|| c'
+        'a &&& b'              | 'a \\&&& b'
+        'a & b | c'            | 'a & b | c'
+        'a &<& b'              | 'a \\&& b'
+        '<b>bold</b>'          | 'bbold\\/b'
+        'title:(bag)'          | 'title\\:\\(bag\\)'
+        'size 10.5'            | 'size \\1\\0\\.\\5'
+    }
+
+    def "Text that needs no escaping is returned as is"() {
+        given:
+        String query = 'vintage leather satchel'
+
+        expect:
+        QueryEscaper.escape(query).is(query)
+    }
+
+    def "Escaping matches the regular expressions it replaced for any input"() {
+        given:
+        Random random = new Random(20210517)
+
+        expect:
+        (1..20000).every {
+            String query = randomQuery(random)
+            QueryEscaper.escape(query) == regexEscape(query)
+        }
+    }
+
+    private static String randomQuery(Random random) {
+        StringBuilder query = new StringBuilder()
+        int length = random.nextInt(16)
+        for (int i = 0; i < length; i++) {
+            query.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())))
+        }
+        query.toString()
+    }
+
+    private static String regexEscape(String query) {
+        query.replaceAll(INVALID_CHARS, "").replaceAll(ESCAPABLE_CHARS, "\\\\\$1")
+    }
+}
@@ -0,0 +1,133 @@
+package uk.co.stuffusell.api.client.util
+
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class RateLimiterSpec extends Specification {
+
+    def "A full burst is available immediately and then requests are refused"() {
+        given:
+        RateLimiter limiter = new RateLimiter(10, 5)
+
+        expect:
+        (1..5).every { limiter.tryAcquire(0, TimeUnit.MILLISECONDS) }
+        !limiter.tryAcquire(0, TimeUnit.MILLISECONDS)
+    }
+
+    def "A refused request does not consume a permit"() {
+        given:
+        RateLimiter limiter = new RateLimiter(20, 1)
+        limiter.tryAcquire(0, TimeUnit.MILLISECONDS)
+
+        when:
+        boolean refused = !limiter.tryAcquire(0, TimeUnit.MILLISECONDS)
+        long start = System.nanoTime()
+        boolean acquired = limiter.tryAcquire(1, TimeUnit.SECONDS)
+        long waited = System.nanoTime() - start
+
+        then:
+        refused
+        acquired
+        waited < TimeUnit.MILLISECONDS.toNanos(100)
+    }
+
+    def "A released reservation is available to the next caller"() {
+        given:
+        RateLimiter limiter = new RateLimiter(1, 1)
+        limiter.tryAcquire(0, TimeUnit.MILLISECONDS)
+        limiter.reserve()
+
+        when:
+        limiter.release()
+
+        then:
+        !limiter.tryAcquire(0, TimeUnit.MILLISECONDS)
+        limiter.tryReserve(2, TimeUnit.SECONDS) < TimeUnit.MILLISECONDS.toNanos(1100)
+    }
+
+    def "Requests per second are not limited to whole multiples of the burst size"() {
+        given:
+        RateLimiter limiter = new RateLimiter(3, 2)
+
+        when:
+        limiter.acquire()
+        limiter.acquire()
+        long start = System.nanoTime()
+        limiter.acquire()
+        long waited = System.nanoTime() - start
+
+        then:
+        waited >= TimeUnit.MILLISECONDS.toNanos(300)
+        waited < TimeUnit.MILLISECONDS.toNanos(600)
+    }
+
+    def "An interrupted waiter gets an interrupted exception"() {
+        given:
+        RateLimiter limiter = new RateLimiter(1, 1)
+        limiter.acquire()
+        Thread.currentThread().interrupt()
+
+        when:
+        limiter.acquire()
+
+        then:
+        thrown(InterruptedException)
+        !Thread.currentThread().isInterrupted()
+    }
+
+    def "The configured rate is never exceeded under contention"() {
+        given:
+        int requestsPerSecond = 200
+        int burst = 10
+        int threads = 32
+        long runNanos = TimeUnit.MILLISECONDS.toNanos(1500)
+        long created = System.nanoTime()
+        RateLimiter limiter = new RateLimiter(requestsPerSecond, burst)
+        Queue<Long> grants = new ConcurrentLinkedQueue<>()
+        CountDownLatch start = new CountDownLatch(1)
+        long end = System.nanoTime() + runNanos
+
+        when:
+        List<Thread> workers = (1..threads).collect {
+            Thread.start {
+                start.await()
+                while (System.nanoTime() < end) {
+                    if (limiter.tryAcquire(end - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                        grants << System.nanoTime()
+                    }
+                }
+            }
+        }
+        start.countDown()
+        workers*.join()
+        List<Long> times = grants.sort()
+
+        then:
+        long windowNanos = TimeUnit.MILLISECONDS.toNanos(250)
+        int allowed = burst + (int) (windowNanos * requestsPerSecond / TimeUnit.SECONDS.toNanos(1)) + 1
+        int busiest = (0..<times.size()).collect { int i ->
+            times.subList(i, times.size()).takeWhile { it - times[i] < windowNanos }.size()
+        }.max()
+        busiest <= allowed
+        times.size() <= burst + (int) ((times.last() - created) * requestsPerSecond / TimeUnit.SECONDS.toNanos(1)) + 1
+        times.size() >= requestsPerSecond
+    }
+
+    def "The deprecated blocking call still waits for a permit"() {
+        given:
+        RateLimiter limiter = new RateLimiter(10, 1)
+        limiter.acquire()
+
+        when:
+        long start = System.nanoTime()
+        limiter.blockTillRateLimitReset()
+        long waited = System.nanoTime() - start
+
+        then:
+        waited >= TimeUnit.MILLISECONDS.toNanos(80)
+        !limiter.tryAcquire(0, TimeUnit.MILLISECONDS)
+    }
+}
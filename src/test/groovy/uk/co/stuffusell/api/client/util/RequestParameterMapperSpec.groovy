@@ -0,0 +1,45 @@
+package uk.co.stuffusell.api.client.util
+
+import spock.lang.Specification
+
+class RequestParameterMapperSpec extends Specification {
+    RequestParameterMapper mapper = new RequestParameterMapper()
+
+    def "Fields are written as snake case parameters, superclass fields last, skipping nulls, empty collections and transients"() {
+        given:
+        SearchRequest request = new SearchRequest(
+                pageSize: 50,
+                searchTerm: 'leather bag',
+                categoryIds: ['10', '20'],
+                statuses: [],
+                cacheKey: 'ignored')
+
+        expect:
+        mapper.writeToMap(request) == [search_term: 'leather bag', category_ids: '10,20', page: '0', page_size: '50']
+        mapper.write(request) == '?search_term=leather+bag&category_ids=10%2C20&page=0&page_size=50'
+    }
+
+    def "I can read a query string into an object"() {
+        when:
+        SearchRequest request = mapper.read(
+                new URL('http://localhost/search?searchTerm=leather%20bag&page=3&categoryIds[]=20&categoryIds[]=10'),
+                SearchRequest)
+
+        then:
+        request.searchTerm == 'leather bag'
+        request.page == 3
+        request.categoryIds == ['10', '20']
+    }
+
+    static class PagedRequest {
+        Integer page = 0
+        Integer pageSize
+    }
+
+    static class SearchRequest extends PagedRequest {
+        String searchTerm
+        List<String> categoryIds
+        List<String> statuses
+        transient String cacheKey
+    }
+}
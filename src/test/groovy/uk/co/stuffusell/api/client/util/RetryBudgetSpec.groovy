@@ -0,0 +1,77 @@
+package uk.co.stuffusell.api.client.util
+
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+
+class RetryBudgetSpec extends Specification {
+
+    def "The budget starts with the initial retries and is then exhausted"() {
+        given:
+        RetryBudget budget = new RetryBudget(0.2, 3)
+
+        expect:
+        (1..3).every { budget.tryWithdraw() }
+        !budget.tryWithdraw()
+    }
+
+    def "Requests fund retries at the budget ratio"() {
+        given:
+        RetryBudget budget = new RetryBudget(0.2, 0)
+
+        when:
+        4.times { budget.deposit() }
+
+        then:
+        !budget.tryWithdraw()
+
+        when:
+        budget.deposit()
+
+        then:
+        budget.tryWithdraw()
+        !budget.tryWithdraw()
+    }
+
+    def "Deposits are capped so a quiet period cannot bank an unbounded burst of retries"() {
+        given:
+        RetryBudget budget = new RetryBudget(1, 1)
+
+        when:
+        1000.times { budget.deposit() }
+
+        then:
+        (1..10).every { budget.tryWithdraw() }
+        !budget.tryWithdraw()
+    }
+
+    def "A budget without a ratio never refills"() {
+        given:
+        RetryBudget budget = new RetryBudget(0, 1)
+
+        when:
+        budget.tryWithdraw()
+        100.times { budget.deposit() }
+
+        then:
+        !budget.tryWithdraw()
+    }
+
+    def "Concurrent withdrawals never overdraw the budget"() {
+        given:
+        RetryBudget budget = new RetryBudget(0, 100)
+        def threads = Executors.newFixedThreadPool(8)
+
+        when:
+        int withdrawn = (1..8).collect {
+            threads.submit({ (1..50).count { budget.tryWithdraw() } } as Callable<Integer>)
+        }*.get().sum() as int
+
+        then:
+        withdrawn == 100
+
+        cleanup:
+        threads.shutdownNow()
+    }
+}